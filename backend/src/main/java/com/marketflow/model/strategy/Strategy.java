@@ -28,6 +28,9 @@ public class Strategy {
     @Column(name = "source")
     private String source;
 
+    @Column(name = "campaign_id", length = 100)
+    private String campaignId;
+
     @Column(name = "recommendations", length = 5000)
     private String recommendations;
 
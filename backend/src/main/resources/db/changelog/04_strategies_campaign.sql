@@ -0,0 +1,4 @@
+-- Стратегии уровня кампании: campaign_id IS NULL - стратегия по источнику целиком
+ALTER TABLE strategies ADD COLUMN IF NOT EXISTS campaign_id VARCHAR(100);
+
+CREATE INDEX IF NOT EXISTS idx_strategies_source_campaign ON strategies(source, campaign_id);
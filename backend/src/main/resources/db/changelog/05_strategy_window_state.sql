@@ -0,0 +1,23 @@
+-- Состояние скользящих окон трендов strategy-engine между запусками:
+-- суммы регрессии и итоги по ключу (все источники, источник, кампания источника).
+-- Пустая строка в source / campaign_id - "все источники" / "источник целиком"
+CREATE TABLE IF NOT EXISTS strategy_window_state (
+    source VARCHAR(50) NOT NULL,
+    campaign_id VARCHAR(100) NOT NULL,
+    window_start DATE NOT NULL,
+    window_end DATE NOT NULL,
+    origin_day DATE NOT NULL,
+    rebuilt_on DATE NOT NULL,
+    points INTEGER NOT NULL,
+    sum_x BIGINT NOT NULL,
+    sum_xx BIGINT NOT NULL,
+    sum_ctr DOUBLE PRECISION NOT NULL,
+    sum_x_ctr DOUBLE PRECISION NOT NULL,
+    sum_cpc DOUBLE PRECISION NOT NULL,
+    sum_x_cpc DOUBLE PRECISION NOT NULL,
+    clicks BIGINT NOT NULL,
+    impressions BIGINT NOT NULL,
+    cost DOUBLE PRECISION NOT NULL,
+    updated_at TIMESTAMP,
+    PRIMARY KEY (source, campaign_id)
+);
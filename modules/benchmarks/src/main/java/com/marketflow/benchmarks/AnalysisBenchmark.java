@@ -0,0 +1,75 @@
+package com.marketflow.benchmarks;
+
+import com.marketflow.strategy.model.AnalysisContext;
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.model.StrategyResult;
+import com.marketflow.strategy.service.InMemoryMetricsStore;
+import com.marketflow.strategy.service.MetricsAnalysisService;
+import com.marketflow.strategy.service.StrategyGenerationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аналитика MetricsAnalysisService и полный generateStrategy на синтетических наборах 10k-10M строк.
+ * Для 10M строк нужен heap от 2 ГБ (по умолчанию форк запускается с -Xmx4g).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AnalysisBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private MetricsSnapshot snapshot;
+    private MetricsAnalysisService analysisService;
+    private StrategyGenerationService strategyService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshot = SyntheticMetrics.snapshot(rows);
+        InMemoryMetricsStore store = new InMemoryMetricsStore(snapshot);
+        analysisService = new MetricsAnalysisService(store);
+        strategyService = new StrategyGenerationService(store, store);
+    }
+
+    @Benchmark
+    public AnalysisContext analyzeSnapshot() {
+        return analysisService.analyze(snapshot);
+    }
+
+    @Benchmark
+    public List<String> detectAnomaliesStreaming() {
+        return analysisService.detectAnomalies(SyntheticMetrics.DAYS);
+    }
+
+    @Benchmark
+    public List<CampaignAnalysis> analyzeCampaigns() {
+        return analysisService.analyzeCampaigns(snapshot, 7);
+    }
+
+    /**
+     * Полный путь одного источника: загрузка снимка, анализ, рекомендации, сохранение
+     */
+    @Benchmark
+    public StrategyResult generateStrategy() {
+        return strategyService.generateStrategy("yandex", SyntheticMetrics.DAYS);
+    }
+}
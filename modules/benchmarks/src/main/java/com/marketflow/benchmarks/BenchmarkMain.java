@@ -0,0 +1,42 @@
+package com.marketflow.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Точка входа benchmarks.jar: запускает JMH с параметрами по умолчанию для сравнения сборок.
+ * Если не указано иное, результаты пишутся в JSON (jmh-result.json в текущем каталоге)
+ * и включается профилировщик аллокаций gc. Любой параметр JMH можно переопределить аргументом,
+ * например: java -jar benchmarks.jar MetricsCalculatorBenchmark -rff build-42.json -p size=1000000
+ */
+public final class BenchmarkMain {
+
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Main.main(withDefaults(args));
+    }
+
+    static String[] withDefaults(String[] args) {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add(DEFAULT_RESULT_FILE);
+        }
+        if (!options.contains("-prof")) {
+            options.add("-prof");
+            options.add("gc");
+        }
+        return options.toArray(new String[0]);
+    }
+}
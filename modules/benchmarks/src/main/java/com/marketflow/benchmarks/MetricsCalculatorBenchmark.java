@@ -0,0 +1,78 @@
+package com.marketflow.benchmarks;
+
+import com.marketflow.strategy.util.MetricStatistics;
+import com.marketflow.strategy.util.MetricsCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Регрессия тренда, поиск выбросов и описательная статистика MetricsCalculator:
+ * примитивные массивы против List&lt;Double&gt;.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsCalculatorBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private final MetricsCalculator calculator = new MetricsCalculator();
+    private double[] values;
+    private List<Double> boxed;
+
+    @Setup
+    public void setUp() {
+        values = SyntheticMetrics.series(size);
+        boxed = new ArrayList<>(size);
+        for (double value : values) {
+            boxed.add(value);
+        }
+    }
+
+    @Benchmark
+    public double trendArray() {
+        return calculator.calculateTrend(values);
+    }
+
+    @Benchmark
+    public double trendList() {
+        return calculator.calculateTrend(boxed);
+    }
+
+    @Benchmark
+    public int[] outliersArray() {
+        return calculator.detectOutliers(values);
+    }
+
+    @Benchmark
+    public List<Integer> outliersList() {
+        return calculator.detectOutliers(boxed);
+    }
+
+    @Benchmark
+    public MetricStatistics describe() {
+        return calculator.describe(values);
+    }
+
+    @Benchmark
+    public double coefficientOfVariationList() {
+        return calculator.calculateCoefficientOfVariation(boxed);
+    }
+}
@@ -0,0 +1,70 @@
+package com.marketflow.benchmarks;
+
+import com.marketflow.strategy.model.AnalysisContext;
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.service.AnalysisPool;
+import com.marketflow.strategy.service.InMemoryMetricsStore;
+import com.marketflow.strategy.service.MetricsAnalysisService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Последовательный анализ снимка (parallelism = 1) против fork/join по кускам строк.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParallelAnalysisBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"1", "4", "8"})
+    public int parallelism;
+
+    private MetricsSnapshot snapshot;
+    private AnalysisPool analysisPool;
+    private MetricsAnalysisService analysisService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshot = SyntheticMetrics.snapshot(rows);
+        analysisPool = parallelism > 1 ? new AnalysisPool(parallelism, 262144) : null;
+        analysisService = new MetricsAnalysisService(new InMemoryMetricsStore(snapshot), analysisPool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (analysisPool != null) {
+            analysisPool.close();
+        }
+    }
+
+    @Benchmark
+    public AnalysisContext analyzeSnapshot() {
+        return analysisService.analyze(snapshot);
+    }
+
+    @Benchmark
+    public List<CampaignAnalysis> analyzeCampaigns() {
+        return analysisService.analyzeCampaigns(snapshot, 7);
+    }
+}
@@ -0,0 +1,56 @@
+package com.marketflow.benchmarks;
+
+import com.marketflow.strategy.model.StrategyType;
+import com.marketflow.strategy.util.RecommendationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация рекомендаций: стоимость одного вызова для каждого типа стратегии.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendationEngineBenchmark {
+
+    @Param({"CONVERSION_OPTIMIZATION", "REACH_EXPANSION", "COST_REDUCTION", "RETARGETING",
+            "AUDIENCE_SEGMENTATION", "CROSS_PLATFORM"})
+    public StrategyType strategyType;
+
+    private final RecommendationEngine engine = new RecommendationEngine();
+    private final Map<String, Double> metrics = new HashMap<>();
+    private final List<String> anomalies = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        metrics.put("yandex", 0.55);
+        metrics.put("ctr_trend", 0.12);
+        metrics.put("cpc_trend", -0.07);
+        for (int i = 0; i < 5; i++) {
+            anomalies.add("Аномально высокий CTR (12,50%) для источника yandex на дату 2025-06-0" + (i + 1));
+        }
+    }
+
+    @Benchmark
+    public List<String> generateRecommendations() {
+        return engine.generateRecommendations("yandex", strategyType, metrics, anomalies);
+    }
+}
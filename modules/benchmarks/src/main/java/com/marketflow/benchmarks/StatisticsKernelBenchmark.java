@@ -0,0 +1,85 @@
+package com.marketflow.benchmarks;
+
+import com.marketflow.strategy.util.MetricStatistics;
+import com.marketflow.strategy.util.MetricsCalculator;
+import com.marketflow.strategy.util.StatisticsKernel;
+import com.marketflow.strategy.util.StatisticsKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скалярные и векторные ядра MetricsCalculator на рядах от 1M значений.
+ * Форк запускается с --add-modules jdk.incubator.vector.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class StatisticsKernelBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private StatisticsKernel statisticsKernel;
+    private MetricsCalculator calculator;
+    private double[] values;
+    private double lowerBound;
+    private double upperBound;
+
+    @Setup
+    public void setUp() {
+        statisticsKernel = "vector".equals(kernel) ? StatisticsKernels.vector() : StatisticsKernels.scalar();
+        calculator = new MetricsCalculator(statisticsKernel);
+        values = SyntheticMetrics.series(size);
+        // Границы IQR, как в MetricsCalculator.detectOutliers
+        MetricStatistics stats = calculator.describe(values);
+        lowerBound = stats.getLowerFence();
+        upperBound = stats.getUpperFence();
+    }
+
+    @Benchmark
+    public double[] regressionSums() {
+        return statisticsKernel.regressionSums(values, 0, values.length);
+    }
+
+    @Benchmark
+    public double[] moments() {
+        return statisticsKernel.moments(values, 0, values.length);
+    }
+
+    @Benchmark
+    public double[] describeMoments() {
+        return statisticsKernel.describe(values, 0, values.length);
+    }
+
+    @Benchmark
+    public int[] outside() {
+        return statisticsKernel.outside(values, 0, values.length, lowerBound, upperBound);
+    }
+
+    @Benchmark
+    public double trend() {
+        return calculator.calculateTrend(values);
+    }
+
+    @Benchmark
+    public MetricStatistics describe() {
+        return calculator.describe(values);
+    }
+}
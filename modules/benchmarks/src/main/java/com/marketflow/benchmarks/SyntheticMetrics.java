@@ -0,0 +1,63 @@
+package com.marketflow.benchmarks;
+
+import com.marketflow.strategy.model.MetricsSnapshot;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Генератор синтетических метрик для бенчмарков: фиксированный seed, поэтому наборы одинаковы между сборками.
+ * Строки - дни x кампании, кампании распределены по трем источникам, часть дней содержит выбросы.
+ * Период заканчивается сегодняшним днем, чтобы снимок целиком попадал в запрос за {@link #DAYS} дней.
+ */
+public final class SyntheticMetrics {
+
+    public static final String[] SOURCES = {"yandex", "google", "vk"};
+    public static final int DAYS = 90;
+
+    private SyntheticMetrics() {
+    }
+
+    /**
+     * Снимок примерно из {@code rows} строк за {@link #DAYS} дней
+     */
+    public static MetricsSnapshot snapshot(int rows) {
+        int campaigns = Math.max(SOURCES.length, rows / DAYS);
+        LocalDate end = LocalDate.now();
+        LocalDate start = end.minusDays(DAYS - 1);
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(DAYS, start, end);
+        Random random = new Random(42);
+
+        String[] campaignIds = new String[campaigns];
+        for (int campaign = 0; campaign < campaigns; campaign++) {
+            campaignIds[campaign] = "c" + campaign;
+        }
+
+        for (int day = 0; day < DAYS; day++) {
+            LocalDate date = start.plusDays(day);
+            for (int campaign = 0; campaign < campaigns; campaign++) {
+                int impressions = 500 + random.nextInt(5000);
+                double ctr = 0.01 + random.nextDouble() * 0.04 + day * 0.0001;
+                if (random.nextInt(100) == 0) {
+                    ctr *= 5;
+                }
+                int clicks = (int) (impressions * ctr);
+                double cost = clicks * (5 + random.nextDouble() * 20);
+                builder.add(date, SOURCES[campaign % SOURCES.length], campaignIds[campaign], clicks, impressions, cost);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Ряд из {@code size} значений вокруг 10 с редкими выбросами
+     */
+    public static double[] series(int size) {
+        Random random = new Random(7);
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 10 + random.nextGaussian() + i * 1e-6 + (random.nextInt(200) == 0 ? 25 : 0);
+        }
+        return values;
+    }
+}
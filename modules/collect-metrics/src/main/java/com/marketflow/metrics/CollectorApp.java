@@ -1,33 +1,121 @@
 package com.marketflow.metrics;
 
+import com.marketflow.metrics.service.CollectorScheduler;
 import com.marketflow.metrics.service.CollectorService;
 import com.marketflow.metrics.config.CollectorConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 public class CollectorApp {
     private static final Logger log = LoggerFactory.getLogger(CollectorApp.class);
+    private static final String DAEMON_FLAG = "--daemon";
 
     public static void main(String[] args) {
         log.info("Starting MarketFlow Metrics Collector v{}", CollectorApp.class.getPackage().getImplementationVersion());
 
         // Загрузка конфигурации
         CollectorConfig config = CollectorConfig.fromEnv();
+        boolean daemon = config.isDaemon() || Arrays.asList(args).contains(DAEMON_FLAG);
+        String[] rangeArgs = Arrays.stream(args).filter(arg -> !DAEMON_FLAG.equals(arg)).toArray(String[]::new);
         log.info("Configuration loaded: {}", config);
 
-        try {
-            // Инициализация сервиса
-            CollectorService service = new CollectorService(config);
+        // Освобождается после закрытия сервиса: shutdown hook демона ждет его, чтобы JVM не завершилась раньше
+        CountDownLatch resourcesReleased = new CountDownLatch(1);
+        boolean failed = false;
 
-            // Запуск процесса сбора
-            int collected = service.collectAndStore();
-            log.info("Metrics collection completed. Collected {} metrics.", collected);
+        // Инициализация сервиса (пул соединений закрывается вместе с сервисом)
+        try (CollectorService service = new CollectorService(config)) {
+            if (daemon) {
+                if (rangeArgs.length > 0) {
+                    throw new IllegalArgumentException(DAEMON_FLAG + " cannot be combined with --from/--to");
+                }
+                runDaemon(service, config, resourcesReleased);
+            } else {
+                // Запуск процесса сбора: без аргументов - догрузка после водяных знаков,
+                // --from=YYYY-MM-DD [--to=YYYY-MM-DD] - явный диапазон для бэкфилла
+                int collected;
+                if (rangeArgs.length == 0) {
+                    collected = service.collectAndStore();
+                } else {
+                    LocalDate[] range = parseDateRange(rangeArgs, LocalDate.now());
+                    log.info("Collecting metrics for {} - {}", range[0], range[1]);
+                    collected = service.collectAndStore(range[0], range[1]);
+                }
+                log.info("Metrics collection completed. Collected {} metrics.", collected);
+            }
 
         } catch (Exception e) {
             log.error("Error during metrics collection", e);
-            System.exit(1);
+            failed = true;
+        } finally {
+            resourcesReleased.countDown();
         }
 
+        if (failed) {
+            System.exit(1);
+        }
         log.info("Metrics Collector job finished successfully");
     }
-}
\ No newline at end of file
+
+    /**
+     * Режим демона: один JVM, пул соединений и клиенты платформ живут между циклами сбора.
+     * Возвращает управление после SIGTERM/SIGINT, когда текущий цикл завершен или прерван.
+     */
+    private static void runDaemon(CollectorService service, CollectorConfig config,
+                                  CountDownLatch resourcesReleased) throws InterruptedException {
+        Duration grace = Duration.ofSeconds(config.getShutdownGraceSeconds());
+        CollectorScheduler scheduler = new CollectorScheduler(service::collectAndStore,
+                Duration.ofSeconds(config.getCollectIntervalSeconds()), grace);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("Shutdown signal received, stopping collector daemon");
+            try {
+                scheduler.close();
+                // Ждем, пока основной поток закроет сервис и пул соединений
+                resourcesReleased.await(grace.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "collector-shutdown"));
+
+        scheduler.start();
+        scheduler.awaitStop();
+    }
+
+    /**
+     * Разбирает аргументы --from / --to. Если указан только --from, сбор идет до today включительно
+     * @return массив из двух дат: начало и конец диапазона
+     */
+    static LocalDate[] parseDateRange(String[] args, LocalDate today) {
+        LocalDate from = null;
+        LocalDate to = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--from=")) {
+                from = LocalDate.parse(arg.substring("--from=".length()));
+            } else if (arg.startsWith("--to=")) {
+                to = LocalDate.parse(arg.substring("--to=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        if (to == null) {
+            to = today;
+        }
+        if (from == null) {
+            from = to;
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("--from " + from + " is after --to " + to);
+        }
+
+        return new LocalDate[]{from, to};
+    }
+}
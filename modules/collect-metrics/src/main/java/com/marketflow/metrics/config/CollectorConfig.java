@@ -1,8 +1,13 @@
 package com.marketflow.metrics.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CollectorConfig {
     private String dbUrl;
@@ -10,6 +15,39 @@ public class CollectorConfig {
     private String dbPass;
     private List<String> platforms;
 
+    // Пул соединений и пакетная запись
+    private int dbPoolSize = 4;
+    private int batchSize = 1000;
+    private int queueCapacity = 10_000;
+    private WriteMode writeMode = WriteMode.BATCH;
+
+    // Инкрементальный сбор: сколько дней назад максимум догружать после простоя
+    private int catchUpMaxDays = 31;
+
+    // Режим демона: период циклов сбора и ожидание текущего цикла при остановке
+    private boolean daemon = false;
+    private int collectIntervalSeconds = 900;
+    private int shutdownGraceSeconds = 60;
+
+    // Каталог отчета о запуске (JSON и Prometheus); пустое значение отключает отчет
+    private String metricsOutputDir = "logs/metrics";
+
+    // API платформ: URL, токен и таймаут опроса по коду платформы
+    private final Map<String, String> platformUrls = new HashMap<>();
+    private final Map<String, String> platformTokens = new HashMap<>();
+    private final Map<String, Long> platformTimeoutsMs = new HashMap<>();
+    private long defaultPlatformTimeoutMs = 30_000;
+
+    // Общий HTTP-клиент платформ: лимит запросов, повторы и circuit breaker
+    private final Map<String, Integer> platformRateLimitsRps = new HashMap<>();
+    private int defaultRateLimitRps = 10;
+    private int httpMaxConnections = 20;
+    private int httpMaxRetries = 3;
+    private int httpRetryBaseMs = 200;
+    private int httpRetryMaxMs = 10_000;
+    private int circuitFailureThreshold = 5;
+    private int circuitOpenSeconds = 30;
+
     // Конструктор по умолчанию
     public CollectorConfig() {
         this.platforms = Collections.emptyList();
@@ -25,11 +63,46 @@ public class CollectorConfig {
         config.setDbUrl(getEnv("DB_URL", "jdbc:postgresql://localhost:5432/marketflow"));
         config.setDbUser(getEnv("DB_USER", "mf_user"));
         config.setDbPass(getEnv("DB_PASS", "mf_pass"));
+        config.setDbPoolSize(getIntEnv("DB_POOL_SIZE", config.getDbPoolSize()));
+        config.setBatchSize(getIntEnv("BATCH_SIZE", config.getBatchSize()));
+        config.setQueueCapacity(getIntEnv("QUEUE_CAPACITY", config.getQueueCapacity()));
+        config.setWriteMode(WriteMode.fromString(getEnv("WRITE_MODE", config.getWriteMode().name())));
+        config.setCatchUpMaxDays(getIntEnv("CATCH_UP_MAX_DAYS", config.getCatchUpMaxDays()));
+        config.setDaemon(Boolean.parseBoolean(getEnv("COLLECTOR_DAEMON", String.valueOf(config.isDaemon()))));
+        config.setCollectIntervalSeconds(getIntEnv("COLLECT_INTERVAL_SECONDS", config.getCollectIntervalSeconds()));
+        config.setShutdownGraceSeconds(getIntEnv("SHUTDOWN_GRACE_SECONDS", config.getShutdownGraceSeconds()));
+        String metricsDir = System.getenv("METRICS_OUTPUT_DIR");
+        if (metricsDir != null) {
+            config.setMetricsOutputDir(metricsDir);
+        }
 
         // Platforms
         String platformsStr = getEnv("PLATFORMS", "yandex,google,vk");
         config.setPlatforms(Arrays.asList(platformsStr.split(",")));
 
+        // API платформ: YANDEX_API_URL, YANDEX_API_TOKEN, YANDEX_TIMEOUT_MS, YANDEX_RATE_LIMIT_RPS и т.д.
+        config.setDefaultPlatformTimeoutMs(getIntEnv("PLATFORM_TIMEOUT_MS", (int) config.getDefaultPlatformTimeoutMs()));
+        config.setDefaultRateLimitRps(getIntEnv("RATE_LIMIT_RPS", config.getDefaultRateLimitRps()));
+        config.setHttpMaxConnections(getIntEnv("HTTP_MAX_CONNECTIONS", config.getHttpMaxConnections()));
+        config.setHttpMaxRetries(getIntEnv("HTTP_MAX_RETRIES", config.getHttpMaxRetries()));
+        config.setHttpRetryBaseMs(getIntEnv("HTTP_RETRY_BASE_MS", config.getHttpRetryBaseMs()));
+        config.setHttpRetryMaxMs(getIntEnv("HTTP_RETRY_MAX_MS", config.getHttpRetryMaxMs()));
+        config.setCircuitFailureThreshold(getIntEnv("CIRCUIT_FAILURE_THRESHOLD", config.getCircuitFailureThreshold()));
+        config.setCircuitOpenSeconds(getIntEnv("CIRCUIT_OPEN_SECONDS", config.getCircuitOpenSeconds()));
+        for (String platform : config.getPlatforms()) {
+            String prefix = platform.trim().toUpperCase();
+            config.setPlatformUrl(platform.trim(), System.getenv(prefix + "_API_URL"));
+            config.setPlatformToken(platform.trim(), System.getenv(prefix + "_API_TOKEN"));
+            int timeoutMs = getIntEnv(prefix + "_TIMEOUT_MS", -1);
+            if (timeoutMs > 0) {
+                config.setPlatformTimeoutMs(platform.trim(), timeoutMs);
+            }
+            int rateLimitRps = getIntEnv(prefix + "_RATE_LIMIT_RPS", -1);
+            if (rateLimitRps > 0) {
+                config.setPlatformRateLimitRps(platform.trim(), rateLimitRps);
+            }
+        }
+
         return config;
     }
 
@@ -38,6 +111,35 @@ public class CollectorConfig {
         return (value != null && !value.isEmpty()) ? value : defaultValue;
     }
 
+    private static int getIntEnv(String key, int defaultValue) {
+        String value = System.getenv(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Создает пул соединений с БД.
+     * reWriteBatchedInserts позволяет драйверу PostgreSQL склеивать пакет INSERT в многострочные запросы.
+     */
+    public HikariDataSource createDataSource() {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("collector-pool");
+        hikariConfig.setJdbcUrl(dbUrl);
+        hikariConfig.setUsername(dbUser);
+        hikariConfig.setPassword(dbPass);
+        hikariConfig.setMaximumPoolSize(dbPoolSize);
+        hikariConfig.setMinimumIdle(1);
+        hikariConfig.setAutoCommit(false);
+        hikariConfig.addDataSourceProperty("reWriteBatchedInserts", "true");
+        return new HikariDataSource(hikariConfig);
+    }
+
     // Геттеры и сеттеры
 
     public String getDbUrl() {
@@ -72,6 +174,178 @@ public class CollectorConfig {
         this.platforms = platforms;
     }
 
+    public int getDbPoolSize() {
+        return dbPoolSize;
+    }
+
+    public void setDbPoolSize(int dbPoolSize) {
+        this.dbPoolSize = dbPoolSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public String getPlatformUrl(String platform) {
+        return platformUrls.get(platform);
+    }
+
+    public void setPlatformUrl(String platform, String url) {
+        if (url != null && !url.isEmpty()) {
+            platformUrls.put(platform, url);
+        }
+    }
+
+    public String getPlatformToken(String platform) {
+        return platformTokens.get(platform);
+    }
+
+    public void setPlatformToken(String platform, String token) {
+        if (token != null && !token.isEmpty()) {
+            platformTokens.put(platform, token);
+        }
+    }
+
+    public long getPlatformTimeoutMs(String platform) {
+        return platformTimeoutsMs.getOrDefault(platform, defaultPlatformTimeoutMs);
+    }
+
+    public void setPlatformTimeoutMs(String platform, long timeoutMs) {
+        platformTimeoutsMs.put(platform, timeoutMs);
+    }
+
+    public long getDefaultPlatformTimeoutMs() {
+        return defaultPlatformTimeoutMs;
+    }
+
+    public void setDefaultPlatformTimeoutMs(long defaultPlatformTimeoutMs) {
+        this.defaultPlatformTimeoutMs = defaultPlatformTimeoutMs;
+    }
+
+    public String getMetricsOutputDir() {
+        return metricsOutputDir;
+    }
+
+    public void setMetricsOutputDir(String metricsOutputDir) {
+        this.metricsOutputDir = metricsOutputDir;
+    }
+
+    public int getPlatformRateLimitRps(String platform) {
+        return platformRateLimitsRps.getOrDefault(platform, defaultRateLimitRps);
+    }
+
+    public void setPlatformRateLimitRps(String platform, int rps) {
+        platformRateLimitsRps.put(platform, rps);
+    }
+
+    public int getDefaultRateLimitRps() {
+        return defaultRateLimitRps;
+    }
+
+    public void setDefaultRateLimitRps(int defaultRateLimitRps) {
+        this.defaultRateLimitRps = defaultRateLimitRps;
+    }
+
+    public int getHttpMaxConnections() {
+        return httpMaxConnections;
+    }
+
+    public void setHttpMaxConnections(int httpMaxConnections) {
+        this.httpMaxConnections = httpMaxConnections;
+    }
+
+    public int getHttpMaxRetries() {
+        return httpMaxRetries;
+    }
+
+    public void setHttpMaxRetries(int httpMaxRetries) {
+        this.httpMaxRetries = httpMaxRetries;
+    }
+
+    public int getHttpRetryBaseMs() {
+        return httpRetryBaseMs;
+    }
+
+    public void setHttpRetryBaseMs(int httpRetryBaseMs) {
+        this.httpRetryBaseMs = httpRetryBaseMs;
+    }
+
+    public int getHttpRetryMaxMs() {
+        return httpRetryMaxMs;
+    }
+
+    public void setHttpRetryMaxMs(int httpRetryMaxMs) {
+        this.httpRetryMaxMs = httpRetryMaxMs;
+    }
+
+    public int getCircuitFailureThreshold() {
+        return circuitFailureThreshold;
+    }
+
+    public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+        this.circuitFailureThreshold = circuitFailureThreshold;
+    }
+
+    public int getCircuitOpenSeconds() {
+        return circuitOpenSeconds;
+    }
+
+    public void setCircuitOpenSeconds(int circuitOpenSeconds) {
+        this.circuitOpenSeconds = circuitOpenSeconds;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    public void setWriteMode(WriteMode writeMode) {
+        this.writeMode = writeMode;
+    }
+
+    public int getCatchUpMaxDays() {
+        return catchUpMaxDays;
+    }
+
+    public void setCatchUpMaxDays(int catchUpMaxDays) {
+        this.catchUpMaxDays = catchUpMaxDays;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public void setDaemon(boolean daemon) {
+        this.daemon = daemon;
+    }
+
+    public int getCollectIntervalSeconds() {
+        return collectIntervalSeconds;
+    }
+
+    public void setCollectIntervalSeconds(int collectIntervalSeconds) {
+        this.collectIntervalSeconds = collectIntervalSeconds;
+    }
+
+    public int getShutdownGraceSeconds() {
+        return shutdownGraceSeconds;
+    }
+
+    public void setShutdownGraceSeconds(int shutdownGraceSeconds) {
+        this.shutdownGraceSeconds = shutdownGraceSeconds;
+    }
+
     @Override
     public String toString() {
         return "CollectorConfig{" +
@@ -79,6 +353,21 @@ public class CollectorConfig {
                 ", dbUser='" + dbUser + '\'' +
                 ", dbPass='***'" +
                 ", platforms=" + platforms +
+                ", dbPoolSize=" + dbPoolSize +
+                ", batchSize=" + batchSize +
+                ", queueCapacity=" + queueCapacity +
+                ", writeMode=" + writeMode +
+                ", catchUpMaxDays=" + catchUpMaxDays +
+                ", daemon=" + daemon +
+                ", collectIntervalSeconds=" + collectIntervalSeconds +
+                ", metricsOutputDir='" + metricsOutputDir + '\'' +
+                ", platformUrls=" + platformUrls +
+                ", platformTimeoutsMs=" + platformTimeoutsMs +
+                ", defaultPlatformTimeoutMs=" + defaultPlatformTimeoutMs +
+                ", platformRateLimitsRps=" + platformRateLimitsRps +
+                ", defaultRateLimitRps=" + defaultRateLimitRps +
+                ", httpMaxRetries=" + httpMaxRetries +
+                ", circuitFailureThreshold=" + circuitFailureThreshold +
                 '}';
     }
 }
\ No newline at end of file
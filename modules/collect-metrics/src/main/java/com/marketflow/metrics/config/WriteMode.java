@@ -0,0 +1,15 @@
+package com.marketflow.metrics.config;
+
+/**
+ * Режим записи метрик в БД.
+ */
+public enum WriteMode {
+    /** Пакетные INSERT через addBatch/executeBatch */
+    BATCH,
+    /** Потоковая загрузка через COPY FROM STDIN (для бэкфиллов) */
+    COPY;
+
+    public static WriteMode fromString(String value) {
+        return WriteMode.valueOf(value.trim().toUpperCase());
+    }
+}
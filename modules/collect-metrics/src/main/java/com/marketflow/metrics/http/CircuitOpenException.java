@@ -0,0 +1,13 @@
+package com.marketflow.metrics.http;
+
+import java.io.IOException;
+
+/**
+ * Запрос не отправлен: цепь платформы открыта после серии ошибок
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String platform) {
+        super("Circuit breaker is open for platform " + platform);
+    }
+}
@@ -0,0 +1,301 @@
+package com.marketflow.metrics.http;
+
+import com.marketflow.metrics.instrumentation.LatencyHistogram;
+import org.apache.hc.client5.http.HttpResponseException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общий HTTP-клиент коллекторов платформ на асинхронном httpclient5 с пулом соединений.
+ * Для каждой платформы действует своя политика: token bucket, повторы с экспоненциальной
+ * задержкой и джиттером (с учетом Retry-After), circuit breaker и гистограмма задержек.
+ * Ожидание лимита и пауз между повторами не занимает потоков: попытки планируются по таймеру.
+ */
+public class PlatformHttpClient implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PlatformHttpClient.class);
+
+    private final CloseableHttpAsyncClient client;
+    private final ScheduledExecutorService timer;
+    private final Map<String, PlatformPolicy> policies = new ConcurrentHashMap<>();
+
+    public PlatformHttpClient(int maxConnections, Duration connectTimeout) {
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(connectTimeout))
+                                .build())
+                        .build())
+                // Таймауты проверяются раз в интервал select; по умолчанию он 1 с - слишком грубо
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setSelectInterval(TimeValue.ofMilliseconds(100))
+                        .build())
+                // Повторами управляет политика платформы, встроенные отключены
+                .disableAutomaticRetries()
+                .build();
+        this.client.start();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "platform-http-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void registerPlatform(String platform, PlatformPolicy policy) {
+        policies.put(platform, policy);
+    }
+
+    /**
+     * GET с ожиданием результата: для коллекторов, опрашивающих платформу в своем потоке.
+     * Прерывание потока отменяет запрос и оставшиеся повторы.
+     * @return тело успешного (2xx) ответа, пустое если тела нет
+     */
+    public byte[] get(String platform, String uri, String bearerToken) throws IOException, InterruptedException {
+        CompletableFuture<byte[]> future = getAsync(platform, uri, bearerToken);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Асинхронный GET с лимитом, повторами и circuit breaker платформы
+     */
+    public CompletableFuture<byte[]> getAsync(String platform, String uri, String bearerToken) {
+        PlatformPolicy policy = policies.get(platform);
+        if (policy == null) {
+            throw new IllegalArgumentException("Platform is not registered: " + platform);
+        }
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        attempt(new Call(platform, uri, bearerToken, policy, result), 1);
+        return result;
+    }
+
+    private void attempt(Call call, int attempt) {
+        if (call.result.isDone()) {
+            return;
+        }
+        if (!call.policy.getCircuitBreaker().allowRequest()) {
+            call.policy.recordCircuitRejected();
+            fail(call, new CircuitOpenException(call.platform));
+            return;
+        }
+
+        long waitNanos = call.policy.getRateLimiter().reserve();
+        if (waitNanos > 0) {
+            log.debug("{} rate limit reached, request delayed by {} ms",
+                    call.platform, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            try {
+                timer.schedule(() -> send(call, attempt), waitNanos, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                // Клиент закрыт
+                call.policy.getCircuitBreaker().releaseTrial();
+                fail(call, e);
+            }
+        } else {
+            send(call, attempt);
+        }
+    }
+
+    private void send(Call call, int attempt) {
+        if (call.result.isDone()) {
+            // Отменен во время ожидания лимита: разрешение цепи не использовано
+            call.policy.getCircuitBreaker().releaseTrial();
+            return;
+        }
+        Timeout timeout = Timeout.of(call.policy.getTimeout());
+        SimpleRequestBuilder builder = SimpleRequestBuilder.get(call.uri);
+        if (call.bearerToken != null && !call.bearerToken.isEmpty()) {
+            builder.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + call.bearerToken);
+        }
+        SimpleHttpRequest request = builder.build();
+        request.setConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout)
+                .setResponseTimeout(timeout)
+                .build());
+
+        long startNanos = System.nanoTime();
+        client.execute(request, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                call.policy.getLatency().record(System.nanoTime() - startNanos);
+                onResponse(call, attempt, response);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                call.policy.getLatency().record(System.nanoTime() - startNanos);
+                call.policy.getCircuitBreaker().recordFailure();
+                retryOrFail(call, attempt, e, -1);
+            }
+
+            @Override
+            public void cancelled() {
+                call.policy.getCircuitBreaker().releaseTrial();
+                call.result.cancel(false);
+            }
+        });
+    }
+
+    private void onResponse(Call call, int attempt, SimpleHttpResponse response) {
+        int status = response.getCode();
+        if (status / 100 == 2) {
+            call.policy.getCircuitBreaker().recordSuccess();
+            byte[] body = response.getBodyBytes();
+            call.result.complete(body != null ? body : new byte[0]);
+            return;
+        }
+
+        HttpResponseException error = new HttpResponseException(status, response.getReasonPhrase());
+        if (!call.policy.getRetryPolicy().isRetryable(status)) {
+            if (status >= 500) {
+                // 500, 501, 505...: платформа отвечает, но не работает - повтор бесполезен, цепь считает ошибку
+                call.policy.getCircuitBreaker().recordFailure();
+            } else if (status >= 400) {
+                // 4xx кроме 429 - ошибка запроса, а не недоступность платформы: цепь не открываем
+                call.policy.getCircuitBreaker().recordSuccess();
+            } else {
+                // 1xx/3xx ничего не говорят о доступности: пробное разрешение полуоткрытой цепи возвращается
+                call.policy.getCircuitBreaker().releaseTrial();
+            }
+            fail(call, error);
+            return;
+        }
+        if (status == 429) {
+            call.policy.recordThrottled();
+        }
+        call.policy.getCircuitBreaker().recordFailure();
+        retryOrFail(call, attempt, error, retryAfterMs(response));
+    }
+
+    private void retryOrFail(Call call, int attempt, Exception error, long retryAfterMs) {
+        RetryPolicy retry = call.policy.getRetryPolicy();
+        if (attempt >= retry.getMaxAttempts() || !retry.isRetryable(error)) {
+            fail(call, error);
+            return;
+        }
+        call.policy.recordRetry();
+        long delayMs = retry.delayMs(attempt, retryAfterMs);
+        log.warn("{} request failed ({}), retry {} of {} in {} ms", call.platform, error.getMessage(),
+                attempt, retry.getMaxAttempts() - 1, delayMs);
+        try {
+            timer.schedule(() -> attempt(call, attempt + 1), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Клиент закрыт
+            fail(call, error);
+        }
+    }
+
+    private static void fail(Call call, Exception error) {
+        call.policy.recordFailure();
+        call.result.completeExceptionally(error);
+    }
+
+    /**
+     * Retry-After в секундах или HTTP-дате; -1 если заголовка нет или он не разобран
+     */
+    static long retryAfterMs(SimpleHttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0, Long.parseLong(value)) * 1000;
+        } catch (NumberFormatException e) {
+            Instant date = DateUtils.parseStandardDate(value);
+            return date == null ? -1 : Math.max(0, Duration.between(Instant.now(), date).toMillis());
+        }
+    }
+
+    /**
+     * Гистограммы задержек запросов по платформам
+     */
+    public Map<String, LatencyHistogram> getLatencyHistograms() {
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        policies.forEach((platform, policy) -> histograms.put(platform, policy.getLatency()));
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    public PlatformPolicy getPolicy(String platform) {
+        return policies.get(platform);
+    }
+
+    /**
+     * Политики платформ со счетчиками и гистограммами, для отчета о запуске
+     */
+    public Map<String, PlatformPolicy> getPolicies() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(policies));
+    }
+
+    /**
+     * Обнуляет статистику всех платформ перед новым запуском
+     */
+    public void resetStats() {
+        policies.values().forEach(PlatformPolicy::resetStats);
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    private static final class Call {
+        private final String platform;
+        private final String uri;
+        private final String bearerToken;
+        private final PlatformPolicy policy;
+        private final CompletableFuture<byte[]> result;
+
+        Call(String platform, String uri, String bearerToken, PlatformPolicy policy,
+             CompletableFuture<byte[]> result) {
+            this.platform = platform;
+            this.uri = uri;
+            this.bearerToken = bearerToken;
+            this.policy = policy;
+            this.result = result;
+        }
+    }
+}
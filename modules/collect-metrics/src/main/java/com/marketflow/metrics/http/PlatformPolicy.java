@@ -0,0 +1,117 @@
+package com.marketflow.metrics.http;
+
+import com.marketflow.metrics.instrumentation.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Настройки и состояние доступа к API одной платформы: таймаут, лимит, повторы, цепь и задержки
+ */
+public class PlatformPolicy {
+
+    private final Duration timeout;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // Счетчики исходов запросов с последнего resetStats()
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder circuitRejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public PlatformPolicy(Duration timeout, TokenBucketRateLimiter rateLimiter,
+                          RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this.timeout = timeout;
+        this.rateLimiter = rateLimiter;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Политика по умолчанию: 10 запросов в секунду, 4 попытки, цепь открывается после 5 ошибок на 30 секунд
+     */
+    public static PlatformPolicy defaults(Duration timeout) {
+        return new PlatformPolicy(timeout,
+                new TokenBucketRateLimiter(10, 10),
+                new RetryPolicy(4, Duration.ofMillis(200), Duration.ofSeconds(10)),
+                new CircuitBreaker(5, Duration.ofSeconds(30)));
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public TokenBucketRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Повторные попытки после ошибки или троттлинга
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Ответы 429 Too Many Requests
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * Запросы, не отправленные из-за открытой цепи
+     */
+    public long getCircuitRejected() {
+        return circuitRejected.sum();
+    }
+
+    /**
+     * Запросы, завершившиеся ошибкой после всех попыток
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordThrottled() {
+        throttled.increment();
+    }
+
+    void recordCircuitRejected() {
+        circuitRejected.increment();
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * Обнуляет гистограмму и счетчики перед новым запуском сбора (состояние цепи не трогает)
+     */
+    public void resetStats() {
+        latency.reset();
+        retries.reset();
+        throttled.reset();
+        circuitRejected.reset();
+        failures.reset();
+    }
+}
@@ -0,0 +1,58 @@
+package com.marketflow.metrics.http;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Повторы с экспоненциальной задержкой и полным джиттером: пауза случайна в [0, min(max, base * 2^n)],
+ * чтобы потоки разных платформ и запусков не повторяли запросы синхронно.
+ * Retry-After от платформы имеет приоритет над расчетной паузой, но не больше максимальной паузы.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelay.toMillis();
+        this.maxDelayMs = maxDelay.toMillis();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Троттлинг и временные ошибки сервера
+     */
+    public boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Сетевые ошибки и таймауты; открытая цепь не повторяется
+     */
+    public boolean isRetryable(Throwable error) {
+        return error instanceof IOException && !(error instanceof CircuitOpenException);
+    }
+
+    /**
+     * @param attempt номер неудачной попытки, с 1
+     * @param retryAfterMs пауза из заголовка Retry-After или -1
+     * @return пауза перед следующей попыткой
+     */
+    public long delayMs(int attempt, long retryAfterMs) {
+        if (retryAfterMs >= 0) {
+            // Ошибочный или чрезмерный заголовок не должен останавливать поток сбора надолго
+            return Math.min(retryAfterMs, maxDelayMs);
+        }
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
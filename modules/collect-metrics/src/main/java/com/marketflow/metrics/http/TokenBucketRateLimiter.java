@@ -0,0 +1,51 @@
+package com.marketflow.metrics.http;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket с резервированием: каждый запрос забирает токен сразу, а при пустом ведре
+ * получает время ожидания до своего токена. Так конкурентные запросы платформы
+ * выстраиваются в очередь без блокировки потоков.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond средняя скорость запросов
+     * @param burst сколько запросов можно отправить подряд после простоя
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive: " + permitsPerSecond + ", " + burst);
+        }
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.capacity = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Резервирует один запрос
+     * @return сколько наносекунд подождать перед отправкой (0 - можно сразу)
+     */
+    public synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+
+        // Токены могут уйти в минус: это долг уже выстроившихся в очередь запросов
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+    }
+}
@@ -0,0 +1,124 @@
+package com.marketflow.metrics.instrumentation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики одного запуска сборщика: таймеры стадий, строки по платформам, задержки пакетов БД
+ * и счетчики ошибок. Пишутся из потоков коллекторов и writer-а без блокировок,
+ * перед каждым запуском обнуляются.
+ */
+public class CollectorMetrics {
+
+    public static final String STAGE_FETCH = "fetch";
+    public static final String STAGE_TRANSFORM = "transform";
+    public static final String STAGE_QUEUE_WAIT = "queue_wait";
+    public static final String STAGE_WRITE = "write";
+    public static final String STAGE_COMMIT = "commit";
+
+    public static final String ERROR_PLATFORM_FAILURE = "platform_failure";
+    public static final String ERROR_DB_ROLLBACK = "db_rollback";
+
+    /** Метка платформы для стадий и ошибок, не относящихся к одной платформе */
+    public static final String ALL_PLATFORMS = "";
+
+    // стадия -> платформа -> таймер
+    private final Map<String, Map<String, Timer>> stages = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> rowsByPlatform = new ConcurrentHashMap<>();
+    // вид ошибки -> платформа -> количество
+    private final Map<String, Map<String, LongAdder>> errors = new ConcurrentHashMap<>();
+    private final LatencyHistogram dbBatchLatency = new LatencyHistogram();
+
+    public void recordStage(String stage, String platform, long nanos) {
+        stages.computeIfAbsent(stage, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(platform, key -> new Timer())
+                .record(nanos);
+    }
+
+    public void addRows(String platform, long rows) {
+        rowsByPlatform.computeIfAbsent(platform, key -> new LongAdder()).add(rows);
+    }
+
+    public void incrementError(String kind, String platform) {
+        errors.computeIfAbsent(kind, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(platform, key -> new LongAdder())
+                .increment();
+    }
+
+    public void recordDbBatch(long nanos) {
+        dbBatchLatency.record(nanos);
+    }
+
+    /**
+     * Обнуление перед новым запуском; вызывается, когда запуск не идет
+     */
+    public void reset() {
+        stages.clear();
+        rowsByPlatform.clear();
+        errors.clear();
+        dbBatchLatency.reset();
+    }
+
+    /**
+     * @return стадия -> платформа -> таймер, отсортировано для стабильного отчета
+     */
+    public Map<String, Map<String, Timer>> getStages() {
+        Map<String, Map<String, Timer>> snapshot = new TreeMap<>();
+        stages.forEach((stage, timers) -> snapshot.put(stage, new TreeMap<>(timers)));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    public Map<String, Long> getRowsByPlatform() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        rowsByPlatform.forEach((platform, rows) -> snapshot.put(platform, rows.sum()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * @return вид ошибки -> платформа -> количество
+     */
+    public Map<String, Map<String, Long>> getErrors() {
+        Map<String, Map<String, Long>> snapshot = new TreeMap<>();
+        errors.forEach((kind, byPlatform) -> {
+            Map<String, Long> counts = new TreeMap<>();
+            byPlatform.forEach((platform, count) -> counts.put(platform, count.sum()));
+            snapshot.put(kind, counts);
+        });
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    public LatencyHistogram getDbBatchLatency() {
+        return dbBatchLatency;
+    }
+
+    /**
+     * Суммарное время, количество и максимум замеров стадии
+     */
+    public static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+    }
+}
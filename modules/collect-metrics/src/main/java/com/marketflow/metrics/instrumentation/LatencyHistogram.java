@@ -0,0 +1,107 @@
+package com.marketflow.metrics.instrumentation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек (HTTP-запросы, пакеты БД) с фиксированными границами корзин (мс).
+ * Запись без блокировок, перцентили - по верхней границе корзины.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000};
+
+    // Последняя корзина - все, что больше последней границы
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS_MS.length && millis > BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1_000_000d / n;
+    }
+
+    /**
+     * @param quantile от 0 до 1
+     * @return верхняя граница корзины, в которую попадает перцентиль; Long.MAX_VALUE для последней корзины
+     */
+    public long percentileMillis(double quantile) {
+        long total = 0;
+        long[] snapshot = getBucketCounts();
+        for (long c : snapshot) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i < BOUNDS_MS.length ? BOUNDS_MS[i] : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Верхние границы корзин в мс (без последней, бесконечной)
+     */
+    public static long[] getBucketBoundsMillis() {
+        return BOUNDS_MS.clone();
+    }
+
+    /**
+     * Количество запросов по корзинам, последний элемент - больше последней границы
+     */
+    public long[] getBucketCounts() {
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Обнуление перед новым запуском; вызывается, когда записи не идут
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1f ms, p50<=%s, p95<=%s, p99<=%s",
+                getCount(), getMeanMillis(), bound(percentileMillis(0.5)),
+                bound(percentileMillis(0.95)), bound(percentileMillis(0.99)));
+    }
+
+    private static String bound(long millis) {
+        return millis == Long.MAX_VALUE ? "inf" : millis + " ms";
+    }
+}
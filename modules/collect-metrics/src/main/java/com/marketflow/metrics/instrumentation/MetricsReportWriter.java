@@ -0,0 +1,222 @@
+package com.marketflow.metrics.instrumentation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.marketflow.metrics.instrumentation.CollectorMetrics.Timer;
+import com.marketflow.metrics.instrumentation.RunSummary.HttpStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Пишет итог запуска в JSON и текстовый формат Prometheus (для textfile collector node_exporter).
+ * Файлы заменяются атомарно, читатель никогда не видит недописанный отчет.
+ */
+public class MetricsReportWriter {
+    private static final Logger log = LoggerFactory.getLogger(MetricsReportWriter.class);
+
+    public static final String JSON_FILE = "collector-run.json";
+    public static final String PROMETHEUS_FILE = "collector-run.prom";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final String PREFIX = "marketflow_collector_";
+
+    private final Path directory;
+    private final String version;
+
+    public MetricsReportWriter(Path directory, String version) {
+        this.directory = directory;
+        this.version = version != null ? version : "dev";
+    }
+
+    public void write(RunSummary summary) throws IOException {
+        Files.createDirectories(directory);
+        replace(directory.resolve(JSON_FILE), toJson(summary));
+        replace(directory.resolve(PROMETHEUS_FILE), toPrometheus(summary));
+        log.info("Run metrics written to {}", directory.toAbsolutePath());
+    }
+
+    private static void replace(Path target, String content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    String toJson(RunSummary summary) throws IOException {
+        CollectorMetrics metrics = summary.getMetrics();
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("version", version);
+        root.put("mode", summary.getMode());
+        root.put("range", summary.getRange());
+        root.put("started_at", summary.getStartedAt().toString());
+        root.put("duration_ms", millis(summary.getDurationNanos()));
+        root.put("status", summary.isSuccess() ? "success" : "failed");
+        if (summary.getError() != null) {
+            root.put("error", summary.getError());
+        }
+        root.put("written_rows", summary.getWrittenRows());
+        root.put("db_batches", summary.getDbBatches());
+
+        ObjectNode rows = root.putObject("rows_by_platform");
+        metrics.getRowsByPlatform().forEach(rows::put);
+
+        ObjectNode stages = root.putObject("stages");
+        for (Map.Entry<String, Map<String, Timer>> stage : metrics.getStages().entrySet()) {
+            ObjectNode byPlatform = stages.putObject(stage.getKey());
+            stage.getValue().forEach((platform, timer) -> {
+                ObjectNode node = byPlatform.putObject(platform.isEmpty() ? "all" : platform);
+                node.put("count", timer.getCount());
+                node.put("total_ms", millis(timer.getTotalNanos()));
+                node.put("max_ms", millis(timer.getMaxNanos()));
+            });
+        }
+
+        histogramJson(root.putObject("db_batch_latency"), metrics.getDbBatchLatency());
+
+        ObjectNode http = root.putObject("http");
+        summary.getHttpByPlatform().forEach((platform, stats) -> {
+            ObjectNode node = http.putObject(platform);
+            node.put("retries", stats.getRetries());
+            node.put("throttled", stats.getThrottled());
+            node.put("circuit_rejected", stats.getCircuitRejected());
+            node.put("failures", stats.getFailures());
+            node.put("circuit_state", stats.getCircuitState());
+            histogramJson(node.putObject("latency"), stats.getLatency());
+        });
+
+        ObjectNode errors = root.putObject("errors");
+        metrics.getErrors().forEach((kind, byPlatform) -> {
+            ObjectNode node = errors.putObject(kind);
+            byPlatform.forEach((platform, count) -> node.put(platform.isEmpty() ? "all" : platform, count));
+        });
+
+        return MAPPER.writeValueAsString(root);
+    }
+
+    private static void histogramJson(ObjectNode node, LatencyHistogram histogram) {
+        node.put("count", histogram.getCount());
+        node.put("mean_ms", histogram.getMeanMillis());
+        node.put("p50_ms", histogram.percentileMillis(0.5));
+        node.put("p95_ms", histogram.percentileMillis(0.95));
+        node.put("p99_ms", histogram.percentileMillis(0.99));
+        ObjectNode buckets = node.putObject("buckets");
+        long[] bounds = LatencyHistogram.getBucketBoundsMillis();
+        long[] counts = histogram.getBucketCounts();
+        for (int i = 0; i < counts.length; i++) {
+            buckets.put(i < bounds.length ? "le_" + bounds[i] + "ms" : "inf", counts[i]);
+        }
+    }
+
+    String toPrometheus(RunSummary summary) {
+        CollectorMetrics metrics = summary.getMetrics();
+        StringBuilder out = new StringBuilder();
+
+        gauge(out, "run_timestamp_seconds", "Start time of the last collector run",
+                String.valueOf(summary.getStartedAt().getEpochSecond()));
+        gauge(out, "run_duration_seconds", "Wall time of the last collector run",
+                seconds(summary.getDurationNanos()));
+        gauge(out, "run_success", "1 if the last collector run succeeded", summary.isSuccess() ? "1" : "0");
+        gauge(out, "written_rows", "Metric rows written by the last run", String.valueOf(summary.getWrittenRows()));
+        gauge(out, "db_batches", "Database batches committed by the last run",
+                String.valueOf(summary.getDbBatches()));
+
+        header(out, "platform_rows", "Rows collected per platform by the last run", "gauge");
+        metrics.getRowsByPlatform().forEach((platform, rows) ->
+                sample(out, "platform_rows", labels("platform", platform), String.valueOf(rows)));
+
+        header(out, "stage_seconds", "Total time spent per stage in the last run", "gauge");
+        metrics.getStages().forEach((stage, timers) -> timers.forEach((platform, timer) ->
+                sample(out, "stage_seconds", stageLabels(stage, platform), seconds(timer.getTotalNanos()))));
+        header(out, "stage_count", "Measurements per stage in the last run", "gauge");
+        metrics.getStages().forEach((stage, timers) -> timers.forEach((platform, timer) ->
+                sample(out, "stage_count", stageLabels(stage, platform), String.valueOf(timer.getCount()))));
+        header(out, "stage_max_seconds", "Longest single measurement per stage in the last run", "gauge");
+        metrics.getStages().forEach((stage, timers) -> timers.forEach((platform, timer) ->
+                sample(out, "stage_max_seconds", stageLabels(stage, platform), seconds(timer.getMaxNanos()))));
+
+        header(out, "db_batch_seconds", "Database batch write and commit latency in the last run", "histogram");
+        histogram(out, "db_batch_seconds", "", metrics.getDbBatchLatency());
+
+        header(out, "http_request_seconds", "Platform API request latency in the last run", "histogram");
+        summary.getHttpByPlatform().forEach((platform, stats) ->
+                histogram(out, "http_request_seconds", labels("platform", platform), stats.getLatency()));
+        header(out, "http_retries", "Platform API retries in the last run", "gauge");
+        summary.getHttpByPlatform().forEach((platform, stats) ->
+                sample(out, "http_retries", labels("platform", platform), String.valueOf(stats.getRetries())));
+        header(out, "http_throttled", "Platform API 429 responses in the last run", "gauge");
+        summary.getHttpByPlatform().forEach((platform, stats) ->
+                sample(out, "http_throttled", labels("platform", platform), String.valueOf(stats.getThrottled())));
+        header(out, "http_circuit_open", "1 if the platform circuit breaker is not closed", "gauge");
+        summary.getHttpByPlatform().forEach((platform, stats) ->
+                sample(out, "http_circuit_open", labels("platform", platform),
+                        "CLOSED".equals(stats.getCircuitState()) ? "0" : "1"));
+
+        header(out, "errors", "Errors by kind in the last run", "gauge");
+        metrics.getErrors().forEach((kind, byPlatform) -> byPlatform.forEach((platform, count) ->
+                sample(out, "errors", platform.isEmpty() ? labels("kind", kind)
+                        : labels("kind", kind) + "," + labels("platform", platform), String.valueOf(count))));
+
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long[] bounds = LatencyHistogram.getBucketBoundsMillis();
+        long[] counts = histogram.getBucketCounts();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i < bounds.length ? format(bounds[i] / 1000d) : "+Inf";
+            sample(out, name + "_bucket", prefix + labels("le", le), String.valueOf(cumulative));
+        }
+        sample(out, name + "_sum", labels, seconds(histogram.getTotalNanos()));
+        sample(out, name + "_count", labels, String.valueOf(cumulative));
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, String value) {
+        header(out, name, help, "gauge");
+        sample(out, name, "", value);
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String value) {
+        out.append(PREFIX).append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String stageLabels(String stage, String platform) {
+        return platform.isEmpty() ? labels("stage", stage)
+                : labels("stage", stage) + "," + labels("platform", platform);
+    }
+
+    private static String labels(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static String seconds(long nanos) {
+        return format(nanos / 1e9);
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
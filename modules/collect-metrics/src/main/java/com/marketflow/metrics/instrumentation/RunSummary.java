@@ -0,0 +1,139 @@
+package com.marketflow.metrics.instrumentation;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Итог одного запуска сборщика для машиночитаемого отчета
+ */
+public class RunSummary {
+
+    private final String mode;
+    private final String range;
+    private final Instant startedAt;
+    private final long startNanos;
+    private final CollectorMetrics metrics;
+
+    private long durationNanos;
+    private boolean success;
+    private String error;
+    private long writtenRows;
+    private long dbBatches;
+    private final Map<String, HttpStats> httpByPlatform = new LinkedHashMap<>();
+
+    private RunSummary(String mode, String range, CollectorMetrics metrics) {
+        this.mode = mode;
+        this.range = range;
+        this.startedAt = Instant.now();
+        this.startNanos = System.nanoTime();
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param mode incremental или backfill
+     * @param range диапазон дат запуска для отчета
+     */
+    public static RunSummary start(String mode, String range, CollectorMetrics metrics) {
+        return new RunSummary(mode, range, metrics);
+    }
+
+    public void finish(boolean success, String error, long writtenRows, long dbBatches) {
+        this.durationNanos = System.nanoTime() - startNanos;
+        this.success = success;
+        this.error = error;
+        this.writtenRows = writtenRows;
+        this.dbBatches = dbBatches;
+    }
+
+    public void addHttpStats(String platform, HttpStats stats) {
+        httpByPlatform.put(platform, stats);
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public String getRange() {
+        return range;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getWrittenRows() {
+        return writtenRows;
+    }
+
+    public long getDbBatches() {
+        return dbBatches;
+    }
+
+    public CollectorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Map<String, HttpStats> getHttpByPlatform() {
+        return Collections.unmodifiableMap(httpByPlatform);
+    }
+
+    /**
+     * Статистика запросов к API одной платформы за запуск
+     */
+    public static final class HttpStats {
+        private final LatencyHistogram latency;
+        private final long retries;
+        private final long throttled;
+        private final long circuitRejected;
+        private final long failures;
+        private final String circuitState;
+
+        public HttpStats(LatencyHistogram latency, long retries, long throttled, long circuitRejected,
+                         long failures, String circuitState) {
+            this.latency = latency;
+            this.retries = retries;
+            this.throttled = throttled;
+            this.circuitRejected = circuitRejected;
+            this.failures = failures;
+            this.circuitState = circuitState;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        public long getThrottled() {
+            return throttled;
+        }
+
+        public long getCircuitRejected() {
+            return circuitRejected;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public String getCircuitState() {
+            return circuitState;
+        }
+    }
+}
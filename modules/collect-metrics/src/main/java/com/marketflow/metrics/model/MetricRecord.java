@@ -0,0 +1,61 @@
+package com.marketflow.metrics.model;
+
+import java.time.LocalDate;
+
+/**
+ * Одна строка метрик рекламной платформы за день (по кампании или по платформе целиком).
+ */
+public final class MetricRecord {
+    private final LocalDate date;
+    private final String source;
+    private final String campaignId;
+    private final int clicks;
+    private final int impressions;
+    private final double cost;
+
+    public MetricRecord(LocalDate date, String source, String campaignId,
+                        int clicks, int impressions, double cost) {
+        this.date = date;
+        this.source = source;
+        this.campaignId = campaignId;
+        this.clicks = clicks;
+        this.impressions = impressions;
+        this.cost = cost;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getCampaignId() {
+        return campaignId;
+    }
+
+    public int getClicks() {
+        return clicks;
+    }
+
+    public int getImpressions() {
+        return impressions;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricRecord{" +
+                "date=" + date +
+                ", source='" + source + '\'' +
+                ", campaignId='" + campaignId + '\'' +
+                ", clicks=" + clicks +
+                ", impressions=" + impressions +
+                ", cost=" + cost +
+                '}';
+    }
+}
@@ -0,0 +1,281 @@
+package com.marketflow.metrics.pipeline;
+
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import com.marketflow.metrics.model.MetricRecord;
+import com.marketflow.metrics.platform.ParallelCollectionRunner;
+import com.marketflow.metrics.platform.ParallelCollectionRunner.CollectionResult;
+import com.marketflow.metrics.platform.RecordSink;
+import com.marketflow.metrics.service.MetricsWriter;
+import com.marketflow.metrics.service.WatermarkStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Конвейер "сбор -> запись" через ограниченную очередь.
+ * Коллекторы платформ кладут строки в очередь, writer забирает их пакетами и пишет в БД по мере поступления.
+ * Если writer не успевает, коллекторы блокируются на заполненной очереди (backpressure).
+ * Отметки о завершенных днях платформ идут через ту же очередь после строк своего дня,
+ * поэтому водяной знак фиксируется в одной транзакции с пакетом, где оказалась отметка.
+ */
+public class MetricsPipeline implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(MetricsPipeline.class);
+
+    // Маркер конца потока, сравнивается по ссылке
+    private static final Object END = new Object();
+    private static final long OFFER_POLL_MS = 100;
+
+    private final DataSource dataSource;
+    private final MetricsWriter writer;
+    private final ParallelCollectionRunner collectionRunner;
+    private final WatermarkStore watermarks;
+    private final CollectorMetrics metrics;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final ExecutorService writerExecutor;
+
+    public MetricsPipeline(DataSource dataSource, MetricsWriter writer, ParallelCollectionRunner collectionRunner,
+                           int queueCapacity, int batchSize) {
+        this(dataSource, writer, collectionRunner, null, queueCapacity, batchSize);
+    }
+
+    public MetricsPipeline(DataSource dataSource, MetricsWriter writer, ParallelCollectionRunner collectionRunner,
+                           WatermarkStore watermarks, int queueCapacity, int batchSize) {
+        this(dataSource, writer, collectionRunner, watermarks, new CollectorMetrics(), queueCapacity, batchSize);
+    }
+
+    /**
+     * @param watermarks хранилище водяных знаков; null - знаки не ведутся
+     * @param metrics метрики запуска: ожидание очереди, запись и коммит пакетов
+     */
+    public MetricsPipeline(DataSource dataSource, MetricsWriter writer, ParallelCollectionRunner collectionRunner,
+                           WatermarkStore watermarks, CollectorMetrics metrics, int queueCapacity, int batchSize) {
+        this.dataSource = dataSource;
+        this.writer = writer;
+        this.collectionRunner = collectionRunner;
+        this.watermarks = watermarks;
+        this.metrics = metrics;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.writerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Сбор за диапазон дат с одновременной записью в БД (бэкфилл).
+     * Водяные знаки не двигаются: диапазон может быть не смежным с уже загруженным.
+     */
+    public PipelineResult run(LocalDate from, LocalDate to) throws Exception {
+        return run(platform -> from, to, false);
+    }
+
+    /**
+     * Догрузка с собственной начальной датой для каждой платформы (день после водяного знака).
+     * Водяные знаки двигаются в транзакциях записи пакетов.
+     */
+    public PipelineResult run(Function<String, LocalDate> fromByPlatform, LocalDate to) throws Exception {
+        return run(fromByPlatform, to, watermarks != null);
+    }
+
+    private PipelineResult run(Function<String, LocalDate> fromByPlatform, LocalDate to,
+                               boolean advanceWatermarks) throws Exception {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean writerFailed = new AtomicBoolean();
+        PipelineStats stats = new PipelineStats();
+
+        Future<Long> writerFuture = writerExecutor.submit(
+                () -> drainAndWrite(queue, stats, writerFailed, advanceWatermarks));
+
+        RecordSink sink = new RecordSink() {
+            @Override
+            public void accept(MetricRecord record) throws InterruptedException {
+                long blockedNanos = offer(queue, record, writerFailed);
+                stats.recordProduced(blockedNanos);
+                if (blockedNanos > 0) {
+                    metrics.recordStage(CollectorMetrics.STAGE_QUEUE_WAIT, record.getSource(), blockedNanos);
+                }
+            }
+
+            @Override
+            public void dayCompleted(String platform, LocalDate date) throws InterruptedException {
+                if (advanceWatermarks) {
+                    offer(queue, new DayCompleted(platform, date), writerFailed);
+                }
+            }
+        };
+
+        CollectionResult collection;
+        try {
+            collection = collectionRunner.collect(fromByPlatform, to, sink);
+        } finally {
+            // Коллекторы закончили (или сняты по таймауту) - сообщаем writer-у о конце потока
+            while (!writerFuture.isDone() && !queue.offer(END, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+                log.debug("Waiting for writer to free queue space for end marker");
+            }
+        }
+
+        long written = writerFuture.get();
+        stats.finish();
+        log.info("Pipeline finished up to {}: {}", to, stats);
+
+        return new PipelineResult(collection, written, stats);
+    }
+
+    /**
+     * Кладет элемент в очередь, ожидая места при заполненной очереди
+     * @return время ожидания в наносекундах
+     */
+    private static long offer(BlockingQueue<Object> queue, Object item,
+                              AtomicBoolean writerFailed) throws InterruptedException {
+        if (queue.offer(item)) {
+            return 0;
+        }
+
+        long blockedSince = System.nanoTime();
+        while (!queue.offer(item, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (writerFailed.get()) {
+                throw new CancellationException("Writer stage failed, collection aborted");
+            }
+        }
+        return System.nanoTime() - blockedSince;
+    }
+
+    private long drainAndWrite(BlockingQueue<Object> queue, PipelineStats stats, AtomicBoolean writerFailed,
+                               boolean advanceWatermarks) throws Exception {
+        List<Object> drained = new ArrayList<>(batchSize);
+        List<MetricRecord> batch = new ArrayList<>(batchSize);
+        Map<String, LocalDate> completedDays = new HashMap<>();
+        long written = 0;
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            boolean end = false;
+            while (!end) {
+                Object first = queue.take();
+                if (first == END) {
+                    break;
+                }
+                drained.add(first);
+                queue.drainTo(drained, batchSize - 1);
+
+                for (Object item : drained) {
+                    if (item == END) {
+                        end = true;
+                        break;
+                    }
+                    if (item instanceof DayCompleted) {
+                        DayCompleted day = (DayCompleted) item;
+                        completedDays.merge(day.platform, day.date, (a, b) -> a.isAfter(b) ? a : b);
+                    } else {
+                        batch.add((MetricRecord) item);
+                    }
+                }
+
+                if (!batch.isEmpty() || !completedDays.isEmpty()) {
+                    written += writeBatch(conn, batch, advanceWatermarks ? completedDays : null, stats);
+                }
+                drained.clear();
+                batch.clear();
+                completedDays.clear();
+            }
+        } catch (Exception e) {
+            writerFailed.set(true);
+            queue.clear();
+            throw e;
+        }
+
+        return written;
+    }
+
+    private int writeBatch(Connection conn, List<MetricRecord> batch, Map<String, LocalDate> completedDays,
+                           PipelineStats stats) throws SQLException {
+        long startNanos = System.nanoTime();
+        try {
+            int rows = batch.isEmpty() ? 0 : writer.write(conn, batch);
+            long writtenNanos = System.nanoTime();
+            if (completedDays != null) {
+                watermarks.advance(conn, completedDays);
+            }
+            conn.commit();
+            long committedNanos = System.nanoTime();
+
+            metrics.recordStage(CollectorMetrics.STAGE_WRITE, CollectorMetrics.ALL_PLATFORMS,
+                    writtenNanos - startNanos);
+            metrics.recordStage(CollectorMetrics.STAGE_COMMIT, CollectorMetrics.ALL_PLATFORMS,
+                    committedNanos - writtenNanos);
+            metrics.recordDbBatch(committedNanos - startNanos);
+            stats.recordBatch(rows, committedNanos - startNanos);
+            return rows;
+        } catch (SQLException e) {
+            metrics.incrementError(CollectorMetrics.ERROR_DB_ROLLBACK, CollectorMetrics.ALL_PLATFORMS);
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        writerExecutor.shutdownNow();
+    }
+
+    /**
+     * Отметка о том, что платформа отдала все строки за день
+     */
+    private static final class DayCompleted {
+        private final String platform;
+        private final LocalDate date;
+
+        DayCompleted(String platform, LocalDate date) {
+            this.platform = platform;
+            this.date = date;
+        }
+    }
+
+    /**
+     * Итог запуска конвейера
+     */
+    public static class PipelineResult {
+        private final CollectionResult collection;
+        private final long written;
+        private final PipelineStats stats;
+
+        public PipelineResult(CollectionResult collection, long written, PipelineStats stats) {
+            this.collection = collection;
+            this.written = written;
+            this.stats = stats;
+        }
+
+        public CollectionResult getCollection() {
+            return collection;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public PipelineStats getStats() {
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.marketflow.metrics.pipeline;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики пропускной способности стадий конвейера за один запуск.
+ * Обновляются из потоков коллекторов и writer-а одновременно.
+ */
+public class PipelineStats {
+    private final long startNanos = System.nanoTime();
+    private volatile long finishNanos;
+
+    // Стадия сбора
+    private final LongAdder producedRecords = new LongAdder();
+    private final LongAdder producerBlockedNanos = new LongAdder();
+
+    // Стадия записи
+    private final LongAdder writtenRecords = new LongAdder();
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    void recordProduced(long blockedNanos) {
+        producedRecords.increment();
+        if (blockedNanos > 0) {
+            producerBlockedNanos.add(blockedNanos);
+        }
+    }
+
+    void recordBatch(int rows, long nanos) {
+        writtenRecords.add(rows);
+        writtenBatches.increment();
+        writeNanos.add(nanos);
+    }
+
+    void finish() {
+        finishNanos = System.nanoTime();
+    }
+
+    public long getProducedRecords() {
+        return producedRecords.sum();
+    }
+
+    /**
+     * Суммарное время, которое коллекторы провели в ожидании места в очереди (backpressure)
+     */
+    public long getProducerBlockedMillis() {
+        return producerBlockedNanos.sum() / 1_000_000;
+    }
+
+    public long getWrittenRecords() {
+        return writtenRecords.sum();
+    }
+
+    public long getWrittenBatches() {
+        return writtenBatches.sum();
+    }
+
+    public long getWriteMillis() {
+        return writeNanos.sum() / 1_000_000;
+    }
+
+    public long getElapsedMillis() {
+        long end = finishNanos != 0 ? finishNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Строк в секунду на стадии сбора за все время запуска
+     */
+    public long getProducedPerSecond() {
+        return perSecond(getProducedRecords(), getElapsedMillis());
+    }
+
+    /**
+     * Строк в секунду на стадии записи, считая только время в БД
+     */
+    public long getWrittenPerSecond() {
+        return perSecond(getWrittenRecords(), getWriteMillis());
+    }
+
+    private static long perSecond(long count, long millis) {
+        return millis > 0 ? count * 1000 / millis : count;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineStats{" +
+                "produced=" + getProducedRecords() +
+                " (" + getProducedPerSecond() + "/s, blocked " + getProducerBlockedMillis() + " ms)" +
+                ", written=" + getWrittenRecords() +
+                " in " + getWrittenBatches() + " batches" +
+                " (" + getWrittenPerSecond() + "/s, db " + getWriteMillis() + " ms)" +
+                ", elapsed=" + getElapsedMillis() + " ms" +
+                '}';
+    }
+}
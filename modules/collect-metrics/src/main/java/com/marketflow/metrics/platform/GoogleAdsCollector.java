@@ -0,0 +1,36 @@
+package com.marketflow.metrics.platform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.marketflow.metrics.http.PlatformHttpClient;
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import com.marketflow.metrics.model.MetricRecord;
+
+import java.time.LocalDate;
+
+/**
+ * Google Ads. Ожидаемый ответ (int64 приходят строками, стоимость в микро-единицах):
+ * {"results": [{"campaign": {"id": "1"}, "metrics": {"clicks": "10", "impressions": "1000", "costMicros": "150500000"}}]}
+ */
+public class GoogleAdsCollector extends HttpPlatformCollector {
+    private static final double MICROS = 1_000_000.0;
+
+    public GoogleAdsCollector(String baseUrl, String apiToken, long timeoutMs) {
+        super("google", baseUrl, apiToken, timeoutMs);
+    }
+
+    public GoogleAdsCollector(String baseUrl, String apiToken, PlatformHttpClient httpClient, CollectorMetrics metrics) {
+        super("google", baseUrl, apiToken, httpClient, metrics);
+    }
+
+    @Override
+    protected void emitRecords(JsonNode root, LocalDate date, RecordSink sink) throws InterruptedException {
+        for (JsonNode result : root.path("results")) {
+            JsonNode metrics = result.path("metrics");
+            sink.accept(new MetricRecord(date, getPlatform(),
+                    result.path("campaign").path("id").asText(null),
+                    metrics.path("clicks").asInt(),
+                    metrics.path("impressions").asInt(),
+                    metrics.path("costMicros").asLong() / MICROS));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.marketflow.metrics.platform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketflow.metrics.http.PlatformHttpClient;
+import com.marketflow.metrics.http.PlatformPolicy;
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import com.marketflow.metrics.model.MetricRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Базовый HTTP-коллектор: GET {baseUrl}?date=YYYY-MM-DD, разбор JSON-ответа делает наследник.
+ * Запросы идут через общий {@link PlatformHttpClient} с лимитом, повторами и circuit breaker платформы.
+ */
+public abstract class HttpPlatformCollector implements PlatformCollector {
+    private static final Logger log = LoggerFactory.getLogger(HttpPlatformCollector.class);
+
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String platform;
+    private final String baseUrl;
+    private final String apiToken;
+    private final PlatformHttpClient httpClient;
+    private final boolean ownsHttpClient;
+    private final CollectorMetrics metrics;
+
+    /**
+     * Коллектор со своим клиентом и политикой по умолчанию
+     */
+    protected HttpPlatformCollector(String platform, String baseUrl, String apiToken, long timeoutMs) {
+        this(platform, baseUrl, apiToken, new PlatformHttpClient(4, Duration.ofMillis(timeoutMs)), true,
+                new CollectorMetrics());
+        httpClient.registerPlatform(platform, PlatformPolicy.defaults(Duration.ofMillis(timeoutMs)));
+    }
+
+    /**
+     * Коллектор на общем клиенте, платформа должна быть в нем зарегистрирована (клиент не закрывается коллектором)
+     */
+    protected HttpPlatformCollector(String platform, String baseUrl, String apiToken, PlatformHttpClient httpClient,
+                                    CollectorMetrics metrics) {
+        this(platform, baseUrl, apiToken, httpClient, false, metrics);
+    }
+
+    private HttpPlatformCollector(String platform, String baseUrl, String apiToken,
+                                  PlatformHttpClient httpClient, boolean ownsHttpClient, CollectorMetrics metrics) {
+        this.platform = platform;
+        this.baseUrl = baseUrl;
+        this.apiToken = apiToken;
+        this.httpClient = httpClient;
+        this.ownsHttpClient = ownsHttpClient;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getPlatform() {
+        return platform;
+    }
+
+    @Override
+    public void collect(LocalDate date, RecordSink sink) throws Exception {
+        String uri = baseUrl + "?date=" + date;
+        log.debug("Requesting {} metrics: {}", platform, uri);
+
+        long startNanos = System.nanoTime();
+        byte[] body = httpClient.get(platform, uri, apiToken);
+        long fetchedNanos = System.nanoTime();
+        metrics.recordStage(CollectorMetrics.STAGE_FETCH, platform, fetchedNanos - startNanos);
+
+        // Разбор отдельно от передачи строк дальше: ожидание очереди не попадает во время преобразования
+        List<MetricRecord> records = new ArrayList<>();
+        emitRecords(MAPPER.readTree(body), date, records::add);
+        metrics.recordStage(CollectorMetrics.STAGE_TRANSFORM, platform, System.nanoTime() - fetchedNanos);
+
+        for (MetricRecord record : records) {
+            sink.accept(record);
+        }
+    }
+
+    /**
+     * Преобразование ответа API платформы в строки метрик
+     */
+    protected abstract void emitRecords(JsonNode root, LocalDate date, RecordSink sink) throws InterruptedException;
+
+    @Override
+    public void close() throws Exception {
+        if (ownsHttpClient) {
+            httpClient.close();
+        }
+    }
+}
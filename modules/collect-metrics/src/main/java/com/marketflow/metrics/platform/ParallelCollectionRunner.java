@@ -0,0 +1,156 @@
+package com.marketflow.metrics.platform;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Параллельный опрос платформ: каждая платформа в своем потоке со своим таймаутом.
+ * Строки сразу уходят в общий sink, медленная или упавшая платформа попадает в failures
+ * и не мешает остальным.
+ */
+public class ParallelCollectionRunner implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ParallelCollectionRunner.class);
+
+    private final List<PlatformCollector> collectors;
+    private final ToLongFunction<String> timeoutMs;
+    private final ExecutorService executor;
+
+    public ParallelCollectionRunner(List<PlatformCollector> collectors, ToLongFunction<String> timeoutMs) {
+        this.collectors = collectors;
+        this.timeoutMs = timeoutMs;
+        // Java 17: виртуальных потоков нет, платформ единицы - по потоку на платформу
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, collectors.size()), runnable -> {
+            Thread thread = new Thread(runnable, "platform-collector-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает все коллекторы за диапазон дат и ждет каждый не дольше его таймаута.
+     * Таймаут платформы действует на каждый день диапазона.
+     */
+    public CollectionResult collect(LocalDate from, LocalDate to, RecordSink sink) {
+        return collect(platform -> from, to, sink);
+    }
+
+    /**
+     * Запускает коллекторы с собственной начальной датой для каждой платформы (инкрементальная догрузка).
+     * Платформа, у которой начальная дата позже конечной, пропускается.
+     */
+    public CollectionResult collect(Function<String, LocalDate> fromByPlatform, LocalDate to, RecordSink sink) {
+        long startNanos = System.nanoTime();
+
+        Map<PlatformCollector, Future<Long>> futures = new LinkedHashMap<>();
+        Map<PlatformCollector, LocalDate> startDates = new LinkedHashMap<>();
+        Map<String, Long> rowsByPlatform = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (PlatformCollector collector : collectors) {
+            LocalDate from = fromByPlatform.apply(collector.getPlatform());
+            long days = ChronoUnit.DAYS.between(from, to) + 1;
+            if (days <= 0) {
+                log.info("Platform {} is up to date, nothing to collect", collector.getPlatform());
+                rowsByPlatform.put(collector.getPlatform(), 0L);
+                continue;
+            }
+            startDates.put(collector, from);
+            futures.put(collector, executor.submit(() -> collectRange(collector, from, to, sink)));
+        }
+
+        for (Map.Entry<PlatformCollector, Future<Long>> entry : futures.entrySet()) {
+            String platform = entry.getKey().getPlatform();
+            Future<Long> future = entry.getValue();
+            LocalDate from = startDates.get(entry.getKey());
+
+            // Таймаут отсчитывается от общего старта: все платформы стартовали одновременно
+            long days = ChronoUnit.DAYS.between(from, to) + 1;
+            long platformTimeoutMs = timeoutMs.applyAsLong(platform) * days;
+            long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(platformTimeoutMs);
+            try {
+                long rows = future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                rowsByPlatform.put(platform, rows);
+                log.info("Collected {} rows from {} for {} - {}", rows, platform, from, to);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failures.put(platform, "timeout after " + platformTimeoutMs + " ms");
+                log.warn("Platform {} timed out for {} - {}", platform, from, to);
+            } catch (ExecutionException e) {
+                failures.put(platform, String.valueOf(e.getCause()));
+                log.error("Platform {} failed for {} - {}", platform, from, to, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                failures.put(platform, "interrupted");
+                break;
+            }
+        }
+
+        return new CollectionResult(rowsByPlatform, failures);
+    }
+
+    private static long collectRange(PlatformCollector collector, LocalDate from, LocalDate to,
+                                     RecordSink sink) throws Exception {
+        long[] rows = {0};
+        RecordSink counting = record -> {
+            sink.accept(record);
+            rows[0]++;
+        };
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            collector.collect(date, counting);
+            sink.dayCompleted(collector.getPlatform(), date);
+        }
+        return rows[0];
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+        for (PlatformCollector collector : collectors) {
+            collector.close();
+        }
+    }
+
+    /**
+     * Итог опроса: количество строк по успешным платформам и ошибки по остальным
+     */
+    public static class CollectionResult {
+        private final Map<String, Long> rowsByPlatform;
+        private final Map<String, String> failures;
+
+        public CollectionResult(Map<String, Long> rowsByPlatform, Map<String, String> failures) {
+            this.rowsByPlatform = rowsByPlatform;
+            this.failures = failures;
+        }
+
+        public Map<String, Long> getRowsByPlatform() {
+            return rowsByPlatform;
+        }
+
+        public Map<String, String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Ни одна платформа не ответила (при непустом списке платформ)
+         */
+        public boolean allFailed() {
+            return rowsByPlatform.isEmpty() && !failures.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.marketflow.metrics.platform;
+
+import java.time.LocalDate;
+
+/**
+ * Источник метрик одной рекламной платформы.
+ * Реализации вызываются параллельно из разных потоков и не должны разделять изменяемое состояние.
+ */
+public interface PlatformCollector extends AutoCloseable {
+
+    /**
+     * Код платформы (yandex, google, vk), он же значение колонки source
+     */
+    String getPlatform();
+
+    /**
+     * Сбор метрик платформы за день: строки передаются в sink по мере получения
+     */
+    void collect(LocalDate date, RecordSink sink) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+        // По умолчанию ресурсов нет
+    }
+}
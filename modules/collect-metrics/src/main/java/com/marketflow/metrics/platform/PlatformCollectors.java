@@ -0,0 +1,84 @@
+package com.marketflow.metrics.platform;
+
+import com.marketflow.metrics.config.CollectorConfig;
+import com.marketflow.metrics.http.CircuitBreaker;
+import com.marketflow.metrics.http.PlatformHttpClient;
+import com.marketflow.metrics.http.PlatformPolicy;
+import com.marketflow.metrics.http.RetryPolicy;
+import com.marketflow.metrics.http.TokenBucketRateLimiter;
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фабрика коллекторов по списку платформ из конфигурации.
+ * Если для платформы задан API URL, используется HTTP-коллектор на общем клиенте, иначе имитация.
+ */
+public final class PlatformCollectors {
+    private static final Logger log = LoggerFactory.getLogger(PlatformCollectors.class);
+
+    private PlatformCollectors() {
+    }
+
+    /**
+     * Общий HTTP-клиент с политиками всех платформ из конфигурации. Закрывает его владелец коллекторов.
+     */
+    public static PlatformHttpClient createHttpClient(CollectorConfig config) {
+        PlatformHttpClient httpClient = new PlatformHttpClient(config.getHttpMaxConnections(),
+                Duration.ofMillis(config.getDefaultPlatformTimeoutMs()));
+        for (String platform : config.getPlatforms()) {
+            String code = platform.trim();
+            int rps = config.getPlatformRateLimitRps(code);
+            httpClient.registerPlatform(code, new PlatformPolicy(
+                    Duration.ofMillis(config.getPlatformTimeoutMs(code)),
+                    new TokenBucketRateLimiter(rps, rps),
+                    new RetryPolicy(config.getHttpMaxRetries() + 1,
+                            Duration.ofMillis(config.getHttpRetryBaseMs()),
+                            Duration.ofMillis(config.getHttpRetryMaxMs())),
+                    new CircuitBreaker(config.getCircuitFailureThreshold(),
+                            Duration.ofSeconds(config.getCircuitOpenSeconds()))));
+        }
+        return httpClient;
+    }
+
+    public static List<PlatformCollector> create(CollectorConfig config, PlatformHttpClient httpClient,
+                                                 CollectorMetrics metrics) {
+        List<PlatformCollector> collectors = new ArrayList<>();
+        for (String platform : config.getPlatforms()) {
+            PlatformCollector collector = create(platform.trim(), config, httpClient, metrics);
+            if (collector != null) {
+                collectors.add(collector);
+            }
+        }
+        return collectors;
+    }
+
+    private static PlatformCollector create(String platform, CollectorConfig config, PlatformHttpClient httpClient,
+                                            CollectorMetrics metrics) {
+        String url = config.getPlatformUrl(platform);
+        String token = config.getPlatformToken(platform);
+        boolean simulated = url == null || url.isEmpty();
+
+        switch (platform) {
+            case "yandex":
+                return simulated
+                        ? new SimulatedPlatformCollector(platform, 1000, 10000, 5000.0)
+                        : new YandexDirectCollector(url, token, httpClient, metrics);
+            case "google":
+                return simulated
+                        ? new SimulatedPlatformCollector(platform, 1500, 15000, 6000.0)
+                        : new GoogleAdsCollector(url, token, httpClient, metrics);
+            case "vk":
+                return simulated
+                        ? new SimulatedPlatformCollector(platform, 800, 8000, 3000.0)
+                        : new VkAdsCollector(url, token, httpClient, metrics);
+            default:
+                log.warn("Unknown platform '{}' is skipped", platform);
+                return null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.marketflow.metrics.platform;
+
+import com.marketflow.metrics.model.MetricRecord;
+
+import java.time.LocalDate;
+
+/**
+ * Приемник строк метрик от коллектора. Может блокироваться, если следующая стадия не успевает.
+ */
+@FunctionalInterface
+public interface RecordSink {
+
+    void accept(MetricRecord record) throws InterruptedException;
+
+    /**
+     * Платформа полностью отдала строки за день: все строки этого дня уже переданы в accept
+     */
+    default void dayCompleted(String platform, LocalDate date) throws InterruptedException {
+    }
+}
@@ -0,0 +1,35 @@
+package com.marketflow.metrics.platform;
+
+import com.marketflow.metrics.model.MetricRecord;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Имитация платформы случайными данными, используется пока для платформы не задан API URL.
+ */
+public class SimulatedPlatformCollector implements PlatformCollector {
+    private final String platform;
+    private final int maxClicks;
+    private final int maxImpressions;
+    private final double maxCost;
+
+    public SimulatedPlatformCollector(String platform, int maxClicks, int maxImpressions, double maxCost) {
+        this.platform = platform;
+        this.maxClicks = maxClicks;
+        this.maxImpressions = maxImpressions;
+        this.maxCost = maxCost;
+    }
+
+    @Override
+    public String getPlatform() {
+        return platform;
+    }
+
+    @Override
+    public void collect(LocalDate date, RecordSink sink) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        sink.accept(new MetricRecord(date, platform, null,
+                random.nextInt(maxClicks), random.nextInt(maxImpressions), random.nextDouble() * maxCost));
+    }
+}
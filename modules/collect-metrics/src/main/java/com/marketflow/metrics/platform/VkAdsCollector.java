@@ -0,0 +1,37 @@
+package com.marketflow.metrics.platform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.marketflow.metrics.http.PlatformHttpClient;
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import com.marketflow.metrics.model.MetricRecord;
+
+import java.time.LocalDate;
+
+/**
+ * VK Реклама. Ожидаемый ответ (stats - по дням, spent строкой):
+ * {"response": [{"id": 123, "stats": [{"day": "2025-01-01", "clicks": 10, "impressions": 1000, "spent": "150.50"}]}]}
+ */
+public class VkAdsCollector extends HttpPlatformCollector {
+
+    public VkAdsCollector(String baseUrl, String apiToken, long timeoutMs) {
+        super("vk", baseUrl, apiToken, timeoutMs);
+    }
+
+    public VkAdsCollector(String baseUrl, String apiToken, PlatformHttpClient httpClient, CollectorMetrics metrics) {
+        super("vk", baseUrl, apiToken, httpClient, metrics);
+    }
+
+    @Override
+    protected void emitRecords(JsonNode root, LocalDate date, RecordSink sink) throws InterruptedException {
+        for (JsonNode campaign : root.path("response")) {
+            String campaignId = campaign.path("id").asText(null);
+            for (JsonNode stats : campaign.path("stats")) {
+                LocalDate day = stats.has("day") ? LocalDate.parse(stats.get("day").asText()) : date;
+                sink.accept(new MetricRecord(day, getPlatform(), campaignId,
+                        stats.path("clicks").asInt(),
+                        stats.path("impressions").asInt(),
+                        stats.path("spent").asDouble()));
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.marketflow.metrics.platform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.marketflow.metrics.http.PlatformHttpClient;
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import com.marketflow.metrics.model.MetricRecord;
+
+import java.time.LocalDate;
+
+/**
+ * Яндекс Директ. Ожидаемый ответ:
+ * {"rows": [{"CampaignId": "123", "Clicks": 10, "Impressions": 1000, "Cost": 150.5}]}
+ */
+public class YandexDirectCollector extends HttpPlatformCollector {
+
+    public YandexDirectCollector(String baseUrl, String apiToken, long timeoutMs) {
+        super("yandex", baseUrl, apiToken, timeoutMs);
+    }
+
+    public YandexDirectCollector(String baseUrl, String apiToken, PlatformHttpClient httpClient, CollectorMetrics metrics) {
+        super("yandex", baseUrl, apiToken, httpClient, metrics);
+    }
+
+    @Override
+    protected void emitRecords(JsonNode root, LocalDate date, RecordSink sink) throws InterruptedException {
+        for (JsonNode row : root.path("rows")) {
+            sink.accept(new MetricRecord(date, getPlatform(),
+                    row.path("CampaignId").asText(null),
+                    row.path("Clicks").asInt(),
+                    row.path("Impressions").asInt(),
+                    row.path("Cost").asDouble()));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.marketflow.metrics.service;
+
+import com.marketflow.metrics.model.MetricRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Пакетный upsert метрик через addBatch/executeBatch по естественному ключу (date, source, campaign_id).
+ * Повторный сбор того же дня обновляет строки, а не дублирует их; неизменившиеся строки не перезаписываются.
+ * Транзакцией управляет вызывающий код: writer только отправляет пакеты в переданное соединение.
+ */
+public class BatchMetricsWriter implements MetricsWriter {
+    private static final Logger log = LoggerFactory.getLogger(BatchMetricsWriter.class);
+
+    static final String UPSERT_SQL =
+            "INSERT INTO metrics(date, source, campaign_id, clicks, impressions, cost) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (date, source, campaign_id) WHERE source IS NOT NULL DO UPDATE SET " +
+            "clicks = EXCLUDED.clicks, impressions = EXCLUDED.impressions, cost = EXCLUDED.cost " +
+            "WHERE (metrics.clicks, metrics.impressions, metrics.cost) " +
+            "IS DISTINCT FROM (EXCLUDED.clicks, EXCLUDED.impressions, EXCLUDED.cost)";
+
+    private final int batchSize;
+
+    public BatchMetricsWriter(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Записывает метрики пакетами по batchSize строк
+     * @return количество отправленных строк (после схлопывания дублей ключа)
+     */
+    @Override
+    public int write(Connection conn, List<MetricRecord> records) throws SQLException {
+        // Драйвер склеивает пакет в один многострочный INSERT, а ON CONFLICT DO UPDATE
+        // не может обновить одну строку дважды за запрос - дубли ключа оставляем последними
+        List<MetricRecord> unique = MetricRecords.lastPerNaturalKey(records);
+
+        int written = 0;
+        int pending = 0;
+
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (MetricRecord record : unique) {
+                stmt.setObject(1, record.getDate());
+                stmt.setString(2, record.getSource());
+                stmt.setString(3, record.getCampaignId());
+                stmt.setInt(4, record.getClicks());
+                stmt.setInt(5, record.getImpressions());
+                stmt.setDouble(6, record.getCost());
+                stmt.addBatch();
+
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    written += pending;
+                    pending = 0;
+                    log.debug("Flushed batch, {} rows written so far", written);
+                }
+            }
+
+            if (pending > 0) {
+                stmt.executeBatch();
+                written += pending;
+            }
+        }
+
+        return written;
+    }
+
+    @Override
+    public String describe() {
+        return "batch-upsert(" + batchSize + ")";
+    }
+}
@@ -0,0 +1,141 @@
+package com.marketflow.metrics.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Планировщик циклов сбора для режима демона.
+ * Тики идут с фиксированным периодом, сам цикл выполняется в отдельном потоке:
+ * если предыдущий цикл еще не закончился, тик пропускается, циклы не накладываются.
+ * Ошибка цикла логируется и не останавливает расписание.
+ */
+public class CollectorScheduler implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CollectorScheduler.class);
+
+    private final Callable<Integer> cycle;
+    private final Duration interval;
+    private final Duration shutdownGrace;
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService worker;
+    private final AtomicBoolean cycleRunning = new AtomicBoolean();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final AtomicLong completedCycles = new AtomicLong();
+    private final AtomicLong failedCycles = new AtomicLong();
+    private final AtomicLong skippedTicks = new AtomicLong();
+
+    /**
+     * @param cycle один цикл сбора, возвращает количество сохраненных метрик
+     * @param interval период между стартами циклов
+     * @param shutdownGrace сколько ждать завершения текущего цикла при остановке
+     */
+    public CollectorScheduler(Callable<Integer> cycle, Duration interval, Duration shutdownGrace) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Collection interval must be positive: " + interval);
+        }
+        this.cycle = cycle;
+        this.interval = interval;
+        this.shutdownGrace = shutdownGrace;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "collector-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.worker = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "collector-cycle"));
+    }
+
+    /**
+     * Запускает расписание, первый цикл стартует сразу
+     */
+    public void start() {
+        log.info("Starting collection schedule every {}", interval);
+        ticker.scheduleAtFixedRate(this::tick, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        if (!cycleRunning.compareAndSet(false, true)) {
+            skippedTicks.incrementAndGet();
+            log.warn("Previous collection cycle is still running, skipping this tick");
+            return;
+        }
+        try {
+            worker.execute(this::runCycle);
+        } catch (RuntimeException e) {
+            // Исполнитель уже остановлен
+            cycleRunning.set(false);
+        }
+    }
+
+    private void runCycle() {
+        long startNanos = System.nanoTime();
+        try {
+            int collected = cycle.call();
+            completedCycles.incrementAndGet();
+            log.info("Collection cycle finished in {} ms, {} metrics stored",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), collected);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCycles.incrementAndGet();
+            log.warn("Collection cycle interrupted");
+        } catch (Exception e) {
+            failedCycles.incrementAndGet();
+            log.error("Collection cycle failed, will retry on next tick", e);
+        } finally {
+            cycleRunning.set(false);
+        }
+    }
+
+    /**
+     * Блокирует вызывающий поток до остановки планировщика
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Останавливает расписание и ждет текущий цикл не дольше shutdownGrace, затем прерывает его.
+     * Незакоммиченный пакет откатывается, водяные знаки остаются на последнем зафиксированном дне.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            ticker.shutdownNow();
+            worker.shutdown();
+            if (!worker.awaitTermination(shutdownGrace.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Collection cycle did not finish within {}, interrupting", shutdownGrace);
+                worker.shutdownNow();
+                worker.awaitTermination(shutdownGrace.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            stopped.countDown();
+        }
+        log.info("Collection schedule stopped: {} cycles completed, {} failed, {} ticks skipped",
+                completedCycles.get(), failedCycles.get(), skippedTicks.get());
+    }
+
+    public boolean isCycleRunning() {
+        return cycleRunning.get();
+    }
+
+    public long getCompletedCycles() {
+        return completedCycles.get();
+    }
+
+    public long getFailedCycles() {
+        return failedCycles.get();
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks.get();
+    }
+}
@@ -1,142 +1,196 @@
 package com.marketflow.metrics.service;
 
 import com.marketflow.metrics.config.CollectorConfig;
+import com.marketflow.metrics.config.WriteMode;
+import com.marketflow.metrics.http.PlatformHttpClient;
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import com.marketflow.metrics.instrumentation.MetricsReportWriter;
+import com.marketflow.metrics.instrumentation.RunSummary;
+import com.marketflow.metrics.pipeline.MetricsPipeline;
+import com.marketflow.metrics.pipeline.MetricsPipeline.PipelineResult;
+import com.marketflow.metrics.platform.ParallelCollectionRunner;
+import com.marketflow.metrics.platform.ParallelCollectionRunner.CollectionResult;
+import com.marketflow.metrics.platform.PlatformCollectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.Callable;
 
-public class CollectorService {
+public class CollectorService implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(CollectorService.class);
     private final CollectorConfig config;
-    private final Random random = new Random();
+    private final DataSource dataSource;
+    private final boolean ownsDataSource;
+    private final MetricsWriter writer;
+    private final WatermarkStore watermarks;
+    private final PlatformHttpClient httpClient;
+    private final ParallelCollectionRunner collectionRunner;
+    private final MetricsPipeline pipeline;
+    private final CollectorMetrics metrics = new CollectorMetrics();
+    private final MetricsReportWriter reportWriter;
 
     public CollectorService(CollectorConfig config) {
-        this.config = config;
+        this(config, config.createDataSource(), true);
     }
 
     /**
-     * Основной метод для сбора и сохранения метрик
-     * @return количество собранных метрик
+     * Конструктор для работы с внешним пулом соединений (пул не закрывается сервисом)
      */
-    public int collectAndStore() throws Exception {
-        log.info("Starting metrics collection process");
-
-        // В реальности здесь был бы вызов API рекламных платформ
-        Map<String, Double> metrics = collectMetricsFromPlatforms();
-        log.info("Collected {} raw metrics from platforms", metrics.size());
+    public CollectorService(CollectorConfig config, DataSource dataSource) {
+        this(config, dataSource, false);
+    }
 
-        // Сохраняем в БД
-        int stored = storeMetrics(metrics);
-        log.info("Successfully stored {} metrics in database", stored);
+    private CollectorService(CollectorConfig config, DataSource dataSource, boolean ownsDataSource) {
+        this.config = config;
+        this.dataSource = dataSource;
+        this.ownsDataSource = ownsDataSource;
+        this.writer = createWriter(config);
+        this.watermarks = new WatermarkStore();
+        this.httpClient = PlatformCollectors.createHttpClient(config);
+        this.collectionRunner = new ParallelCollectionRunner(
+                PlatformCollectors.create(config, httpClient, metrics), config::getPlatformTimeoutMs);
+        this.pipeline = new MetricsPipeline(dataSource, writer, collectionRunner, watermarks, metrics,
+                config.getQueueCapacity(), config.getBatchSize());
+        String metricsDir = config.getMetricsOutputDir();
+        this.reportWriter = metricsDir == null || metricsDir.isEmpty() ? null
+                : new MetricsReportWriter(Paths.get(metricsDir),
+                        CollectorService.class.getPackage().getImplementationVersion());
+    }
 
-        return stored;
+    private static MetricsWriter createWriter(CollectorConfig config) {
+        if (config.getWriteMode() == WriteMode.COPY) {
+            return new CopyMetricsWriter();
+        }
+        return new BatchMetricsWriter(config.getBatchSize());
     }
 
     /**
-     * Имитация сбора метрик из рекламных платформ
+     * Основной метод: инкрементальный сбор по водяным знакам.
+     * Каждая платформа догружается с дня после своего последнего закрытого дня до сегодня включительно,
+     * поэтому после простоя или падения сбор продолжается с того места, где остановился.
+     * @return количество собранных метрик
      */
-    private Map<String, Double> collectMetricsFromPlatforms() {
-        log.debug("Collecting metrics from platforms: {}", config.getPlatforms());
-
-        Map<String, Double> metrics = new HashMap<>();
-
-        // Метрики для Яндекс Директ (имитация)
-        if (config.getPlatforms().contains("yandex")) {
-            log.info("Collecting metrics from Yandex Direct");
-            metrics.put("yandex_clicks", (double) random.nextInt(1000));
-            metrics.put("yandex_impressions", (double) random.nextInt(10000));
-            metrics.put("yandex_ctr", random.nextDouble() * 10.0);
-            metrics.put("yandex_cost", random.nextDouble() * 5000.0);
-        }
+    public int collectAndStore() throws Exception {
+        LocalDate today = LocalDate.now();
+        return run("incremental", "up to " + today, () -> {
+            Map<String, LocalDate> startDates = planIncremental(today);
+            log.info("Starting incremental metrics collection up to {}, start dates: {} (write mode: {})",
+                    today, startDates, writer.describe());
+            return pipeline.run(platform -> startDates.getOrDefault(platform, today), today);
+        });
+    }
 
-        // Метрики для Google Ads (имитация)
-        if (config.getPlatforms().contains("google")) {
-            log.info("Collecting metrics from Google Ads");
-            metrics.put("google_clicks", (double) random.nextInt(1500));
-            metrics.put("google_impressions", (double) random.nextInt(15000));
-            metrics.put("google_ctr", random.nextDouble() * 12.0);
-            metrics.put("google_cost", random.nextDouble() * 6000.0);
+    private Map<String, LocalDate> planIncremental(LocalDate today) throws Exception {
+        Map<String, LocalDate> platformWatermarks;
+        // Один SELECT: транзакцией не управляем, работает и с пулом в режиме autocommit
+        try (Connection conn = dataSource.getConnection()) {
+            platformWatermarks = watermarks.loadPlatformWatermarks(conn);
         }
 
-        // Метрики для VK Ads (имитация)
-        if (config.getPlatforms().contains("vk")) {
-            log.info("Collecting metrics from VK Ads");
-            metrics.put("vk_clicks", (double) random.nextInt(800));
-            metrics.put("vk_impressions", (double) random.nextInt(8000));
-            metrics.put("vk_ctr", random.nextDouble() * 8.0);
-            metrics.put("vk_cost", random.nextDouble() * 3000.0);
+        Map<String, LocalDate> startDates = new LinkedHashMap<>();
+        for (String platform : config.getPlatforms()) {
+            String code = platform.trim();
+            startDates.put(code, WatermarkStore.nextStart(
+                    platformWatermarks.get(code), today, config.getCatchUpMaxDays()));
         }
-
-        return metrics;
+        return startDates;
     }
 
     /**
-     * Сохранение метрик в базу данных
+     * Сбор и сохранение метрик за диапазон дат (включительно), например для бэкфилла.
+     * Строки пишутся в БД пакетами по мере сбора, память ограничена емкостью очереди конвейера.
+     * Ошибки отдельных платформ логируются, запуск падает только если не ответила ни одна платформа.
+     * Водяные знаки не меняются: диапазон бэкфилла может быть не смежным с уже загруженным.
+     * @return количество сохраненных метрик
      */
-    private int storeMetrics(Map<String, Double> metrics) throws Exception {
-        if (metrics.isEmpty()) {
-            log.warn("No metrics to store");
-            return 0;
+    public int collectAndStore(LocalDate from, LocalDate to) throws Exception {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
         }
+        log.info("Starting metrics collection process for {} - {} (write mode: {})",
+                from, to, writer.describe());
 
-        int count = 0;
-        LocalDate today = LocalDate.now();
-
-        try (Connection conn = DriverManager.getConnection(
-                config.getDbUrl(), config.getDbUser(), config.getDbPass())) {
-
-            // Сохраняем каждый тип метрики отдельно
-            try (PreparedStatement clicksStmt = conn.prepareStatement(
-                    "INSERT INTO metrics(date, clicks, impressions, cost) VALUES (?, ?, ?, ?)")) {
-
-                // Метрики для Яндекс
-                if (metrics.containsKey("yandex_clicks")) {
-                    clicksStmt.setObject(1, today);
-                    clicksStmt.setInt(2, metrics.get("yandex_clicks").intValue());
-                    clicksStmt.setInt(3, metrics.get("yandex_impressions").intValue());
-                    clicksStmt.setDouble(4, metrics.get("yandex_cost"));
-
-                    clicksStmt.executeUpdate();
-                    count++;
-
-                    log.debug("Stored Yandex metrics for date {}", today);
-                }
-
-                // Метрики для Google
-                if (metrics.containsKey("google_clicks")) {
-                    clicksStmt.setObject(1, today);
-                    clicksStmt.setInt(2, metrics.get("google_clicks").intValue());
-                    clicksStmt.setInt(3, metrics.get("google_impressions").intValue());
-                    clicksStmt.setDouble(4, metrics.get("google_cost"));
-
-                    clicksStmt.executeUpdate();
-                    count++;
+        return run("backfill", from + " - " + to, () -> pipeline.run(from, to));
+    }
 
-                    log.debug("Stored Google metrics for date {}", today);
-                }
+    /**
+     * Запуск конвейера с метриками: счетчики обнуляются перед запуском,
+     * итог (в том числе неуспешного запуска) пишется в отчет
+     */
+    private int run(String mode, String range, Callable<PipelineResult> pipelineRun) throws Exception {
+        metrics.reset();
+        httpClient.resetStats();
+        RunSummary summary = RunSummary.start(mode, range, metrics);
+        PipelineResult result = null;
+        String error = null;
+        try {
+            result = pipelineRun.call();
+            return report(result, range);
+        } catch (Exception e) {
+            error = String.valueOf(e);
+            throw e;
+        } finally {
+            writeSummary(summary, result, error);
+        }
+    }
 
-                // Метрики для VK
-                if (metrics.containsKey("vk_clicks")) {
-                    clicksStmt.setObject(1, today);
-                    clicksStmt.setInt(2, metrics.get("vk_clicks").intValue());
-                    clicksStmt.setInt(3, metrics.get("vk_impressions").intValue());
-                    clicksStmt.setDouble(4, metrics.get("vk_cost"));
+    private void writeSummary(RunSummary summary, PipelineResult result, String error) {
+        long written = result != null ? result.getWritten() : 0;
+        long batches = result != null ? result.getStats().getWrittenBatches() : 0;
+        summary.finish(error == null, error, written, batches);
+        httpClient.getPolicies().forEach((platform, policy) -> summary.addHttpStats(platform,
+                new RunSummary.HttpStats(policy.getLatency(), policy.getRetries(), policy.getThrottled(),
+                        policy.getCircuitRejected(), policy.getFailures(),
+                        policy.getCircuitBreaker().getState().name())));
+
+        if (reportWriter != null) {
+            try {
+                reportWriter.write(summary);
+            } catch (IOException e) {
+                // Отчет вспомогательный, сбор из-за него не падает
+                log.warn("Failed to write run metrics", e);
+            }
+        }
+    }
 
-                    clicksStmt.executeUpdate();
-                    count++;
+    private int report(PipelineResult result, String range) {
+        CollectionResult collection = result.getCollection();
+        log.info("Collected rows by platform: {}", collection.getRowsByPlatform());
+        collection.getRowsByPlatform().forEach(metrics::addRows);
+        collection.getFailures().keySet().forEach(platform ->
+                metrics.incrementError(CollectorMetrics.ERROR_PLATFORM_FAILURE, platform));
+        httpClient.getLatencyHistograms().forEach((platform, latency) -> {
+            if (latency.getCount() > 0) {
+                log.info("{} API latency: {}", platform, latency);
+            }
+        });
 
-                    log.debug("Stored VK metrics for date {}", today);
-                }
+        if (!collection.getFailures().isEmpty()) {
+            log.warn("Platforms failed for {}: {}", range, collection.getFailures());
+            if (collection.allFailed()) {
+                throw new IllegalStateException("All platforms failed for " + range
+                        + ": " + collection.getFailures());
             }
         }
 
-        return count;
+        log.info("Successfully stored {} metrics in database", result.getWritten());
+        return (int) result.getWritten();
+    }
+
+    @Override
+    public void close() throws Exception {
+        pipeline.close();
+        collectionRunner.close();
+        httpClient.close();
+        if (ownsDataSource && dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
     }
-}
\ No newline at end of file
+}
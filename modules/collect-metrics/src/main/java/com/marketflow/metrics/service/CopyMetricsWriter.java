@@ -0,0 +1,201 @@
+package com.marketflow.metrics.service;
+
+import com.marketflow.metrics.model.MetricRecord;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Загрузка метрик через COPY FROM STDIN (текстовый формат PostgreSQL).
+ * COPY не умеет ON CONFLICT, поэтому строки сначала копируются во временную таблицу сессии,
+ * а затем одним INSERT ... SELECT сливаются в metrics по естественному ключу.
+ * Строки кодируются из MetricRecord прямо в переиспользуемый буфер и отправляются порциями.
+ * Экземпляр не потокобезопасен: буферы общие для всех вызовов write.
+ */
+public class CopyMetricsWriter implements MetricsWriter {
+    private static final Logger log = LoggerFactory.getLogger(CopyMetricsWriter.class);
+
+    // Очищается при каждом коммите, сама таблица живет до закрытия соединения в пуле
+    static final String CREATE_STAGING_SQL =
+            "CREATE TEMP TABLE IF NOT EXISTS metrics_staging (" +
+            "seq BIGSERIAL, date DATE, source VARCHAR(50), campaign_id VARCHAR(100), " +
+            "clicks INTEGER, impressions INTEGER, cost NUMERIC) ON COMMIT DELETE ROWS";
+
+    static final String COPY_SQL =
+            "COPY metrics_staging(date, source, campaign_id, clicks, impressions, cost) FROM STDIN";
+
+    // При дублях ключа в загрузке побеждает последняя строка
+    static final String MERGE_SQL =
+            "INSERT INTO metrics(date, source, campaign_id, clicks, impressions, cost) " +
+            "SELECT DISTINCT ON (date, source, campaign_id) date, source, campaign_id, clicks, impressions, cost " +
+            "FROM metrics_staging ORDER BY date, source, campaign_id, seq DESC " +
+            "ON CONFLICT (date, source, campaign_id) WHERE source IS NOT NULL DO UPDATE SET " +
+            "clicks = EXCLUDED.clicks, impressions = EXCLUDED.impressions, cost = EXCLUDED.cost " +
+            "WHERE (metrics.clicks, metrics.impressions, metrics.cost) " +
+            "IS DISTINCT FROM (EXCLUDED.clicks, EXCLUDED.impressions, EXCLUDED.cost)";
+
+    private static final int DEFAULT_BUFFER_CHARS = 64 * 1024;
+
+    private final int flushThreshold;
+    private final StringBuilder chars;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    public CopyMetricsWriter() {
+        this(DEFAULT_BUFFER_CHARS);
+    }
+
+    public CopyMetricsWriter(int bufferChars) {
+        this.flushThreshold = bufferChars;
+        // Запас под последнюю строку, которая может перешагнуть порог
+        this.chars = new StringBuilder(bufferChars + 1024);
+        this.bytes = ByteBuffer.allocate(bufferChars * 2);
+    }
+
+    @Override
+    public int write(Connection conn, List<MetricRecord> records) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_STAGING_SQL);
+        }
+
+        long copied = copy(conn, records);
+
+        try (Statement stmt = conn.createStatement()) {
+            int merged = stmt.executeUpdate(MERGE_SQL);
+            log.debug("COPY staged {} rows, {} inserted or changed", copied, merged);
+        }
+
+        return (int) copied;
+    }
+
+    private long copy(Connection conn, List<MetricRecord> records) throws SQLException {
+        CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        chars.setLength(0);
+
+        try {
+            for (MetricRecord record : records) {
+                appendRow(record);
+                if (chars.length() >= flushThreshold) {
+                    flush(copyIn);
+                }
+            }
+            flush(copyIn);
+
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Кодирует одну строку в текстовом формате COPY: поля через TAB, NULL как \N, строка заканчивается \n
+     */
+    void appendRow(MetricRecord record) {
+        appendDate(record.getDate());
+        chars.append('\t');
+        appendText(record.getSource());
+        chars.append('\t');
+        appendText(record.getCampaignId());
+        chars.append('\t').append(record.getClicks())
+                .append('\t').append(record.getImpressions())
+                .append('\t').append(record.getCost())
+                .append('\n');
+    }
+
+    /**
+     * Текстовое поле с экранированием спецсимволов формата COPY
+     */
+    private void appendText(String value) {
+        if (value == null) {
+            chars.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    chars.append("\\\\");
+                    break;
+                case '\t':
+                    chars.append("\\t");
+                    break;
+                case '\n':
+                    chars.append("\\n");
+                    break;
+                case '\r':
+                    chars.append("\\r");
+                    break;
+                default:
+                    chars.append(c);
+            }
+        }
+    }
+
+    private void appendDate(LocalDate date) {
+        // yyyy-MM-dd без промежуточной строки
+        chars.append(date.getYear()).append('-');
+        appendTwoDigits(date.getMonthValue());
+        chars.append('-');
+        appendTwoDigits(date.getDayOfMonth());
+    }
+
+    private void appendTwoDigits(int value) {
+        if (value < 10) {
+            chars.append('0');
+        }
+        chars.append(value);
+    }
+
+    private void flush(CopyIn copyIn) throws SQLException {
+        if (chars.length() == 0) {
+            return;
+        }
+
+        CharBuffer in = CharBuffer.wrap(chars);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(in, bytes, true);
+            if (result.isOverflow()) {
+                drain(copyIn);
+                continue;
+            }
+            encoder.flush(bytes);
+            break;
+        }
+        drain(copyIn);
+        chars.setLength(0);
+    }
+
+    private void drain(CopyIn copyIn) throws SQLException {
+        if (bytes.position() > 0) {
+            copyIn.writeToCopy(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+
+    CharSequence pendingChars() {
+        return chars;
+    }
+
+    @Override
+    public String describe() {
+        return "copy-upsert";
+    }
+}
@@ -0,0 +1,76 @@
+package com.marketflow.metrics.service;
+
+import com.marketflow.metrics.model.MetricRecord;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Вспомогательные операции над пакетами строк метрик.
+ */
+final class MetricRecords {
+
+    private MetricRecords() {
+    }
+
+    /**
+     * Оставляет по одной (последней) строке на естественный ключ (date, source, campaign_id).
+     * Порядок первых вхождений сохраняется; если дублей нет, возвращается исходный список.
+     */
+    static List<MetricRecord> lastPerNaturalKey(List<MetricRecord> records) {
+        Map<NaturalKey, Integer> positions = new HashMap<>(records.size() * 2);
+        List<MetricRecord> unique = null;
+
+        for (int i = 0; i < records.size(); i++) {
+            MetricRecord record = records.get(i);
+            Integer previous = positions.putIfAbsent(new NaturalKey(record), unique != null ? unique.size() : i);
+            if (previous == null) {
+                if (unique != null) {
+                    unique.add(record);
+                }
+                continue;
+            }
+            if (unique == null) {
+                unique = new ArrayList<>(records.subList(0, i));
+            }
+            unique.set(previous, record);
+        }
+
+        return unique != null ? unique : records;
+    }
+
+    private static final class NaturalKey {
+        private final LocalDate date;
+        private final String source;
+        private final String campaignId;
+
+        NaturalKey(MetricRecord record) {
+            this.date = record.getDate();
+            this.source = record.getSource();
+            this.campaignId = record.getCampaignId();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof NaturalKey)) {
+                return false;
+            }
+            NaturalKey other = (NaturalKey) o;
+            return Objects.equals(date, other.date)
+                    && Objects.equals(source, other.source)
+                    && Objects.equals(campaignId, other.campaignId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(date, source, campaignId);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.marketflow.metrics.service;
+
+import com.marketflow.metrics.model.MetricRecord;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Стратегия записи метрик в БД. Транзакцией управляет вызывающий код.
+ */
+public interface MetricsWriter {
+
+    /**
+     * Записывает метрики через переданное соединение
+     * @return количество записанных строк
+     */
+    int write(Connection conn, List<MetricRecord> records) throws SQLException;
+
+    /**
+     * Короткое имя режима для логов
+     */
+    String describe();
+}
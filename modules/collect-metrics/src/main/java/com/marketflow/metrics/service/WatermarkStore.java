@@ -0,0 +1,99 @@
+package com.marketflow.metrics.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Водяные знаки инкрементального сбора (таблица collection_watermarks).
+ * Знак двигается только вперед и только на закрытые дни: сегодняшний день еще меняется
+ * у платформ и перезапрашивается при каждом запуске.
+ * Транзакцией управляет вызывающий код: знак фиксируется в той же транзакции, что и строки метрик.
+ */
+public class WatermarkStore {
+
+    static final String SELECT_SQL = "SELECT source, loaded_through FROM collection_watermarks";
+
+    static final String UPSERT_SQL =
+            "INSERT INTO collection_watermarks(source, loaded_through, updated_at) VALUES (?, ?, now()) " +
+            "ON CONFLICT (source) DO UPDATE SET " +
+            "loaded_through = EXCLUDED.loaded_through, updated_at = EXCLUDED.updated_at " +
+            "WHERE collection_watermarks.loaded_through < EXCLUDED.loaded_through";
+
+    private final Clock clock;
+
+    public WatermarkStore() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public WatermarkStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Загружает водяные знаки уровня платформы
+     * @return последний полностью загруженный день по коду платформы
+     */
+    public Map<String, LocalDate> loadPlatformWatermarks(Connection conn) throws SQLException {
+        Map<String, LocalDate> watermarks = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                watermarks.put(rs.getString("source"), rs.getObject("loaded_through", LocalDate.class));
+            }
+        }
+        return watermarks;
+    }
+
+    /**
+     * Двигает водяные знаки платформ по записанному пакету.
+     * Знака уровня платформы достаточно: платформы запрашиваются диапазонами дат целиком,
+     * а повторная загрузка дня после перезапуска идемпотентна по естественному ключу метрик
+     * @param completedDays последний завершенный день по платформам, все строки которого есть в этом
+     *                      или предыдущих пакетах
+     * @return количество отправленных обновлений
+     */
+    public int advance(Connection conn, Map<String, LocalDate> completedDays) throws SQLException {
+        LocalDate today = LocalDate.now(clock);
+        Map<String, LocalDate> closed = new HashMap<>();
+        completedDays.forEach((platform, day) -> {
+            if (day.isBefore(today)) {
+                closed.put(platform, day);
+            }
+        });
+        if (closed.isEmpty()) {
+            return 0;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (Map.Entry<String, LocalDate> entry : closed.entrySet()) {
+                stmt.setString(1, entry.getKey());
+                stmt.setObject(2, entry.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return closed.size();
+    }
+
+    /**
+     * Первая дата, которую нужно запросить у платформы: день после водяного знака,
+     * но не раньше чем за catchUpMaxDays до сегодня. Без знака - вчера, чтобы закрыть первый день.
+     */
+    public static LocalDate nextStart(LocalDate watermark, LocalDate today, int catchUpMaxDays) {
+        if (watermark == null) {
+            return today.minusDays(1);
+        }
+        LocalDate next = watermark.plusDays(1);
+        LocalDate earliest = today.minusDays(catchUpMaxDays);
+        if (next.isBefore(earliest)) {
+            return earliest;
+        }
+        return next.isAfter(today) ? today : next;
+    }
+}
@@ -0,0 +1,16 @@
+-- Естественный ключ метрик: одна строка на дату, источник и кампанию.
+-- Строки без source (записанные до появления этой колонки) в ключ не входят.
+-- NULLS NOT DISTINCT (PostgreSQL 15+) - строка уровня платформы без campaign_id тоже уникальна.
+
+-- Удаляем дубликаты повторных запусков, оставляя последнюю загруженную строку
+DELETE FROM metrics m
+USING metrics newer
+WHERE m.source IS NOT NULL
+  AND m.date = newer.date
+  AND m.source = newer.source
+  AND m.campaign_id IS NOT DISTINCT FROM newer.campaign_id
+  AND m.id < newer.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_metrics_date_source_campaign
+    ON metrics(date, source, campaign_id) NULLS NOT DISTINCT
+    WHERE source IS NOT NULL;
@@ -0,0 +1,9 @@
+-- Водяные знаки инкрементального сбора: последний закрытый день, полностью загруженный в metrics.
+-- Знак ведется на уровне платформы: по нему выбирается диапазон догрузки,
+-- а повторная загрузка дня идемпотентна по естественному ключу metrics.
+CREATE TABLE IF NOT EXISTS collection_watermarks (
+    source VARCHAR(50) NOT NULL,
+    loaded_through DATE NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (source)
+);
@@ -3,10 +3,12 @@ package com.marketflow.metrics;
 import com.marketflow.metrics.config.CollectorConfig;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class CollectorAppTest {
 
@@ -38,4 +40,26 @@ public class CollectorAppTest {
         assertEquals("yandex", config.getPlatforms().get(0));
         assertEquals("google", config.getPlatforms().get(1));
     }
+
+    @Test
+    public void testParseDateRange() {
+        LocalDate today = LocalDate.of(2025, 6, 30);
+
+        // Без аргументов - только сегодня
+        LocalDate[] range = CollectorApp.parseDateRange(new String[0], today);
+        assertEquals(today, range[0]);
+        assertEquals(today, range[1]);
+
+        // Бэкфилл до сегодняшнего дня
+        range = CollectorApp.parseDateRange(new String[]{"--from=2025-03-01"}, today);
+        assertEquals(LocalDate.of(2025, 3, 1), range[0]);
+        assertEquals(today, range[1]);
+
+        range = CollectorApp.parseDateRange(new String[]{"--from=2025-01-01", "--to=2025-01-31"}, today);
+        assertEquals(LocalDate.of(2025, 1, 1), range[0]);
+        assertEquals(LocalDate.of(2025, 1, 31), range[1]);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CollectorApp.parseDateRange(new String[]{"--from=2025-02-01", "--to=2025-01-01"}, today));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+package com.marketflow.metrics.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.HttpResponseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlatformHttpClientTest {
+
+    private static final String PLATFORM = "yandex";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private PlatformHttpClient client;
+    private String baseUrl;
+
+    @BeforeEach
+    public void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        client = new PlatformHttpClient(8, Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    public void stop() {
+        client.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void register(int maxAttempts, int failureThreshold, long timeoutMs) {
+        register(maxAttempts, failureThreshold, timeoutMs, 50);
+    }
+
+    private void register(int maxAttempts, int failureThreshold, long timeoutMs, long maxDelayMs) {
+        client.registerPlatform(PLATFORM, new PlatformPolicy(Duration.ofMillis(timeoutMs),
+                new TokenBucketRateLimiter(1_000, 1_000),
+                new RetryPolicy(maxAttempts, Duration.ofMillis(10), Duration.ofMillis(maxDelayMs)),
+                new CircuitBreaker(failureThreshold, Duration.ofMinutes(1))));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    @Test
+    public void testThrottledRequestRetriedAfterRetryAfter() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext("/throttled", exchange -> {
+            if (hits.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429, "{}");
+            } else {
+                respond(exchange, 200, "{\"ok\":true}");
+            }
+        });
+        register(3, 5, 2_000, 2_000);
+
+        long start = System.nanoTime();
+        byte[] body = client.get(PLATFORM, baseUrl + "/throttled", "token");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("{\"ok\":true}", new String(body, StandardCharsets.UTF_8));
+        assertEquals(2, hits.get());
+        assertTrue(elapsedMs >= 1_000, "Retry-After must be honoured, got " + elapsedMs + " ms");
+        assertEquals(2, client.getLatencyHistograms().get(PLATFORM).getCount());
+    }
+
+    @Test
+    public void testSlowResponseTimesOutAndIsRetried() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext("/slow", exchange -> {
+            if (hits.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(3_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, 200, "{}");
+        });
+        register(3, 5, 200);
+
+        long start = System.nanoTime();
+        byte[] body = client.get(PLATFORM, baseUrl + "/slow", null);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("{}", new String(body, StandardCharsets.UTF_8));
+        assertTrue(hits.get() >= 2);
+        assertTrue(elapsedMs < 2_000, "slow response must be cut off by the timeout, got " + elapsedMs + " ms");
+    }
+
+    @Test
+    public void testRetriesExhaustedAndCircuitOpens() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext("/down", exchange -> {
+            hits.incrementAndGet();
+            respond(exchange, 503, "{}");
+        });
+        register(3, 3, 2_000);
+
+        HttpResponseException e = assertThrows(HttpResponseException.class,
+                () -> client.get(PLATFORM, baseUrl + "/down", null));
+        assertEquals(503, e.getStatusCode());
+        assertEquals(3, hits.get());
+
+        // Три ошибки подряд открыли цепь: следующий запрос не доходит до сервера
+        assertThrows(CircuitOpenException.class, () -> client.get(PLATFORM, baseUrl + "/down", null));
+        assertEquals(3, hits.get());
+        assertEquals(CircuitBreaker.State.OPEN, client.getPolicy(PLATFORM).getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testClientErrorNotRetried() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext("/missing", exchange -> {
+            hits.incrementAndGet();
+            respond(exchange, 404, "{}");
+        });
+        register(3, 1, 2_000);
+
+        HttpResponseException e = assertThrows(HttpResponseException.class,
+                () -> client.get(PLATFORM, baseUrl + "/missing", null));
+        assertEquals(404, e.getStatusCode());
+        assertEquals(1, hits.get());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getPolicy(PLATFORM).getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testServerErrorOpensCircuit() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext("/broken", exchange -> {
+            hits.incrementAndGet();
+            respond(exchange, 500, "{}");
+        });
+        register(3, 3, 2_000);
+
+        // 500 не повторяется, но каждый ответ считается ошибкой цепи
+        for (int i = 0; i < 3; i++) {
+            HttpResponseException e = assertThrows(HttpResponseException.class,
+                    () -> client.get(PLATFORM, baseUrl + "/broken", null));
+            assertEquals(500, e.getStatusCode());
+        }
+        assertEquals(3, hits.get());
+
+        assertThrows(CircuitOpenException.class, () -> client.get(PLATFORM, baseUrl + "/broken", null));
+        assertEquals(3, hits.get());
+        assertEquals(CircuitBreaker.State.OPEN, client.getPolicy(PLATFORM).getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testClientErrorsKeepCircuitClosed() throws Exception {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext("/bad", exchange -> respond(exchange, hits.incrementAndGet() % 2 == 0 ? 400 : 404, "{}"));
+        register(3, 2, 2_000);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpResponseException.class, () -> client.get(PLATFORM, baseUrl + "/bad", null));
+        }
+        assertEquals(4, hits.get());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getPolicy(PLATFORM).getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testNoContentIsSuccess() throws Exception {
+        server.createContext("/empty", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        register(1, 1, 2_000);
+
+        assertEquals(0, client.get(PLATFORM, baseUrl + "/empty", null).length);
+        assertEquals(CircuitBreaker.State.CLOSED, client.getPolicy(PLATFORM).getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void testRetryAfterCappedAtMaxDelay() {
+        RetryPolicy retry = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofSeconds(5));
+
+        assertEquals(1_000, retry.delayMs(1, 1_000));
+        assertEquals(5_000, retry.delayMs(1, 86_400_000));
+    }
+
+    @Test
+    public void testRateLimitSpacesRequests() throws Exception {
+        server.createContext("/ok", exchange -> respond(exchange, 200, "{}"));
+        client.registerPlatform(PLATFORM, new PlatformPolicy(Duration.ofSeconds(2),
+                new TokenBucketRateLimiter(10, 1),
+                new RetryPolicy(1, Duration.ofMillis(10), Duration.ofMillis(10)),
+                new CircuitBreaker(5, Duration.ofMinutes(1))));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            client.get(PLATFORM, baseUrl + "/ok", null);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Первый запрос из ведра, еще пять по 100 мс
+        assertTrue(elapsedMs >= 450, "expected ~500 ms at 10 rps, got " + elapsedMs + " ms");
+    }
+}
@@ -0,0 +1,35 @@
+package com.marketflow.metrics.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenBucketRateLimiterTest {
+
+    @Test
+    public void testBurstThenQueuedReservations() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2, clock::get);
+
+        // Два запроса проходят сразу, дальше каждый ждет свои 100 мс в очереди
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(100, TimeUnit.NANOSECONDS.toMillis(limiter.reserve()));
+        assertEquals(200, TimeUnit.NANOSECONDS.toMillis(limiter.reserve()));
+
+        // Через секунду долг погашен, ведро снова полное, но не больше burst
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(100, TimeUnit.NANOSECONDS.toMillis(limiter.reserve()));
+    }
+
+    @Test
+    public void testRejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1));
+    }
+}
@@ -0,0 +1,79 @@
+package com.marketflow.metrics.instrumentation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsReportWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private static RunSummary sampleRun() {
+        CollectorMetrics metrics = new CollectorMetrics();
+        metrics.recordStage(CollectorMetrics.STAGE_FETCH, "yandex", TimeUnit.MILLISECONDS.toNanos(120));
+        metrics.recordStage(CollectorMetrics.STAGE_FETCH, "yandex", TimeUnit.MILLISECONDS.toNanos(80));
+        metrics.recordStage(CollectorMetrics.STAGE_WRITE, CollectorMetrics.ALL_PLATFORMS,
+                TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.recordDbBatch(TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.recordDbBatch(TimeUnit.MILLISECONDS.toNanos(40));
+        metrics.addRows("yandex", 250);
+        metrics.incrementError(CollectorMetrics.ERROR_PLATFORM_FAILURE, "vk");
+
+        LatencyHistogram http = new LatencyHistogram();
+        http.record(TimeUnit.MILLISECONDS.toNanos(70));
+
+        RunSummary summary = RunSummary.start("incremental", "up to 2025-06-15", metrics);
+        summary.finish(true, null, 250, 2);
+        summary.addHttpStats("yandex", new RunSummary.HttpStats(http, 1, 1, 0, 0, "CLOSED"));
+        return summary;
+    }
+
+    @Test
+    public void testJsonSummary() throws Exception {
+        new MetricsReportWriter(dir, "1.2.3").write(sampleRun());
+
+        JsonNode json = new ObjectMapper().readTree(dir.resolve(MetricsReportWriter.JSON_FILE).toFile());
+        assertEquals("1.2.3", json.get("version").asText());
+        assertEquals("success", json.get("status").asText());
+        assertEquals(250, json.get("written_rows").asLong());
+        assertEquals(250, json.at("/rows_by_platform/yandex").asLong());
+        assertEquals(2, json.at("/stages/fetch/yandex/count").asLong());
+        assertEquals(200, json.at("/stages/fetch/yandex/total_ms").asLong());
+        assertEquals(120, json.at("/stages/fetch/yandex/max_ms").asLong());
+        assertEquals(30, json.at("/stages/write/all/total_ms").asLong());
+        assertEquals(2, json.at("/db_batch_latency/count").asLong());
+        assertEquals(1, json.at("/http/yandex/throttled").asLong());
+        assertEquals(1, json.at("/errors/platform_failure/vk").asLong());
+        // Временные файлы не остаются
+        assertFalse(Files.exists(dir.resolve(MetricsReportWriter.JSON_FILE + ".tmp")));
+    }
+
+    @Test
+    public void testPrometheusText() throws Exception {
+        new MetricsReportWriter(dir, null).write(sampleRun());
+
+        String prom = new String(Files.readAllBytes(dir.resolve(MetricsReportWriter.PROMETHEUS_FILE)),
+                StandardCharsets.UTF_8);
+        assertTrue(prom.contains("# TYPE marketflow_collector_db_batch_seconds histogram\n"));
+        assertTrue(prom.contains("marketflow_collector_run_success 1\n"));
+        assertTrue(prom.contains("marketflow_collector_platform_rows{platform=\"yandex\"} 250\n"));
+        assertTrue(prom.contains("marketflow_collector_stage_seconds{stage=\"fetch\",platform=\"yandex\"} 0.200000\n"));
+        // Корзины накопительные: 3 мс в le=0.005, 40 мс добавляется в le=0.05
+        assertTrue(prom.contains("marketflow_collector_db_batch_seconds_bucket{le=\"0.005000\"} 1\n"));
+        assertTrue(prom.contains("marketflow_collector_db_batch_seconds_bucket{le=\"0.050000\"} 2\n"));
+        assertTrue(prom.contains("marketflow_collector_db_batch_seconds_bucket{le=\"+Inf\"} 2\n"));
+        assertTrue(prom.contains("marketflow_collector_http_request_seconds_count{platform=\"yandex\"} 1\n"));
+        assertTrue(prom.contains("marketflow_collector_errors{kind=\"platform_failure\",platform=\"vk\"} 1\n"));
+    }
+}
@@ -0,0 +1,219 @@
+package com.marketflow.metrics.pipeline;
+
+import com.marketflow.metrics.instrumentation.CollectorMetrics;
+import com.marketflow.metrics.model.MetricRecord;
+import com.marketflow.metrics.pipeline.MetricsPipeline.PipelineResult;
+import com.marketflow.metrics.platform.ParallelCollectionRunner;
+import com.marketflow.metrics.platform.PlatformCollector;
+import com.marketflow.metrics.platform.RecordSink;
+import com.marketflow.metrics.service.MetricsWriter;
+import com.marketflow.metrics.service.WatermarkStore;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MetricsPipelineTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 1, 10);
+
+    @Test
+    public void testAllRowsWrittenInBoundedBatches() throws Exception {
+        RecordingWriter writer = new RecordingWriter(0, false);
+        List<PlatformCollector> collectors = Arrays.asList(new CampaignCollector("yandex", 50),
+                new CampaignCollector("google", 30));
+
+        CollectorMetrics metrics = new CollectorMetrics();
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(collectors, platform -> 5_000);
+             MetricsPipeline pipeline = new MetricsPipeline(mockDataSource(), writer, runner, null, metrics, 16, 25)) {
+            PipelineResult result = pipeline.run(FROM, TO);
+
+            // 10 дней * (50 + 30) кампаний
+            assertEquals(800, result.getWritten());
+            assertEquals(800, result.getStats().getProducedRecords());
+            assertEquals(800, result.getStats().getWrittenRecords());
+            assertEquals(500L, result.getCollection().getRowsByPlatform().get("yandex"));
+            assertTrue(writer.batchSizes.stream().allMatch(size -> size <= 25));
+
+            // Каждый пакет измерен на стадиях записи и коммита
+            long batches = result.getStats().getWrittenBatches();
+            assertEquals(batches, metrics.getDbBatchLatency().getCount());
+            assertEquals(batches, metrics.getStages().get(CollectorMetrics.STAGE_WRITE)
+                    .get(CollectorMetrics.ALL_PLATFORMS).getCount());
+            assertEquals(batches, metrics.getStages().get(CollectorMetrics.STAGE_COMMIT)
+                    .get(CollectorMetrics.ALL_PLATFORMS).getCount());
+        }
+    }
+
+    @Test
+    public void testSlowWriterAppliesBackpressure() throws Exception {
+        RecordingWriter writer = new RecordingWriter(20, false);
+        List<PlatformCollector> collectors = Arrays.asList(new CampaignCollector("vk", 20));
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(collectors, platform -> 5_000);
+             MetricsPipeline pipeline = new MetricsPipeline(mockDataSource(), writer, runner, 4, 4)) {
+            PipelineResult result = pipeline.run(FROM, FROM);
+
+            assertEquals(20, result.getWritten());
+            assertTrue(result.getStats().getProducerBlockedMillis() > 0,
+                    "producer must wait for queue space when the writer is slow");
+        }
+    }
+
+    @Test
+    public void testWriterFailureAbortsCollection() throws Exception {
+        RecordingWriter writer = new RecordingWriter(0, true);
+        List<PlatformCollector> collectors = Arrays.asList(new CampaignCollector("yandex", 1_000));
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(collectors, platform -> 5_000);
+             MetricsPipeline pipeline = new MetricsPipeline(mockDataSource(), writer, runner, 8, 8)) {
+            Exception e = assertThrows(Exception.class, () -> pipeline.run(FROM, TO));
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    @Test
+    public void testWatermarksAdvanceAfterRowsOfTheDay() throws Exception {
+        RecordingWriter writer = new RecordingWriter(0, false);
+        RecordingWatermarks watermarks = new RecordingWatermarks(writer);
+        List<PlatformCollector> collectors = Arrays.asList(new CampaignCollector("yandex", 7),
+                new CampaignCollector("google", 3));
+
+        Map<String, LocalDate> startDates = new HashMap<>();
+        startDates.put("yandex", FROM);
+        startDates.put("google", TO.minusDays(1));
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(collectors, platform -> 5_000);
+             MetricsPipeline pipeline = new MetricsPipeline(mockDataSource(), writer, runner, watermarks, 16, 5)) {
+            PipelineResult result = pipeline.run(startDates::get, TO);
+
+            assertEquals(10 * 7 + 2 * 3, result.getWritten());
+            assertEquals(TO, watermarks.completed.get("yandex"));
+            assertEquals(TO, watermarks.completed.get("google"));
+            assertTrue(watermarks.violations.isEmpty(), "day checkpoint ahead of its rows: " + watermarks.violations);
+        }
+    }
+
+    @Test
+    public void testBackfillDoesNotMoveWatermarks() throws Exception {
+        RecordingWriter writer = new RecordingWriter(0, false);
+        WatermarkStore watermarks = mock(WatermarkStore.class);
+        List<PlatformCollector> collectors = Arrays.asList(new CampaignCollector("vk", 5));
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(collectors, platform -> 5_000);
+             MetricsPipeline pipeline = new MetricsPipeline(mockDataSource(), writer, runner, watermarks, 16, 5)) {
+            assertEquals(50, pipeline.run(FROM, TO).getWritten());
+            verify(watermarks, never()).advance(any(), any());
+        }
+    }
+
+    private static DataSource mockDataSource() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+        return dataSource;
+    }
+
+    private static class CampaignCollector implements PlatformCollector {
+        private final String platform;
+        private final int campaigns;
+
+        CampaignCollector(String platform, int campaigns) {
+            this.platform = platform;
+            this.campaigns = campaigns;
+        }
+
+        @Override
+        public String getPlatform() {
+            return platform;
+        }
+
+        @Override
+        public void collect(LocalDate date, RecordSink sink) throws InterruptedException {
+            for (int i = 0; i < campaigns; i++) {
+                sink.accept(new MetricRecord(date, platform, String.valueOf(i), i, i * 10, i * 0.5));
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что отметка дня приходит не раньше записи всех строк этого дня
+     */
+    private static class RecordingWatermarks extends WatermarkStore {
+        private final RecordingWriter writer;
+        final Map<String, LocalDate> completed = new ConcurrentHashMap<>();
+        final List<String> violations = new CopyOnWriteArrayList<>();
+
+        RecordingWatermarks(RecordingWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public int advance(Connection conn, Map<String, LocalDate> completedDays) {
+            for (Map.Entry<String, LocalDate> day : completedDays.entrySet()) {
+                String key = day.getKey() + "/" + day.getValue();
+                if (writer.rowsByPlatformDay.getOrDefault(key, 0) != writer.expectedPerDay(day.getKey())) {
+                    violations.add(key);
+                }
+                completed.merge(day.getKey(), day.getValue(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+            return completedDays.size();
+        }
+    }
+
+    private static class RecordingWriter implements MetricsWriter {
+        private final long delayMs;
+        private final boolean fail;
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final Map<String, Integer> rowsByPlatformDay = new ConcurrentHashMap<>();
+
+        int expectedPerDay(String platform) {
+            return "yandex".equals(platform) ? 7 : 3;
+        }
+
+        RecordingWriter(long delayMs, boolean fail) {
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public int write(Connection conn, List<MetricRecord> records) throws SQLException {
+            if (fail) {
+                throw new SQLException("connection lost");
+            }
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(records.size());
+            for (MetricRecord record : records) {
+                rowsByPlatformDay.merge(record.getSource() + "/" + record.getDate(), 1, Integer::sum);
+            }
+            return records.size();
+        }
+
+        @Override
+        public String describe() {
+            return "recording";
+        }
+    }
+}
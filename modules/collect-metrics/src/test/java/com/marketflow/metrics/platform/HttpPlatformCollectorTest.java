@@ -0,0 +1,107 @@
+package com.marketflow.metrics.platform;
+
+import com.marketflow.metrics.model.MetricRecord;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.HttpResponseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HttpPlatformCollectorTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 5, 20);
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub("/yandex", 200, "{\"rows\":[{\"CampaignId\":\"101\",\"Clicks\":10,\"Impressions\":1000,\"Cost\":150.5},"
+                + "{\"CampaignId\":\"102\",\"Clicks\":3,\"Impressions\":90,\"Cost\":12.0}]}");
+        stub("/google", 200, "{\"results\":[{\"campaign\":{\"id\":\"7\"},"
+                + "\"metrics\":{\"clicks\":\"25\",\"impressions\":\"4000\",\"costMicros\":\"31250000\"}}]}");
+        stub("/vk", 200, "{\"response\":[{\"id\":55,\"stats\":[{\"day\":\"2025-05-20\",\"clicks\":4,"
+                + "\"impressions\":700,\"spent\":\"80.25\"}]}]}");
+        stub("/broken", 503, "{}");
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void stub(String path, int status, String body) {
+        server.createContext(path, exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+    }
+
+    private static List<MetricRecord> collect(PlatformCollector collector) throws Exception {
+        List<MetricRecord> records = new ArrayList<>();
+        collector.collect(DATE, records::add);
+        return records;
+    }
+
+    @Test
+    public void testYandexDirectResponseParsed() throws Exception {
+        try (YandexDirectCollector collector = new YandexDirectCollector(baseUrl + "/yandex", "token", 2000)) {
+            List<MetricRecord> records = collect(collector);
+
+            assertEquals(2, records.size());
+            assertEquals("yandex", records.get(0).getSource());
+            assertEquals("101", records.get(0).getCampaignId());
+            assertEquals(10, records.get(0).getClicks());
+            assertEquals(1000, records.get(0).getImpressions());
+            assertEquals(150.5, records.get(0).getCost(), 1e-9);
+            assertEquals(DATE, records.get(1).getDate());
+        }
+    }
+
+    @Test
+    public void testGoogleAdsCostConvertedFromMicros() throws Exception {
+        try (GoogleAdsCollector collector = new GoogleAdsCollector(baseUrl + "/google", null, 2000)) {
+            List<MetricRecord> records = collect(collector);
+
+            assertEquals(1, records.size());
+            assertEquals("7", records.get(0).getCampaignId());
+            assertEquals(25, records.get(0).getClicks());
+            assertEquals(31.25, records.get(0).getCost(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testVkAdsStatsParsed() throws Exception {
+        try (VkAdsCollector collector = new VkAdsCollector(baseUrl + "/vk", null, 2000)) {
+            List<MetricRecord> records = collect(collector);
+
+            assertEquals(1, records.size());
+            assertEquals("55", records.get(0).getCampaignId());
+            assertEquals(700, records.get(0).getImpressions());
+            assertEquals(80.25, records.get(0).getCost(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testNonOkStatusFails() throws Exception {
+        try (YandexDirectCollector collector = new YandexDirectCollector(baseUrl + "/broken", null, 2000)) {
+            HttpResponseException e = assertThrows(HttpResponseException.class, () -> collect(collector));
+            assertEquals(503, e.getStatusCode());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.marketflow.metrics.platform;
+
+import com.marketflow.metrics.model.MetricRecord;
+import com.marketflow.metrics.platform.ParallelCollectionRunner.CollectionResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelCollectionRunnerTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 5, 20);
+
+    @Test
+    public void testSlowAndFailingPlatformsDoNotBlockOthers() throws Exception {
+        PlatformCollector fast = new StubCollector("yandex", 0, false);
+        PlatformCollector slow = new StubCollector("google", 5_000, false);
+        PlatformCollector failing = new StubCollector("vk", 0, true);
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(
+                Arrays.asList(fast, slow, failing), platform -> "google".equals(platform) ? 200 : 2_000)) {
+            List<MetricRecord> records = new CopyOnWriteArrayList<>();
+            long start = System.nanoTime();
+            CollectionResult result = runner.collect(DATE, DATE, records::add);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(1, records.size());
+            assertEquals("yandex", records.get(0).getSource());
+            assertEquals(Collections.singletonMap("yandex", 1L), result.getRowsByPlatform());
+            assertTrue(result.getFailures().containsKey("google"));
+            assertTrue(result.getFailures().containsKey("vk"));
+            assertFalse(result.allFailed());
+            assertTrue(elapsedMs < 2_000, "slow platform must be cut off by its own timeout");
+        }
+    }
+
+    @Test
+    public void testPlatformsRunConcurrently() throws Exception {
+        List<PlatformCollector> collectors = Arrays.asList(
+                new StubCollector("yandex", 300, false),
+                new StubCollector("google", 300, false),
+                new StubCollector("vk", 300, false));
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(collectors, platform -> 5_000)) {
+            List<MetricRecord> records = new CopyOnWriteArrayList<>();
+            long start = System.nanoTime();
+            CollectionResult result = runner.collect(DATE, DATE, records::add);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(3, records.size());
+            assertEquals(3, result.getRowsByPlatform().size());
+            assertTrue(elapsedMs < 800, "expected wall time of the slowest platform, got " + elapsedMs + " ms");
+        }
+    }
+
+    @Test
+    public void testPerPlatformStartDatesAndDayCheckpoints() throws Exception {
+        List<PlatformCollector> collectors = Arrays.asList(
+                new StubCollector("yandex", 0, false),
+                new StubCollector("google", 0, false),
+                new StubCollector("vk", 0, false));
+        Map<String, LocalDate> startDates = new HashMap<>();
+        startDates.put("yandex", DATE.minusDays(2));
+        startDates.put("google", DATE);
+        startDates.put("vk", DATE.plusDays(1));
+
+        try (ParallelCollectionRunner runner = new ParallelCollectionRunner(collectors, platform -> 5_000)) {
+            List<String> events = new CopyOnWriteArrayList<>();
+            CollectionResult result = runner.collect(startDates::get, DATE, new RecordSink() {
+                @Override
+                public void accept(MetricRecord record) {
+                    events.add("row " + record.getSource() + " " + record.getDate());
+                }
+
+                @Override
+                public void dayCompleted(String platform, LocalDate date) {
+                    events.add("done " + platform + " " + date);
+                }
+            });
+
+            assertEquals(3L, result.getRowsByPlatform().get("yandex"));
+            assertEquals(1L, result.getRowsByPlatform().get("google"));
+            // Начальная дата позже конечной - платформа уже догружена
+            assertEquals(0L, result.getRowsByPlatform().get("vk"));
+            assertTrue(result.getFailures().isEmpty());
+
+            for (LocalDate date = DATE.minusDays(2); !date.isAfter(DATE); date = date.plusDays(1)) {
+                int row = events.indexOf("row yandex " + date);
+                int done = events.indexOf("done yandex " + date);
+                assertTrue(row >= 0 && row < done, "checkpoint must follow the rows of its day: " + events);
+            }
+            assertFalse(events.stream().anyMatch(event -> event.contains("vk")));
+        }
+    }
+
+    private static class StubCollector implements PlatformCollector {
+        private final String platform;
+        private final long delayMs;
+        private final boolean fail;
+
+        StubCollector(String platform, long delayMs, boolean fail) {
+            this.platform = platform;
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public String getPlatform() {
+            return platform;
+        }
+
+        @Override
+        public void collect(LocalDate date, RecordSink sink) throws Exception {
+            Thread.sleep(delayMs);
+            if (fail) {
+                throw new IllegalStateException("API unavailable");
+            }
+            sink.accept(new MetricRecord(date, platform, "1", 1, 10, 1.0));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.marketflow.metrics.service;
+
+import com.marketflow.metrics.model.MetricRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchMetricsWriterTest {
+
+    @Test
+    public void testWriteFlushesEveryBatchSizeRows() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(stmt);
+
+        List<MetricRecord> records = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            records.add(new MetricRecord(LocalDate.of(2025, 1, 1), "yandex", String.valueOf(i), i, i * 10, i * 1.5));
+        }
+
+        int written = new BatchMetricsWriter(10).write(conn, records);
+
+        // 10 + 10 + хвост из 5 строк
+        assertEquals(25, written);
+        verify(stmt, times(25)).addBatch();
+        verify(stmt, times(3)).executeBatch();
+    }
+
+    @Test
+    public void testDuplicateKeysCollapsedToLastRow() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(stmt);
+
+        LocalDate date = LocalDate.of(2025, 1, 1);
+        List<MetricRecord> records = Arrays.asList(
+                new MetricRecord(date, "yandex", "1", 10, 100, 1.0),
+                new MetricRecord(date, "yandex", "2", 20, 200, 2.0),
+                new MetricRecord(date, "yandex", "1", 11, 110, 1.1),
+                new MetricRecord(date, "google", null, 30, 300, 3.0),
+                new MetricRecord(date, "google", null, 31, 310, 3.1));
+
+        int written = new BatchMetricsWriter(100).write(conn, records);
+
+        assertEquals(3, written);
+        verify(stmt, times(3)).addBatch();
+        // Для ключа (yandex, 1) отправлено последнее значение, на месте первого вхождения
+        InOrder inOrder = inOrder(stmt);
+        inOrder.verify(stmt).setInt(4, 11);
+        inOrder.verify(stmt).setInt(4, 20);
+        inOrder.verify(stmt).setInt(4, 31);
+        verify(stmt, never()).setInt(4, 10);
+        verify(stmt, never()).setInt(4, 30);
+    }
+
+    @Test
+    public void testRejectsNonPositiveBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchMetricsWriter(0));
+    }
+}
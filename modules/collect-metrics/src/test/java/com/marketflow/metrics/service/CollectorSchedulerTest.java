@@ -0,0 +1,90 @@
+package com.marketflow.metrics.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CollectorSchedulerTest {
+
+    @Test
+    public void testCyclesRunAtCadenceAndSurviveFailures() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch fiveCycles = new CountDownLatch(5);
+
+        CollectorScheduler scheduler = new CollectorScheduler(() -> {
+            fiveCycles.countDown();
+            if (calls.incrementAndGet() % 2 == 0) {
+                throw new IllegalStateException("All platforms failed");
+            }
+            return 10;
+        }, Duration.ofMillis(20), Duration.ofSeconds(1));
+        try {
+            scheduler.start();
+            assertTrue(fiveCycles.await(5, TimeUnit.SECONDS), "schedule must continue after a failed cycle");
+        } finally {
+            scheduler.close();
+        }
+
+        assertTrue(scheduler.getCompletedCycles() >= 3);
+        assertTrue(scheduler.getFailedCycles() >= 2);
+    }
+
+    @Test
+    public void testSlowCycleIsNotOverlapped() throws Exception {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch twoCycles = new CountDownLatch(2);
+
+        CollectorScheduler scheduler = new CollectorScheduler(() -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            Thread.sleep(150);
+            concurrent.decrementAndGet();
+            twoCycles.countDown();
+            return 0;
+        }, Duration.ofMillis(20), Duration.ofSeconds(1));
+        try {
+            scheduler.start();
+            assertTrue(twoCycles.await(5, TimeUnit.SECONDS));
+        } finally {
+            scheduler.close();
+        }
+
+        assertEquals(1, maxConcurrent.get());
+        assertTrue(scheduler.getSkippedTicks() > 0, "ticks during a running cycle must be skipped");
+    }
+
+    @Test
+    public void testCloseWaitsForRunningCycle() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+
+        CollectorScheduler scheduler = new CollectorScheduler(() -> {
+            started.countDown();
+            Thread.sleep(200);
+            finished.incrementAndGet();
+            return 0;
+        }, Duration.ofMinutes(10), Duration.ofSeconds(5));
+        scheduler.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        scheduler.close();
+        scheduler.awaitStop();
+
+        // Текущий цикл доработал, новых не стартовало
+        assertEquals(1, finished.get());
+        assertEquals(1, scheduler.getCompletedCycles());
+    }
+
+    @Test
+    public void testRejectsNonPositiveInterval() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CollectorScheduler(() -> 0, Duration.ZERO, Duration.ofSeconds(1)));
+    }
+}
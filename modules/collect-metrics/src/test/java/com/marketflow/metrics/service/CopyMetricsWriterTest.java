@@ -0,0 +1,33 @@
+package com.marketflow.metrics.service;
+
+import com.marketflow.metrics.model.MetricRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CopyMetricsWriterTest {
+
+    @Test
+    public void testRowEncodedInCopyTextFormat() {
+        CopyMetricsWriter writer = new CopyMetricsWriter();
+
+        writer.appendRow(new MetricRecord(LocalDate.of(2025, 3, 7), "yandex", "101", 120, 4500, 1234.5));
+        writer.appendRow(new MetricRecord(LocalDate.of(2025, 12, 31), "vk", null, 0, 0, 0.0));
+
+        assertEquals("2025-03-07\tyandex\t101\t120\t4500\t1234.5\n"
+                        + "2025-12-31\tvk\t\\N\t0\t0\t0.0\n",
+                writer.pendingChars().toString());
+    }
+
+    @Test
+    public void testSpecialCharactersEscaped() {
+        CopyMetricsWriter writer = new CopyMetricsWriter();
+
+        writer.appendRow(new MetricRecord(LocalDate.of(2025, 1, 2), "google", "a\tb\\c\nd", 1, 2, 3.0));
+
+        assertEquals("2025-01-02\tgoogle\ta\\tb\\\\c\\nd\t1\t2\t3.0\n",
+                writer.pendingChars().toString());
+    }
+}
@@ -0,0 +1,71 @@
+package com.marketflow.metrics.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LiquibaseChangelogTest {
+
+    private static final Pattern INCLUDE = Pattern.compile("<include\\s+file=\"([^\"]+)\"");
+    // Отдельный changelog для ручного сброса схемы, в основной не входит
+    private static final Set<String> STANDALONE = Set.of("changelog/02_drop_schema.xml");
+
+    @Test
+    public void testEveryChangelogFileIsIncluded() throws Exception {
+        Path db = resource("db");
+        List<String> included = includes(db);
+
+        List<String> files;
+        try (Stream<Path> stream = Files.list(db.resolve("changelog"))) {
+            files = stream.map(file -> "changelog/" + file.getFileName())
+                    .filter(file -> !STANDALONE.contains(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        // Миграции подключаются все и по порядку номеров
+        assertEquals(files, included);
+    }
+
+    @Test
+    public void testWatermarkKeyMatchesUpsert() throws Exception {
+        Path db = resource("db");
+        String schema = new String(Files.readAllBytes(db.resolve("changelog/04_collection_watermarks.sql")),
+                StandardCharsets.UTF_8);
+
+        // ON CONFLICT (source) в WatermarkStore требует уникального ключа только по source
+        assertTrue(WatermarkStore.UPSERT_SQL.contains("ON CONFLICT (source)"));
+        assertTrue(schema.contains("PRIMARY KEY (source)"));
+        assertFalse(schema.contains("campaign_id"));
+    }
+
+    private static List<String> includes(Path db) throws IOException {
+        String config = new String(Files.readAllBytes(db.resolve("liquibase-config.xml")), StandardCharsets.UTF_8);
+        Matcher matcher = INCLUDE.matcher(config);
+        List<String> included = new ArrayList<>();
+        while (matcher.find()) {
+            included.add(matcher.group(1));
+        }
+        return included;
+    }
+
+    private static Path resource(String name) throws URISyntaxException {
+        return Paths.get(LiquibaseChangelogTest.class.getClassLoader().getResource(name).toURI());
+    }
+}
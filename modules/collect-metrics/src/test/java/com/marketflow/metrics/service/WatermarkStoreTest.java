@@ -0,0 +1,69 @@
+package com.marketflow.metrics.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WatermarkStoreTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+    private static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    @Test
+    public void testNextStart() {
+        // Первый запуск: вчера (закрываемый день) и сегодня
+        assertEquals(TODAY.minusDays(1), WatermarkStore.nextStart(null, TODAY, 31));
+        // Обычный запуск: день после знака
+        assertEquals(LocalDate.of(2025, 6, 11), WatermarkStore.nextStart(LocalDate.of(2025, 6, 10), TODAY, 31));
+        // Долгий простой: не глубже catchUpMaxDays
+        assertEquals(TODAY.minusDays(31), WatermarkStore.nextStart(LocalDate.of(2024, 1, 1), TODAY, 31));
+        // Знак из будущего (сдвиг часов) - только сегодня
+        assertEquals(TODAY, WatermarkStore.nextStart(TODAY.plusDays(3), TODAY, 31));
+    }
+
+    @Test
+    public void testAdvanceOnlyToClosedDays() throws Exception {
+        Connection conn = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(stmt);
+
+        LocalDate yesterday = TODAY.minusDays(1);
+        Map<String, LocalDate> completedDays = new HashMap<>();
+        completedDays.put("yandex", yesterday);
+        completedDays.put("google", TODAY);
+
+        int updates = new WatermarkStore(CLOCK).advance(conn, completedDays);
+
+        // Только yandex: день google еще не закрыт
+        assertEquals(1, updates);
+        verify(stmt).addBatch();
+        verify(stmt).setString(1, "yandex");
+        verify(stmt).setObject(2, yesterday);
+        verify(stmt, never()).setObject(2, TODAY);
+        verify(stmt).executeBatch();
+    }
+
+    @Test
+    public void testAdvanceWithNothingClosedSkipsStatement() throws Exception {
+        Connection conn = mock(Connection.class);
+
+        int updates = new WatermarkStore(CLOCK).advance(conn, Collections.singletonMap("yandex", TODAY));
+
+        assertEquals(0, updates);
+        verify(conn, never()).prepareStatement(anyString());
+    }
+}
@@ -1,13 +1,27 @@
 package com.marketflow.strategy;
 
 import com.marketflow.strategy.config.EngineConfig;
+import com.marketflow.strategy.model.AnalysisContext;
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.MetricsSnapshot;
 import com.marketflow.strategy.model.StrategyResult;
+import com.marketflow.strategy.model.TrendWindowState;
+import com.marketflow.strategy.service.AnalysisPool;
+import com.marketflow.strategy.service.ConnectionPool;
 import com.marketflow.strategy.service.DatabaseService;
+import com.marketflow.strategy.service.H2DatabaseService;
+import com.marketflow.strategy.service.IncrementalTrendService;
+import com.marketflow.strategy.service.StrategyGenerationRunner;
+import com.marketflow.strategy.service.StrategyGenerationRunner.GenerationReport;
 import com.marketflow.strategy.service.StrategyGenerationService;
+import com.marketflow.strategy.util.StatisticsKernels;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Основной класс приложения strategy-engine.
@@ -26,40 +40,97 @@ public class EngineApp {
                 log.error("Invalid configuration. Exiting application.");
                 System.exit(1);
             }
+            if (config.isStatsVectorEnabled()) {
+                StatisticsKernels.setVectorEnabled(true);
+            }
 
-            // Инициализация сервисов
-            DatabaseService databaseService = new DatabaseService(config);
-            StrategyGenerationService strategyService = new StrategyGenerationService(databaseService);
+            // Пул соединений общий для всех сервисов запуска; при закрытии пишет свою статистику.
+            // Пул анализа создается только при analysis.parallelism > 1 (null try-with-resources пропускает)
+            try (ConnectionPool pool = new ConnectionPool(config);
+                 AnalysisPool analysisPool = config.getAnalysisParallelism() > 1
+                         ? new AnalysisPool(config.getAnalysisParallelism(), config.getAnalysisChunkRows())
+                         : null) {
+                // Инициализация сервисов (jdbc:h2:... - локальный запуск без Postgres, схема создается при старте)
+                DatabaseService databaseService = config.getDbUrl().startsWith("jdbc:h2:")
+                        ? new H2DatabaseService(config, pool.getDataSource())
+                        : new DatabaseService(config, pool.getDataSource());
+                StrategyGenerationService strategyService =
+                        new StrategyGenerationService(databaseService, databaseService, analysisPool);
 
-            // Обработка аргументов командной строки
-            int analysisPeriod = config.getAnalysisDefaultPeriod();
-            List<String> sources = getSourcesFromArgs(args);
+                // Обработка аргументов командной строки
+                int analysisPeriod = config.getAnalysisDefaultPeriod();
+                List<String> sources = getSourcesFromArgs(args);
 
-            if (sources.isEmpty()) {
-                log.info("No specific sources provided. Using default sources.");
-                sources = Arrays.asList("yandex", "google", "vk");
-            }
+                if (sources.isEmpty()) {
+                    log.info("No specific sources provided. Using default sources.");
+                    sources = Arrays.asList("yandex", "google", "vk");
+                }
 
-            log.info("Generating strategies for sources: {} with period: {} days", sources, analysisPeriod);
-
-            // Генерация стратегий для каждого источника
-            for (String source : sources) {
-                try {
-                    log.info("Generating strategy for source: {}", source);
-                    StrategyResult result = strategyService.generateStrategy(source, analysisPeriod);
-                    log.info("Strategy generated successfully for source: {} with ID: {}", source, result.getId());
-
-                    // Вывод результата
-                    log.info("Strategy type: {}", result.getStrategyType());
-                    log.info("Confidence score: {}", result.getConfidenceScore());
-                    log.info("Number of recommendations: {}",
-                            result.getRecommendations() != null ? result.getRecommendations().size() : 0);
-                } catch (Exception e) {
-                    log.error("Error generating strategy for source: {}", source, e);
+                log.info("Generating strategies for sources: {} with period: {} days", sources, analysisPeriod);
+
+                // Метрики периода читаются один раз и разделяются всеми источниками.
+                // В потоковом режиме снимок нужен только для стратегий по кампаниям
+                boolean streaming = config.isAnalysisStreamingEnabled();
+                MetricsSnapshot snapshot = !streaming || config.isCampaignStrategiesEnabled()
+                        ? databaseService.loadMetricsSnapshot(analysisPeriod)
+                        : null;
+
+                // Анализ не зависит от источника: выполняется один раз для всего запуска
+                AnalysisContext context;
+                if (config.isTrendStateEnabled()) {
+                    context = analyzeIncrementally(config, databaseService, strategyService,
+                            analysisPeriod, streaming ? null : snapshot);
+                } else {
+                    context = streaming
+                            ? strategyService.analyze(analysisPeriod)
+                            : strategyService.analyze(snapshot);
                 }
-            }
 
-            log.info("Strategy Engine completed successfully");
+                // Генерация стратегий по источникам параллельно, с таймаутом на каждый источник
+                try (StrategyGenerationRunner runner = new StrategyGenerationRunner(
+                        config.getGenerationParallelism(),
+                        TimeUnit.SECONDS.toMillis(config.getGenerationTaskTimeoutSeconds()))) {
+                    GenerationReport report = strategyService.generateStrategies(sources, context, runner);
+
+                    // Сохраняются только завершившиеся задачи, после работы пула и одной пачкой
+                    try {
+                        strategyService.saveStrategies(report);
+
+                        for (Map.Entry<String, StrategyResult> entry : report.getResults().entrySet()) {
+                            String source = entry.getKey();
+                            StrategyResult result = entry.getValue();
+                            log.info("Strategy generated successfully for source: {} with ID: {}",
+                                    source, result.getId());
+
+                            // Вывод результата
+                            log.info("Strategy type: {}", result.getStrategyType());
+                            log.info("Confidence score: {}", result.getConfidenceScore());
+                            log.info("Number of recommendations: {}",
+                                    result.getRecommendations() != null ? result.getRecommendations().size() : 0);
+                        }
+                    } catch (Exception e) {
+                        log.error("Error saving strategies for sources: {}", report.getResults().keySet(), e);
+                    }
+
+                    report.getFailures().forEach((source, error) ->
+                            log.error("Error generating strategy for source: {}: {}", source, error));
+                }
+
+                // Стратегии по кампаниям: анализ за один проход по снимку, сохранение одной пачкой
+                if (config.isCampaignStrategiesEnabled()) {
+                    try {
+                        List<CampaignAnalysis> campaigns =
+                                strategyService.analyzeCampaigns(snapshot, config.getCampaignMinDays());
+                        List<StrategyResult> campaignResults =
+                                strategyService.generateCampaignStrategies(campaigns, analysisPeriod);
+                        log.info("Generated {} campaign strategies", campaignResults.size());
+                    } catch (Exception e) {
+                        log.error("Error generating campaign strategies", e);
+                    }
+                }
+
+                log.info("Strategy Engine completed successfully");
+            }
 
         } catch (Exception e) {
             log.error("Unexpected error occurred", e);
@@ -67,6 +138,32 @@ public class EngineApp {
         }
     }
 
+    /**
+     * Анализ с эффективностью и трендами из сохраненных окон: ищутся только аномалии,
+     * по снимку или потоковым детектором, если снимок не загружен.
+     * Если состояние окон недоступно (например, таблица еще не создана), выполняется полный анализ
+     */
+    private static AnalysisContext analyzeIncrementally(EngineConfig config, DatabaseService databaseService,
+                                                        StrategyGenerationService strategyService,
+                                                        int analysisPeriod, MetricsSnapshot snapshot) {
+        try {
+            IncrementalTrendService trendService = new IncrementalTrendService(
+                    databaseService, databaseService, config.getTrendStateRebuildDays());
+            LocalDate today = snapshot != null ? snapshot.getEndDate() : LocalDate.now();
+            List<TrendWindowState> windows = trendService.update(analysisPeriod, today);
+            Map<String, Double> efficiency = trendService.sourceEfficiency(windows);
+            Map<String, Double> trends = trendService.metricTrends(windows);
+            return snapshot != null
+                    ? strategyService.analyze(snapshot, efficiency, trends)
+                    : strategyService.analyze(analysisPeriod, efficiency, trends);
+        } catch (RuntimeException e) {
+            log.warn("Trend window state unavailable, running full analysis", e);
+            return snapshot != null
+                    ? strategyService.analyze(snapshot)
+                    : strategyService.analyze(analysisPeriod);
+        }
+    }
+
     /**
      * Извлекает список источников из аргументов командной строки
      * @param args аргументы командной строки
@@ -17,10 +17,38 @@ public class EngineConfig {
     private String dbUrl;
     private String dbUsername;
     private String dbPassword;
+    private int dbFetchSize = 1000; // Размер порции строк при потоковом чтении метрик
+    private int dbBatchSize = 500; // Строк в одном JDBC-батче при сохранении стратегий
+
+    // Пул соединений
+    private int dbPoolSize = 8; // Максимум соединений в пуле
+    private int dbPoolConnectionTimeoutMs = 30000; // Ожидание свободного соединения из пула
+    private int dbPrepareThreshold = 1; // После скольких выполнений выражение готовится на сервере (pgjdbc)
+    private int dbPreparedStatementCacheSize = 256; // Подготовленных выражений в кэше соединения (pgjdbc)
     private int analysisDefaultPeriod = 30; // Период анализа в днях по умолчанию
     private boolean saveGeneratedStrategies = true; // Сохранять ли результаты в БД
     private String outputDirectory = "reports"; // Директория для выходных файлов
 
+    // Параллельная генерация стратегий
+    private int generationParallelism = 4; // Количество потоков генерации
+    private int generationTaskTimeoutSeconds = 120; // Таймаут генерации одной стратегии
+
+    // Параллельный анализ снимка
+    private int analysisParallelism = 1; // Потоков анализа (1 - последовательный анализ)
+    private int analysisChunkRows = 262144; // Строк в куске снимка
+    private boolean analysisStreamingEnabled = false; // Анализ по агрегатам БД и курсору, без снимка в памяти
+
+    // Стратегии по кампаниям
+    private boolean campaignStrategiesEnabled = true;
+    private int campaignMinDays = 7; // Минимум дней с данными для стратегии кампании
+
+    // Инкрементальные окна трендов
+    private boolean trendStateEnabled = true; // Хранить суммы окна между запусками
+    private int trendStateRebuildDays = 7; // Раз во сколько дней окно пересчитывается целиком
+
+    // Векторные ядра статистики (нужен --add-modules jdk.incubator.vector)
+    private boolean statsVectorEnabled = false;
+
     // Планировщик
     private boolean schedulerEnabled = false;
     private String schedulerCron = "0 0 1 * * ?"; // Раз в день в 1:00 по умолчанию
@@ -68,6 +96,17 @@ public class EngineConfig {
                 dbUrl = properties.getProperty("db.url", dbUrl);
                 dbUsername = properties.getProperty("db.username", dbUsername);
                 dbPassword = properties.getProperty("db.password", dbPassword);
+                dbFetchSize = Integer.parseInt(properties.getProperty("db.fetch.size", String.valueOf(dbFetchSize)));
+                dbBatchSize = Integer.parseInt(properties.getProperty("db.batch.size", String.valueOf(dbBatchSize)));
+
+                // Пул соединений
+                dbPoolSize = Integer.parseInt(properties.getProperty("db.pool.size", String.valueOf(dbPoolSize)));
+                dbPoolConnectionTimeoutMs = Integer.parseInt(properties.getProperty(
+                        "db.pool.connection.timeout.ms", String.valueOf(dbPoolConnectionTimeoutMs)));
+                dbPrepareThreshold = Integer.parseInt(
+                        properties.getProperty("db.prepare.threshold", String.valueOf(dbPrepareThreshold)));
+                dbPreparedStatementCacheSize = Integer.parseInt(properties.getProperty(
+                        "db.prepared.statement.cache.size", String.valueOf(dbPreparedStatementCacheSize)));
 
                 // Общие настройки
                 analysisDefaultPeriod = Integer.parseInt(
@@ -76,6 +115,36 @@ public class EngineConfig {
                         properties.getProperty("save.generated.strategies", String.valueOf(saveGeneratedStrategies)));
                 outputDirectory = properties.getProperty("output.directory", outputDirectory);
 
+                // Параллельная генерация
+                generationParallelism = Integer.parseInt(
+                        properties.getProperty("generation.parallelism", String.valueOf(generationParallelism)));
+                generationTaskTimeoutSeconds = Integer.parseInt(properties.getProperty(
+                        "generation.task.timeout.seconds", String.valueOf(generationTaskTimeoutSeconds)));
+
+                // Параллельный анализ снимка
+                analysisParallelism = Integer.parseInt(
+                        properties.getProperty("analysis.parallelism", String.valueOf(analysisParallelism)));
+                analysisChunkRows = Integer.parseInt(
+                        properties.getProperty("analysis.chunk.rows", String.valueOf(analysisChunkRows)));
+                analysisStreamingEnabled = Boolean.parseBoolean(properties.getProperty(
+                        "analysis.streaming.enabled", String.valueOf(analysisStreamingEnabled)));
+
+                // Стратегии по кампаниям
+                campaignStrategiesEnabled = Boolean.parseBoolean(properties.getProperty(
+                        "campaign.strategies.enabled", String.valueOf(campaignStrategiesEnabled)));
+                campaignMinDays = Integer.parseInt(
+                        properties.getProperty("campaign.min.days", String.valueOf(campaignMinDays)));
+
+                // Инкрементальные окна трендов
+                trendStateEnabled = Boolean.parseBoolean(
+                        properties.getProperty("trend.state.enabled", String.valueOf(trendStateEnabled)));
+                trendStateRebuildDays = Integer.parseInt(
+                        properties.getProperty("trend.state.rebuild.days", String.valueOf(trendStateRebuildDays)));
+
+                // Векторные ядра статистики
+                statsVectorEnabled = Boolean.parseBoolean(
+                        properties.getProperty("stats.vector.enabled", String.valueOf(statsVectorEnabled)));
+
                 // Планировщик
                 schedulerEnabled = Boolean.parseBoolean(
                         properties.getProperty("scheduler.enabled", String.valueOf(schedulerEnabled)));
@@ -118,6 +187,61 @@ public class EngineConfig {
             dbPassword = envDbPassword;
         }
 
+        String envFetchSize = System.getenv("DB_FETCH_SIZE");
+        if (envFetchSize != null && !envFetchSize.isEmpty()) {
+            try {
+                dbFetchSize = Integer.parseInt(envFetchSize);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid DB_FETCH_SIZE environment variable: {}", envFetchSize);
+            }
+        }
+
+        String envBatchSize = System.getenv("DB_BATCH_SIZE");
+        if (envBatchSize != null && !envBatchSize.isEmpty()) {
+            try {
+                dbBatchSize = Integer.parseInt(envBatchSize);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid DB_BATCH_SIZE environment variable: {}", envBatchSize);
+            }
+        }
+
+        // Пул соединений
+        String envPoolSize = System.getenv("DB_POOL_SIZE");
+        if (envPoolSize != null && !envPoolSize.isEmpty()) {
+            try {
+                dbPoolSize = Integer.parseInt(envPoolSize);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid DB_POOL_SIZE environment variable: {}", envPoolSize);
+            }
+        }
+
+        String envPoolTimeout = System.getenv("DB_POOL_CONNECTION_TIMEOUT_MS");
+        if (envPoolTimeout != null && !envPoolTimeout.isEmpty()) {
+            try {
+                dbPoolConnectionTimeoutMs = Integer.parseInt(envPoolTimeout);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid DB_POOL_CONNECTION_TIMEOUT_MS environment variable: {}", envPoolTimeout);
+            }
+        }
+
+        String envPrepareThreshold = System.getenv("DB_PREPARE_THRESHOLD");
+        if (envPrepareThreshold != null && !envPrepareThreshold.isEmpty()) {
+            try {
+                dbPrepareThreshold = Integer.parseInt(envPrepareThreshold);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid DB_PREPARE_THRESHOLD environment variable: {}", envPrepareThreshold);
+            }
+        }
+
+        String envStatementCacheSize = System.getenv("DB_PREPARED_STATEMENT_CACHE_SIZE");
+        if (envStatementCacheSize != null && !envStatementCacheSize.isEmpty()) {
+            try {
+                dbPreparedStatementCacheSize = Integer.parseInt(envStatementCacheSize);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid DB_PREPARED_STATEMENT_CACHE_SIZE environment variable: {}", envStatementCacheSize);
+            }
+        }
+
         // Общие настройки
         String envPeriod = System.getenv("ANALYSIS_PERIOD");
         if (envPeriod != null && !envPeriod.isEmpty()) {
@@ -138,6 +262,85 @@ public class EngineConfig {
             outputDirectory = envOutputDir;
         }
 
+        // Параллельная генерация
+        String envParallelism = System.getenv("GENERATION_PARALLELISM");
+        if (envParallelism != null && !envParallelism.isEmpty()) {
+            try {
+                generationParallelism = Integer.parseInt(envParallelism);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid GENERATION_PARALLELISM environment variable: {}", envParallelism);
+            }
+        }
+
+        String envTaskTimeout = System.getenv("GENERATION_TASK_TIMEOUT_SECONDS");
+        if (envTaskTimeout != null && !envTaskTimeout.isEmpty()) {
+            try {
+                generationTaskTimeoutSeconds = Integer.parseInt(envTaskTimeout);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid GENERATION_TASK_TIMEOUT_SECONDS environment variable: {}", envTaskTimeout);
+            }
+        }
+
+        // Параллельный анализ снимка
+        String envAnalysisParallelism = System.getenv("ANALYSIS_PARALLELISM");
+        if (envAnalysisParallelism != null && !envAnalysisParallelism.isEmpty()) {
+            try {
+                analysisParallelism = Integer.parseInt(envAnalysisParallelism);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid ANALYSIS_PARALLELISM environment variable: {}", envAnalysisParallelism);
+            }
+        }
+
+        String envChunkRows = System.getenv("ANALYSIS_CHUNK_ROWS");
+        if (envChunkRows != null && !envChunkRows.isEmpty()) {
+            try {
+                analysisChunkRows = Integer.parseInt(envChunkRows);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid ANALYSIS_CHUNK_ROWS environment variable: {}", envChunkRows);
+            }
+        }
+
+        String envAnalysisStreaming = System.getenv("ANALYSIS_STREAMING_ENABLED");
+        if (envAnalysisStreaming != null && !envAnalysisStreaming.isEmpty()) {
+            analysisStreamingEnabled = Boolean.parseBoolean(envAnalysisStreaming);
+        }
+
+        // Стратегии по кампаниям
+        String envCampaignStrategies = System.getenv("CAMPAIGN_STRATEGIES_ENABLED");
+        if (envCampaignStrategies != null && !envCampaignStrategies.isEmpty()) {
+            campaignStrategiesEnabled = Boolean.parseBoolean(envCampaignStrategies);
+        }
+
+        String envCampaignMinDays = System.getenv("CAMPAIGN_MIN_DAYS");
+        if (envCampaignMinDays != null && !envCampaignMinDays.isEmpty()) {
+            try {
+                campaignMinDays = Integer.parseInt(envCampaignMinDays);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid CAMPAIGN_MIN_DAYS environment variable: {}", envCampaignMinDays);
+            }
+        }
+
+        // Инкрементальные окна трендов
+        String envTrendState = System.getenv("TREND_STATE_ENABLED");
+        if (envTrendState != null && !envTrendState.isEmpty()) {
+            trendStateEnabled = Boolean.parseBoolean(envTrendState);
+        }
+
+        String envTrendRebuildDays = System.getenv("TREND_STATE_REBUILD_DAYS");
+        if (envTrendRebuildDays != null && !envTrendRebuildDays.isEmpty()) {
+            try {
+                trendStateRebuildDays = Integer.parseInt(envTrendRebuildDays);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid TREND_STATE_REBUILD_DAYS environment variable: {}", envTrendRebuildDays);
+            }
+        }
+
+        // Векторные ядра статистики
+        String envStatsVector = System.getenv("STATS_VECTOR_ENABLED");
+        if (envStatsVector != null && !envStatsVector.isEmpty()) {
+            statsVectorEnabled = Boolean.parseBoolean(envStatsVector);
+        }
+
         // Планировщик
         String envSchedulerEnabled = System.getenv("SCHEDULER_ENABLED");
         if (envSchedulerEnabled != null && !envSchedulerEnabled.isEmpty()) {
@@ -188,11 +391,61 @@ public class EngineConfig {
             return false;
         }
 
+        if (dbFetchSize <= 0) {
+            log.error("Database fetch size must be positive");
+            return false;
+        }
+
+        if (dbBatchSize <= 0) {
+            log.error("Database batch size must be positive");
+            return false;
+        }
+
+        if (dbPoolSize <= 0) {
+            log.error("Database pool size must be positive");
+            return false;
+        }
+
+        if (dbPoolConnectionTimeoutMs <= 0) {
+            log.error("Database pool connection timeout must be positive");
+            return false;
+        }
+
+        if (dbPrepareThreshold < 0 || dbPreparedStatementCacheSize < 0) {
+            log.error("Prepared statement settings must not be negative");
+            return false;
+        }
+
         if (analysisDefaultPeriod <= 0) {
             log.error("Analysis period must be positive");
             return false;
         }
 
+        if (generationParallelism <= 0) {
+            log.error("Generation parallelism must be positive");
+            return false;
+        }
+
+        if (generationTaskTimeoutSeconds <= 0) {
+            log.error("Generation task timeout must be positive");
+            return false;
+        }
+
+        if (analysisParallelism <= 0) {
+            log.error("Analysis parallelism must be positive");
+            return false;
+        }
+
+        if (analysisChunkRows <= 0) {
+            log.error("Analysis chunk size must be positive");
+            return false;
+        }
+
+        if (trendStateRebuildDays <= 0) {
+            log.error("Trend state rebuild interval must be positive");
+            return false;
+        }
+
         return true;
     }
 
@@ -202,9 +455,25 @@ public class EngineConfig {
                 "dbUrl='" + dbUrl + '\'' +
                 ", dbUsername='" + dbUsername + '\'' +
                 ", dbPassword='***'" +
+                ", dbFetchSize=" + dbFetchSize +
+                ", dbBatchSize=" + dbBatchSize +
+                ", dbPoolSize=" + dbPoolSize +
+                ", dbPoolConnectionTimeoutMs=" + dbPoolConnectionTimeoutMs +
+                ", dbPrepareThreshold=" + dbPrepareThreshold +
+                ", dbPreparedStatementCacheSize=" + dbPreparedStatementCacheSize +
                 ", analysisDefaultPeriod=" + analysisDefaultPeriod +
                 ", saveGeneratedStrategies=" + saveGeneratedStrategies +
                 ", outputDirectory='" + outputDirectory + '\'' +
+                ", generationParallelism=" + generationParallelism +
+                ", generationTaskTimeoutSeconds=" + generationTaskTimeoutSeconds +
+                ", analysisParallelism=" + analysisParallelism +
+                ", analysisChunkRows=" + analysisChunkRows +
+                ", analysisStreamingEnabled=" + analysisStreamingEnabled +
+                ", campaignStrategiesEnabled=" + campaignStrategiesEnabled +
+                ", campaignMinDays=" + campaignMinDays +
+                ", trendStateEnabled=" + trendStateEnabled +
+                ", trendStateRebuildDays=" + trendStateRebuildDays +
+                ", statsVectorEnabled=" + statsVectorEnabled +
                 ", schedulerEnabled=" + schedulerEnabled +
                 ", schedulerCron='" + schedulerCron + '\'' +
                 ", apiIntegrationEnabled=" + apiIntegrationEnabled +
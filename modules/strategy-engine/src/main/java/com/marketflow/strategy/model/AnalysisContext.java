@@ -0,0 +1,20 @@
+package com.marketflow.strategy.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Результаты анализа метрик за запуск: считаются один раз по снимку метрик
+ * и используются при генерации стратегий для всех источников.
+ */
+@Value
+@Builder
+public class AnalysisContext {
+    int periodDays;                       // Период анализа в днях
+    Map<String, Double> sourceEfficiency; // Рейтинг эффективности по источникам
+    Map<String, Double> trends;           // Тренды CTR и CPC по всем источникам
+    List<String> anomalies;               // Обнаруженные аномалии
+}
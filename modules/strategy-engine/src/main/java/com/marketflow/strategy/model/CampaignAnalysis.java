@@ -0,0 +1,24 @@
+package com.marketflow.strategy.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Результаты анализа одной рекламной кампании (пары источник + кампания) за период.
+ */
+@Value
+@Builder
+public class CampaignAnalysis {
+    String source;           // Рекламная платформа
+    String campaignId;       // Идентификатор кампании
+    int days;                // Количество дней с данными
+    long clicks;             // Клики за период
+    long impressions;        // Показы за период
+    double cost;             // Затраты за период
+    double efficiency;       // Рейтинг эффективности (0-1)
+    double ctrTrend;         // Тренд дневного CTR
+    double cpcTrend;         // Тренд дневного CPC
+    List<String> anomalies;  // Аномальные дни кампании
+}
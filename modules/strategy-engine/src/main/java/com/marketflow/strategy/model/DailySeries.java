@@ -0,0 +1,122 @@
+package com.marketflow.strategy.model;
+
+import java.util.Arrays;
+
+/**
+ * Дневные агрегаты метрик в примитивных массивах: одна точка на день, по возрастанию даты.
+ * Получается либо агрегацией в БД (представление metrics_daily_summary), либо из снимка метрик.
+ */
+public final class DailySeries {
+    private final int size;
+    private final int[] epochDays;
+    private final long[] clicks;
+    private final long[] impressions;
+    private final double[] costs;
+
+    private DailySeries(Builder builder) {
+        this.size = builder.size;
+        this.epochDays = Arrays.copyOf(builder.epochDays, size);
+        this.clicks = Arrays.copyOf(builder.clicks, size);
+        this.impressions = Arrays.copyOf(builder.impressions, size);
+        this.costs = Arrays.copyOf(builder.costs, size);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Дневные итоги по всем строкам снимка (строки снимка упорядочены по дате)
+     */
+    public static DailySeries fromSnapshot(MetricsSnapshot snapshot) {
+        Builder builder = builder();
+        int row = 0;
+        while (row < snapshot.size()) {
+            int day = snapshot.getEpochDay(row);
+            long clicks = 0;
+            long impressions = 0;
+            double cost = 0;
+            for (; row < snapshot.size() && snapshot.getEpochDay(row) == day; row++) {
+                clicks += snapshot.getClicks(row);
+                impressions += snapshot.getImpressions(row);
+                cost += snapshot.getCost(row);
+            }
+            builder.add(day, clicks, impressions, cost);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Количество дней в ряду
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getEpochDay(int day) {
+        return epochDays[day];
+    }
+
+    public long getClicks(int day) {
+        return clicks[day];
+    }
+
+    public long getImpressions(int day) {
+        return impressions[day];
+    }
+
+    public double getCost(int day) {
+        return costs[day];
+    }
+
+    /**
+     * Дневной CTR в процентах (0 при отсутствии показов)
+     */
+    public double getCtr(int day) {
+        return impressions[day] > 0 ? (double) clicks[day] / impressions[day] * 100 : 0.0;
+    }
+
+    /**
+     * Дневной CPC (0 при отсутствии кликов)
+     */
+    public double getCpc(int day) {
+        return clicks[day] > 0 ? costs[day] / clicks[day] : 0.0;
+    }
+
+    /**
+     * Построитель ряда: дни добавляются по возрастанию даты
+     */
+    public static final class Builder {
+        private int size;
+        private int[] epochDays = new int[64];
+        private long[] clicks = new long[64];
+        private long[] impressions = new long[64];
+        private double[] costs = new double[64];
+
+        private Builder() {
+        }
+
+        public Builder add(int epochDay, long clicks, long impressions, double cost) {
+            if (size > 0 && epochDay <= epochDays[size - 1]) {
+                throw new IllegalArgumentException("Days must be added in ascending order: " + epochDay);
+            }
+            if (size == epochDays.length) {
+                int capacity = size * 2;
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                this.clicks = Arrays.copyOf(this.clicks, capacity);
+                this.impressions = Arrays.copyOf(this.impressions, capacity);
+                costs = Arrays.copyOf(costs, capacity);
+            }
+            epochDays[size] = epochDay;
+            this.clicks[size] = clicks;
+            this.impressions[size] = impressions;
+            costs[size] = cost;
+            size++;
+            return this;
+        }
+
+        public DailySeries build() {
+            return new DailySeries(this);
+        }
+    }
+}
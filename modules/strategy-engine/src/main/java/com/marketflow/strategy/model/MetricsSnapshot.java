@@ -0,0 +1,283 @@
+package com.marketflow.strategy.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Колоночный снимок метрик за период анализа.
+ * Строки хранятся в примитивных массивах (дата как epoch day, клики, показы, затраты),
+ * источник и кампания - кодами словаря. Загружается один раз за запуск и разделяется
+ * всеми анализами и источниками вместо списка MetricData с обертками на каждую строку.
+ * Строки упорядочены по дате; после построения снимок не меняется.
+ */
+public final class MetricsSnapshot {
+    private final int periodDays;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final int size;
+    private final int[] epochDays;
+    private final int[] clicks;
+    private final int[] impressions;
+    private final double[] costs;
+    private final int[] sourceCodes;
+    private final int[] campaignCodes;
+    private final String[] sources;
+    private final String[] campaigns;
+
+    private MetricsSnapshot(Builder builder) {
+        this.periodDays = builder.periodDays;
+        this.startDate = builder.startDate;
+        this.endDate = builder.endDate;
+        this.size = builder.size;
+        this.epochDays = Arrays.copyOf(builder.epochDays, size);
+        this.clicks = Arrays.copyOf(builder.clicks, size);
+        this.impressions = Arrays.copyOf(builder.impressions, size);
+        this.costs = Arrays.copyOf(builder.costs, size);
+        this.sourceCodes = Arrays.copyOf(builder.sourceCodes, size);
+        this.campaignCodes = Arrays.copyOf(builder.campaignCodes, size);
+        this.sources = builder.sources.values();
+        this.campaigns = builder.campaigns.values();
+    }
+
+    private MetricsSnapshot(MetricsSnapshot source, int periodDays, LocalDate startDate, LocalDate endDate) {
+        this.periodDays = periodDays;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.size = source.size;
+        this.epochDays = source.epochDays;
+        this.clicks = source.clicks;
+        this.impressions = source.impressions;
+        this.costs = source.costs;
+        this.sourceCodes = source.sourceCodes;
+        this.campaignCodes = source.campaignCodes;
+        this.sources = source.sources;
+        this.campaigns = source.campaigns;
+    }
+
+    /**
+     * Создает построитель снимка
+     * @param periodDays период анализа в днях
+     * @param startDate начало периода (включительно)
+     * @param endDate конец периода (включительно)
+     */
+    public static Builder builder(int periodDays, LocalDate startDate, LocalDate endDate) {
+        return new Builder(periodDays, startDate, endDate);
+    }
+
+    /**
+     * Снимок за другой период: строки с датой в [startDate, endDate].
+     * Если в период попадают все строки, массивы не копируются
+     */
+    public MetricsSnapshot forPeriod(int periodDays, LocalDate startDate, LocalDate endDate) {
+        int from = firstRowOnOrAfter(startDate.toEpochDay());
+        int to = firstRowOnOrAfter(endDate.toEpochDay() + 1);
+        if (from == 0 && to == size) {
+            return new MetricsSnapshot(this, periodDays, startDate, endDate);
+        }
+
+        // Словари собираются заново, чтобы в них остались только источники и кампании периода
+        Builder builder = builder(periodDays, startDate, endDate);
+        for (int row = from; row < to; row++) {
+            builder.add(getDate(row), getSource(row), getCampaignId(row), clicks[row], impressions[row], costs[row]);
+        }
+        return builder.build();
+    }
+
+    private int firstRowOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int getPeriodDays() {
+        return periodDays;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Количество строк в снимке
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getEpochDay(int row) {
+        return epochDays[row];
+    }
+
+    public LocalDate getDate(int row) {
+        return LocalDate.ofEpochDay(epochDays[row]);
+    }
+
+    public int getClicks(int row) {
+        return clicks[row];
+    }
+
+    public int getImpressions(int row) {
+        return impressions[row];
+    }
+
+    public double getCost(int row) {
+        return costs[row];
+    }
+
+    /**
+     * Код источника строки в словаре источников
+     */
+    public int getSourceCode(int row) {
+        return sourceCodes[row];
+    }
+
+    /**
+     * Источник строки (может быть null, если не указан при сборе)
+     */
+    public String getSource(int row) {
+        return sources[sourceCodes[row]];
+    }
+
+    public int getCampaignCode(int row) {
+        return campaignCodes[row];
+    }
+
+    public String getCampaignId(int row) {
+        return campaigns[campaignCodes[row]];
+    }
+
+    /**
+     * Количество различных источников (размер словаря)
+     */
+    public int getSourceCount() {
+        return sources.length;
+    }
+
+    /**
+     * Источник по коду словаря
+     */
+    public String getSourceByCode(int code) {
+        return sources[code];
+    }
+
+    public int getCampaignCount() {
+        return campaigns.length;
+    }
+
+    public String getCampaignByCode(int code) {
+        return campaigns[code];
+    }
+
+    /**
+     * CTR строки в процентах, как в {@link MetricData#calculateCtr()}
+     */
+    public double getCtr(int row) {
+        return impressions[row] > 0 ? (double) clicks[row] / impressions[row] * 100 : 0.0;
+    }
+
+    /**
+     * CPC строки, как в {@link MetricData#calculateCpc()}
+     */
+    public double getCpc(int row) {
+        return clicks[row] > 0 ? costs[row] / clicks[row] : 0.0;
+    }
+
+    /**
+     * Построитель снимка: строки добавляются в порядке чтения из БД, массивы растут по мере заполнения
+     */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final int periodDays;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final Dictionary sources = new Dictionary();
+        private final Dictionary campaigns = new Dictionary();
+        private int size;
+        private int[] epochDays = new int[INITIAL_CAPACITY];
+        private int[] clicks = new int[INITIAL_CAPACITY];
+        private int[] impressions = new int[INITIAL_CAPACITY];
+        private double[] costs = new double[INITIAL_CAPACITY];
+        private int[] sourceCodes = new int[INITIAL_CAPACITY];
+        private int[] campaignCodes = new int[INITIAL_CAPACITY];
+
+        private Builder(int periodDays, LocalDate startDate, LocalDate endDate) {
+            this.periodDays = periodDays;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        public Builder add(LocalDate date, String source, String campaignId,
+                           int clicks, int impressions, double cost) {
+            int epochDay = (int) date.toEpochDay();
+            if (size > 0 && epochDay < epochDays[size - 1]) {
+                throw new IllegalArgumentException("Rows must be added in date order: " + date);
+            }
+            if (size == epochDays.length) {
+                grow();
+            }
+            this.epochDays[size] = epochDay;
+            this.clicks[size] = clicks;
+            this.impressions[size] = impressions;
+            this.costs[size] = cost;
+            this.sourceCodes[size] = sources.encode(source);
+            this.campaignCodes[size] = campaigns.encode(campaignId);
+            size++;
+            return this;
+        }
+
+        private void grow() {
+            int capacity = epochDays.length * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            clicks = Arrays.copyOf(clicks, capacity);
+            impressions = Arrays.copyOf(impressions, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+            sourceCodes = Arrays.copyOf(sourceCodes, capacity);
+            campaignCodes = Arrays.copyOf(campaignCodes, capacity);
+        }
+
+        public MetricsSnapshot build() {
+            return new MetricsSnapshot(this);
+        }
+    }
+
+    /**
+     * Словарь строк: каждое значение (включая null) получает код по порядку первого появления
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = codes.size();
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value;
+            codes.put(value, next);
+            return next;
+        }
+
+        String[] values() {
+            return Arrays.copyOf(values, codes.size());
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class StrategyResult {
     private String description;
     private StrategyType strategyType;
     private String source;
+    private String campaignId; // Кампания (null - стратегия уровня источника)
     private LocalDateTime generatedAt;
     private Map<String, Double> metrics;
 
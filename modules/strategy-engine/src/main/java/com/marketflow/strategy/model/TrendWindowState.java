@@ -0,0 +1,147 @@
+package com.marketflow.strategy.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Достаточные статистики скользящего окна по одному ключу: все источники (source = null),
+ * источник целиком (campaignId = null) или кампания источника.
+ * Хранит суммы регрессии (Σx, Σx², Σy, Σxy для дневных CTR и CPC) и итоги кликов, показов и затрат,
+ * поэтому добавление и вытеснение дня - O(1), а тренд и эффективность считаются без исходных строк.
+ * x - номер дня относительно originDay; наклон от сдвига x не зависит
+ */
+@Data
+@NoArgsConstructor
+public class TrendWindowState {
+    private String source;
+    private String campaignId;
+    private LocalDate windowStart; // Первый день окна
+    private LocalDate windowEnd; // Последний учтенный день окна
+    private LocalDate originDay; // День с x = 0
+    private LocalDate rebuiltOn; // Когда окно последний раз пересчитывалось целиком
+
+    private int points; // Дней с данными в окне
+    private long sumX;
+    private long sumXx;
+    private double sumCtr;
+    private double sumXCtr;
+    private double sumCpc;
+    private double sumXCpc;
+    private long clicks;
+    private long impressions;
+    private double cost;
+
+    public TrendWindowState(String source, String campaignId) {
+        this.source = source;
+        this.campaignId = campaignId;
+    }
+
+    /**
+     * Добавляет итоги одного дня ключа
+     * @param x номер дня относительно originDay
+     */
+    public void addDay(int x, long dayClicks, long dayImpressions, double dayCost) {
+        apply(x, dayClicks, dayImpressions, dayCost, 1);
+    }
+
+    /**
+     * Вытесняет день, ранее добавленный с теми же значениями
+     * @return false, если после вытеснения суммы невозможны - день не добавлялся с этими значениями
+     */
+    public boolean removeDay(int x, long dayClicks, long dayImpressions, double dayCost) {
+        return apply(x, dayClicks, dayImpressions, dayCost, -1);
+    }
+
+    private boolean apply(int x, long dayClicks, long dayImpressions, double dayCost, int sign) {
+        // Дневные CTR и CPC - как в MetricsAnalysisService: CTR в процентах, при нуле в знаменателе - 0
+        double ctr = dayImpressions > 0 ? dayClicks * 100.0 / dayImpressions : 0.0;
+        double cpc = dayClicks > 0 ? dayCost / dayClicks : 0.0;
+
+        points += sign;
+        sumX += sign * (long) x;
+        sumXx += sign * (long) x * x;
+        sumCtr += sign * ctr;
+        sumXCtr += sign * x * ctr;
+        sumCpc += sign * cpc;
+        sumXCpc += sign * x * cpc;
+        clicks += sign * dayClicks;
+        impressions += sign * dayImpressions;
+        cost += sign * dayCost;
+
+        // Целочисленные суммы точны: у пустого окна они нулевые, у непустого - неотрицательные
+        boolean consistent = points > 0
+                ? clicks >= 0 && impressions >= 0
+                : points == 0 && sumX == 0 && sumXx == 0 && clicks == 0 && impressions == 0;
+        if (points == 0) {
+            // Окно опустело: сбрасываем накопленную погрешность сумм
+            sumX = 0;
+            sumXx = 0;
+            sumCtr = 0;
+            sumXCtr = 0;
+            sumCpc = 0;
+            sumXCpc = 0;
+            clicks = 0;
+            impressions = 0;
+            cost = 0;
+        }
+        return consistent;
+    }
+
+    /**
+     * Тренд дневного CTR, как {@code MetricsCalculator.calculateTrend} по дневному ряду окна
+     */
+    public double getCtrTrend() {
+        return trend(sumCtr, sumXCtr);
+    }
+
+    /**
+     * Тренд дневного CPC
+     */
+    public double getCpcTrend() {
+        return trend(sumCpc, sumXCpc);
+    }
+
+    private double trend(double sumY, double sumXy) {
+        if (points < 2) {
+            return 0.0;
+        }
+        double slope = (points * sumXy - sumX * sumY) / ((double) points * sumXx - (double) sumX * sumX);
+        double avgY = sumY / points;
+        return avgY != 0 ? slope / avgY : slope;
+    }
+
+    /**
+     * CTR окна в процентах
+     */
+    public double getCtr() {
+        return impressions > 0 ? clicks * 100.0 / impressions : 0.0;
+    }
+
+    /**
+     * CPC окна
+     */
+    public double getCpc() {
+        return clicks > 0 ? cost / clicks : 0.0;
+    }
+
+    public TrendWindowState copy() {
+        TrendWindowState copy = new TrendWindowState(source, campaignId);
+        copy.windowStart = windowStart;
+        copy.windowEnd = windowEnd;
+        copy.originDay = originDay;
+        copy.rebuiltOn = rebuiltOn;
+        copy.points = points;
+        copy.sumX = sumX;
+        copy.sumXx = sumXx;
+        copy.sumCtr = sumCtr;
+        copy.sumXCtr = sumXCtr;
+        copy.sumCpc = sumCpc;
+        copy.sumXCpc = sumXCpc;
+        copy.clicks = clicks;
+        copy.impressions = impressions;
+        copy.cost = cost;
+        return copy;
+    }
+}
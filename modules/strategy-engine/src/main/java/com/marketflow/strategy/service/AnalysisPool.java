@@ -0,0 +1,143 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.MetricsSnapshot;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Пул fork/join для параллельного анализа больших снимков метрик.
+ * Строки снимка делятся на куски примерно по chunkRows строк, границы кусков сдвигаются к началу дня,
+ * поэтому день целиком попадает в один кусок. Частичные агрегаты кусков объединяются в порядке строк.
+ */
+@Slf4j
+public class AnalysisPool implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    @Getter
+    private final int chunkRows;
+
+    /**
+     * Функция куска снимка: строки [from, to) из целых дней
+     */
+    @FunctionalInterface
+    public interface ChunkFunction<T> {
+        T apply(int from, int to);
+    }
+
+    /**
+     * @param parallelism количество потоков анализа
+     * @param chunkRows целевой размер куска в строках
+     */
+    public AnalysisPool(int parallelism, int chunkRows) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (chunkRows <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkRows);
+        }
+        this.chunkRows = chunkRows;
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("metrics-analysis-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Границы кусков снимка: bounds[i]..bounds[i + 1], каждая граница - первая строка дня
+     */
+    public int[] chunkBounds(MetricsSnapshot snapshot) {
+        int size = snapshot.size();
+        int[] bounds = new int[size / chunkRows + 2];
+        int count = 1;
+        int from = 0;
+        while (from < size) {
+            int to = (int) Math.min(size, (long) from + chunkRows);
+            // Строки одного дня не делятся между кусками
+            while (to < size && snapshot.getEpochDay(to) == snapshot.getEpochDay(to - 1)) {
+                to++;
+            }
+            bounds[count++] = to;
+            from = to;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Частичные агрегаты кусков, объединенные попарно в порядке строк.
+     * merge должен быть ассоциативным; левый аргумент - более ранние строки
+     */
+    public <T> T reduce(MetricsSnapshot snapshot, ChunkFunction<T> chunk, BinaryOperator<T> merge) {
+        int[] bounds = chunkBounds(snapshot);
+        if (bounds.length <= 2) {
+            return chunk.apply(0, snapshot.size());
+        }
+        log.debug("Analyzing {} rows in {} chunks", snapshot.size(), bounds.length - 1);
+        return pool.invoke(new ChunkTask<>(bounds, 0, bounds.length - 1, chunk, merge));
+    }
+
+    /**
+     * Независимые задачи 0..count-1 параллельным стримом в этом пуле; результаты в порядке номеров
+     */
+    public <R> List<R> map(int count, IntFunction<R> task) {
+        return pool.submit(() -> IntStream.range(0, count).parallel()
+                .mapToObj(task)
+                .collect(Collectors.toList())).join();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Куски [lo, hi): делятся пополам до одного куска, результаты объединяются слева направо
+     */
+    private static final class ChunkTask<T> extends RecursiveTask<T> {
+        private final int[] bounds;
+        private final int lo;
+        private final int hi;
+        private final ChunkFunction<T> chunk;
+        private final BinaryOperator<T> merge;
+
+        private ChunkTask(int[] bounds, int lo, int hi, ChunkFunction<T> chunk, BinaryOperator<T> merge) {
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+            this.chunk = chunk;
+            this.merge = merge;
+        }
+
+        @Override
+        protected T compute() {
+            if (hi - lo == 1) {
+                return chunk.apply(bounds[lo], bounds[hi]);
+            }
+            int mid = (lo + hi) >>> 1;
+            ChunkTask<T> left = new ChunkTask<>(bounds, lo, mid, chunk, merge);
+            left.fork();
+            T right = new ChunkTask<>(bounds, mid, hi, chunk, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
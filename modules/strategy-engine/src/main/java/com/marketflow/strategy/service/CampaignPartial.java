@@ -0,0 +1,104 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.MetricsSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Группы кампаний куска снимка для параллельного анализа ({@link AnalysisPool}).
+ * Группы нумеруются в порядке первого появления, строки группы идут в порядке строк снимка;
+ * объединение кусков слева направо сохраняет оба порядка, как в последовательном проходе.
+ */
+final class CampaignPartial {
+    // Ключ группы: коды словарей источника и кампании
+    private final Map<Long, Integer> groupByKey = new HashMap<>();
+    private final List<Long> keys = new ArrayList<>();
+    // Строки группы кусками, склеиваются один раз в rows
+    private final List<List<int[]>> parts = new ArrayList<>();
+
+    /**
+     * Группы строк [from, to) снимка; строки без источника или кампании пропускаются
+     */
+    static CampaignPartial compute(MetricsSnapshot snapshot, int from, int to) {
+        CampaignPartial partial = new CampaignPartial();
+        int[] groupOfRow = new int[to - from];
+        int[] counts = new int[16];
+        for (int row = from; row < to; row++) {
+            if (snapshot.getSource(row) == null || snapshot.getCampaignId(row) == null) {
+                groupOfRow[row - from] = -1;
+                continue;
+            }
+            long key = ((long) snapshot.getSourceCode(row) << 32) | snapshot.getCampaignCode(row);
+            int group = partial.group(key);
+            if (group == counts.length) {
+                counts = Arrays.copyOf(counts, group * 2);
+            }
+            groupOfRow[row - from] = group;
+            counts[group]++;
+        }
+
+        int[][] rows = new int[partial.keys.size()][];
+        for (int group = 0; group < rows.length; group++) {
+            rows[group] = new int[counts[group]];
+        }
+        int[] filled = new int[rows.length];
+        for (int row = from; row < to; row++) {
+            int group = groupOfRow[row - from];
+            if (group >= 0) {
+                rows[group][filled[group]++] = row;
+            }
+        }
+        for (int group = 0; group < rows.length; group++) {
+            partial.parts.get(group).add(rows[group]);
+        }
+        return partial;
+    }
+
+    /**
+     * Объединение с группами следующего куска (более поздние строки)
+     */
+    static CampaignPartial merge(CampaignPartial left, CampaignPartial right) {
+        for (int group = 0; group < right.keys.size(); group++) {
+            int target = left.group(right.keys.get(group));
+            left.parts.get(target).addAll(right.parts.get(group));
+        }
+        return left;
+    }
+
+    int groupCount() {
+        return keys.size();
+    }
+
+    /**
+     * Строки группы в порядке строк снимка
+     */
+    int[] rows(int group) {
+        List<int[]> groupParts = parts.get(group);
+        int length = 0;
+        for (int[] part : groupParts) {
+            length += part.length;
+        }
+        int[] result = new int[length];
+        int filled = 0;
+        for (int[] part : groupParts) {
+            System.arraycopy(part, 0, result, filled, part.length);
+            filled += part.length;
+        }
+        return result;
+    }
+
+    private int group(long key) {
+        Integer group = groupByKey.get(key);
+        if (group == null) {
+            group = keys.size();
+            groupByKey.put(key, group);
+            keys.add(key);
+            parts.add(new ArrayList<>());
+        }
+        return group;
+    }
+}
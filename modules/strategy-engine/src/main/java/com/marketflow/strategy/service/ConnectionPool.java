@@ -0,0 +1,56 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.config.EngineConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+
+/**
+ * Пул соединений HikariCP, общий для всех сервисов движка на время запуска.
+ * Для Postgres включается подготовка выражений на сервере и их кэш на соединении (prepareThreshold,
+ * preparedStatementCacheQueries): повторные запросы одного текста не разбираются и не планируются заново,
+ * а батчи вставок переписываются в многострочные INSERT (reWriteBatchedInserts)
+ */
+@Slf4j
+public class ConnectionPool implements AutoCloseable {
+    private final HikariDataSource dataSource;
+    private final PoolMetrics metrics = new PoolMetrics();
+
+    public ConnectionPool(EngineConfig config) {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName("strategy-engine");
+        hikari.setJdbcUrl(config.getDbUrl());
+        hikari.setUsername(config.getDbUsername());
+        hikari.setPassword(config.getDbPassword());
+        hikari.setMaximumPoolSize(config.getDbPoolSize());
+        // Запуск короткий: соединения открываются по мере надобности, а не все сразу
+        hikari.setMinimumIdle(1);
+        hikari.setConnectionTimeout(config.getDbPoolConnectionTimeoutMs());
+        hikari.setMetricsTrackerFactory(metrics);
+        if (config.getDbUrl().startsWith("jdbc:postgresql:")) {
+            hikari.addDataSourceProperty("prepareThreshold", String.valueOf(config.getDbPrepareThreshold()));
+            hikari.addDataSourceProperty("preparedStatementCacheQueries",
+                    String.valueOf(config.getDbPreparedStatementCacheSize()));
+            // Батч INSERT уходит на сервер многострочными INSERT ... VALUES (...), (...)
+            hikari.addDataSourceProperty("reWriteBatchedInserts", "true");
+        }
+        this.dataSource = new HikariDataSource(hikari);
+        log.info("Connection pool started: max size {}", config.getDbPoolSize());
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        log.info("Connection pool stats: {}", metrics);
+        dataSource.close();
+    }
+}
@@ -1,34 +1,54 @@
 package com.marketflow.strategy.service;
 
 import com.marketflow.strategy.config.EngineConfig;
+import com.marketflow.strategy.model.DailySeries;
 import com.marketflow.strategy.model.MetricData;
+import com.marketflow.strategy.model.MetricsSnapshot;
 import com.marketflow.strategy.model.StrategyResult;
+import com.marketflow.strategy.model.TrendWindowState;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Сервис для работы с базой данных
+ * Сервис для работы с базой данных: источник метрик, хранилище стратегий и состояния окон трендов поверх JDBC
  */
 @Slf4j
-public class DatabaseService {
+public class DatabaseService implements MetricsSource, StrategySink, WindowStateStore {
     private final EngineConfig config;
+    private final DataSource dataSource;
 
+    /**
+     * Сервис без пула: каждое обращение открывает новое соединение через DriverManager
+     */
     public DatabaseService(EngineConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * @param dataSource пул соединений, общий для сервисов движка (см. {@link ConnectionPool})
+     */
+    public DatabaseService(EngineConfig config, DataSource dataSource) {
         this.config = config;
+        this.dataSource = dataSource;
     }
 
     /**
-     * Получение метрик за указанный период
+     * Получение метрик за указанный период.
+     * Строки читаются курсором порциями по db.fetch.size, без буферизации всего результата в драйвере;
+     * для больших периодов - {@link #openMetricsCursor} без объекта на строку
      * @param daysBack количество дней назад для анализа
      * @return список метрик
      */
+    @Override
     public List<MetricData> getMetricsForPeriod(int daysBack) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(daysBack);
@@ -38,6 +58,211 @@ public class DatabaseService {
         String sql = "SELECT id, date, clicks, impressions, cost, source, campaign_id " +
                 "FROM metrics WHERE date BETWEEN ? AND ? ORDER BY date ASC";
 
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (PreparedStatement stmt = prepareStreaming(conn, sql)) {
+                stmt.setObject(1, startDate);
+                stmt.setObject(2, endDate);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        MetricData metric = MetricData.builder()
+                                .id(rs.getLong("id"))
+                                .date(rs.getObject("date", LocalDate.class))
+                                .clicks(rs.getInt("clicks"))
+                                .impressions(rs.getInt("impressions"))
+                                .cost(rs.getDouble("cost"))
+                                .source(rs.getString("source"))
+                                .campaignId(rs.getString("campaign_id"))
+                                .build();
+
+                        // Расчет дополнительных метрик
+                        metric.setCtr(metric.calculateCtr());
+                        metric.setCpc(metric.calculateCpc());
+
+                        metrics.add(metric);
+                    }
+                }
+            } finally {
+                conn.rollback();
+            }
+
+            log.info("Loaded {} metrics from database for period {} to {}",
+                    metrics.size(), startDate, endDate);
+
+        } catch (SQLException e) {
+            log.error("Error loading metrics from database", e);
+            throw new RuntimeException("Database error when loading metrics", e);
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Загрузка колоночного снимка метрик за период одним запросом.
+     * Строки читаются курсором сразу в примитивные массивы, без промежуточных MetricData
+     * и без копии всего результата в драйвере.
+     * @param daysBack количество дней назад для анализа
+     * @return снимок метрик, упорядоченный по дате
+     */
+    @Override
+    public MetricsSnapshot loadMetricsSnapshot(int daysBack) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(daysBack);
+
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(daysBack, startDate, endDate);
+        try (MetricsCursor cursor = openMetricsCursor(startDate, endDate)) {
+            while (cursor.next()) {
+                builder.add(cursor.getDate(),
+                        cursor.getSource(),
+                        cursor.getCampaignId(),
+                        cursor.getClicks(),
+                        cursor.getImpressions(),
+                        cursor.getCost());
+            }
+        }
+
+        MetricsSnapshot snapshot = builder.build();
+        log.info("Loaded metrics snapshot: {} rows, {} sources, {} campaigns for period {} to {}",
+                snapshot.size(), snapshot.getSourceCount(), snapshot.getCampaignCount(), startDate, endDate);
+        return snapshot;
+    }
+
+    private static final String SCAN_METRICS_SQL = "SELECT date, clicks, impressions, cost, source, campaign_id " +
+            "FROM metrics WHERE date BETWEEN ? AND ? ORDER BY date ASC";
+
+    /**
+     * Потоковое чтение метрик за период: каждый проход - отдельный запрос с курсором
+     * (forward-only, autocommit выключен, строки приходят порциями по db.fetch.size).
+     * Все проходы выполняются в одной транзакции REPEATABLE READ и видят одни и те же строки.
+     * В памяти одновременно держится только текущая порция строк
+     * @param daysBack количество дней назад для анализа
+     * @param passes обработчики строк, по одному на проход
+     */
+    @Override
+    public void scanMetrics(int daysBack, List<MetricRowHandler> passes) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(daysBack);
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setReadOnly(true);
+            try {
+                for (MetricRowHandler handler : passes) {
+                    scanRange(conn, startDate, endDate, handler);
+                }
+            } finally {
+                conn.rollback();
+            }
+
+        } catch (SQLException e) {
+            log.error("Error scanning metrics from database", e);
+            throw new RuntimeException("Database error when loading metrics", e);
+        }
+    }
+
+    /**
+     * Потоковое чтение строк метрик с датой в [startDate, endDate] одним проходом
+     * @param startDate первая дата (включительно)
+     * @param endDate последняя дата (включительно)
+     * @param handler обработчик строк
+     */
+    @Override
+    public void scanMetrics(LocalDate startDate, LocalDate endDate, MetricRowHandler handler) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try {
+                scanRange(conn, startDate, endDate, handler);
+            } finally {
+                conn.rollback();
+            }
+
+        } catch (SQLException e) {
+            log.error("Error scanning metrics from database", e);
+            throw new RuntimeException("Database error when loading metrics", e);
+        }
+    }
+
+    /**
+     * Курсор по строкам метрик с датой в [startDate, endDate]: отдельное соединение с выключенным autocommit,
+     * строки приходят порциями по db.fetch.size. Соединение возвращается в пул при закрытии курсора
+     * (или при исчерпании строк)
+     * @param startDate первая дата (включительно)
+     * @param endDate последняя дата (включительно)
+     * @return курсор, который закрывает вызывающий
+     */
+    @Override
+    public MetricsCursor openMetricsCursor(LocalDate startDate, LocalDate endDate) {
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            PreparedStatement stmt = prepareStreaming(conn, SCAN_METRICS_SQL);
+            stmt.setObject(1, startDate);
+            stmt.setObject(2, endDate);
+            return new JdbcMetricsCursor(conn, stmt, stmt.executeQuery());
+
+        } catch (SQLException e) {
+            log.error("Error opening metrics cursor", e);
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException closeError) {
+                    e.addSuppressed(closeError);
+                }
+            }
+            throw new RuntimeException("Database error when loading metrics", e);
+        }
+    }
+
+    /**
+     * Forward-only запрос с порциями по db.fetch.size. Postgres отдает строки порциями только
+     * при выключенном autocommit, иначе драйвер читает весь результат до первого next()
+     */
+    private PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(config.getDbFetchSize());
+        return stmt;
+    }
+
+    private void scanRange(Connection conn, LocalDate startDate, LocalDate endDate, MetricRowHandler handler)
+            throws SQLException {
+        try (PreparedStatement stmt = prepareStreaming(conn, SCAN_METRICS_SQL)) {
+            stmt.setObject(1, startDate);
+            stmt.setObject(2, endDate);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle((int) rs.getObject(1, LocalDate.class).toEpochDay(),
+                            rs.getString(5),
+                            rs.getString(6),
+                            rs.getInt(2),
+                            rs.getInt(3),
+                            rs.getDouble(4));
+                }
+            }
+        }
+    }
+
+    /**
+     * Дневные итоги по всем источникам из представления metrics_daily_summary.
+     * Агрегация выполняется в Postgres: передается одна строка на день, а не на день и кампанию
+     * @param daysBack количество дней назад для анализа
+     * @return дневной ряд по возрастанию даты
+     */
+    @Override
+    public DailySeries loadDailyTotals(int daysBack) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(daysBack);
+
+        String sql = "SELECT date, total_clicks, total_impressions, total_cost " +
+                "FROM metrics_daily_summary WHERE date BETWEEN ? AND ? ORDER BY date ASC";
+
+        DailySeries.Builder builder = DailySeries.builder();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
@@ -46,65 +271,83 @@ public class DatabaseService {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    MetricData metric = MetricData.builder()
-                            .id(rs.getLong("id"))
-                            .date(rs.getObject("date", LocalDate.class))
-                            .clicks(rs.getInt("clicks"))
-                            .impressions(rs.getInt("impressions"))
-                            .cost(rs.getDouble("cost"))
-                            .source(rs.getString("source"))
-                            .campaignId(rs.getString("campaign_id"))
-                            .build();
-
-                    // Расчет дополнительных метрик
-                    metric.setCtr(metric.calculateCtr());
-                    metric.setCpc(metric.calculateCpc());
-
-                    metrics.add(metric);
+                    addDailyRow(builder, rs);
                 }
             }
 
-            log.info("Loaded {} metrics from database for period {} to {}",
-                    metrics.size(), startDate, endDate);
-
         } catch (SQLException e) {
-            log.error("Error loading metrics from database", e);
-            throw new RuntimeException("Database error when loading metrics", e);
+            log.error("Error loading daily totals from database", e);
+            throw new RuntimeException("Database error when loading daily totals", e);
         }
 
-        return metrics;
+        DailySeries series = builder.build();
+        log.info("Loaded {} daily totals for period {} to {}", series.size(), startDate, endDate);
+        return series;
     }
 
     /**
-     * Сохранение результата стратегии в базу данных
-     * @param strategyResult результат для сохранения
-     * @return сохраненный результат с присвоенным ID
+     * Дневные итоги по каждому источнику, агрегированные в Postgres
+     * @param daysBack количество дней назад для анализа
+     * @return дневные ряды по источникам
      */
-    public StrategyResult saveStrategyResult(StrategyResult strategyResult) {
-        String sql = "INSERT INTO strategies (name, description, source, generated_at, " +
-                "recommendations, status, metrics_period) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING id";
+    @Override
+    public Map<String, DailySeries> loadDailyTotalsBySource(int daysBack) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(daysBack);
+
+        String sql = "SELECT date, SUM(clicks), SUM(impressions), SUM(cost), source " +
+                "FROM metrics WHERE date BETWEEN ? AND ? AND source IS NOT NULL " +
+                "GROUP BY source, date ORDER BY source, date";
 
+        Map<String, DailySeries.Builder> builders = new LinkedHashMap<>();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, strategyResult.getName());
-            stmt.setString(2, strategyResult.getDescription());
-            stmt.setString(3, strategyResult.getSource());
-            stmt.setObject(4, strategyResult.getGeneratedAt() != null ?
-                    strategyResult.getGeneratedAt() : LocalDateTime.now());
-            stmt.setString(5, strategyResult.getFormattedRecommendations());
-            stmt.setString(6, "DRAFT"); // Изначальный статус
-            stmt.setInt(7, strategyResult.getMetricsPeriod());
+            stmt.setObject(1, startDate);
+            stmt.setObject(2, endDate);
 
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Long id = rs.getLong(1);
-                    strategyResult.setId(id);
-                    log.info("Saved strategy with ID: {}", id);
+                while (rs.next()) {
+                    addDailyRow(builders.computeIfAbsent(rs.getString(5), source -> DailySeries.builder()), rs);
                 }
             }
 
+        } catch (SQLException e) {
+            log.error("Error loading daily totals by source from database", e);
+            throw new RuntimeException("Database error when loading daily totals", e);
+        }
+
+        Map<String, DailySeries> result = new LinkedHashMap<>();
+        builders.forEach((source, builder) -> result.put(source, builder.build()));
+        log.info("Loaded daily totals for {} sources for period {} to {}", result.size(), startDate, endDate);
+        return result;
+    }
+
+    private static void addDailyRow(DailySeries.Builder builder, ResultSet rs) throws SQLException {
+        builder.add((int) rs.getObject(1, LocalDate.class).toEpochDay(),
+                rs.getLong(2),
+                rs.getLong(3),
+                rs.getDouble(4));
+    }
+
+    private static final String INSERT_STRATEGY_SQL = "INSERT INTO strategies (name, description, source, campaign_id, " +
+            "generated_at, recommendations, status, metrics_period) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String[] GENERATED_KEYS = {"id"};
+
+    /**
+     * Сохранение результата стратегии в базу данных
+     * @param strategyResult результат для сохранения
+     * @return сохраненный результат с присвоенным ID
+     */
+    @Override
+    public StrategyResult saveStrategyResult(StrategyResult strategyResult) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_STRATEGY_SQL, GENERATED_KEYS)) {
+
+            insertStrategy(stmt, strategyResult);
+            log.info("Saved strategy with ID: {}", strategyResult.getId());
+
         } catch (SQLException e) {
             log.error("Error saving strategy to database", e);
             throw new RuntimeException("Database error when saving strategy", e);
@@ -113,11 +356,99 @@ public class DatabaseService {
         return strategyResult;
     }
 
+    /**
+     * Сохранение пачки стратегий в одной транзакции JDBC-батчами по db.batch.size строк.
+     * ID присваиваются результатам в исходном порядке и только после фиксации транзакции;
+     * при ошибке транзакция откатывается целиком и ID не меняются
+     * @param strategyResults результаты для сохранения
+     * @return те же результаты с присвоенными ID
+     */
+    @Override
+    public List<StrategyResult> saveStrategyResults(List<StrategyResult> strategyResults) {
+        if (strategyResults.isEmpty()) {
+            return strategyResults;
+        }
+
+        int batchSize = config.getDbBatchSize();
+        long[] ids = new long[strategyResults.size()];
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_STRATEGY_SQL, GENERATED_KEYS)) {
+                LocalDateTime now = LocalDateTime.now();
+                for (int from = 0; from < ids.length; from += batchSize) {
+                    int to = Math.min(ids.length, from + batchSize);
+                    for (int i = from; i < to; i++) {
+                        bindStrategy(stmt, strategyResults.get(i), now);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    readGeneratedIds(stmt, ids, from, to);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            for (int i = 0; i < ids.length; i++) {
+                strategyResults.get(i).setId(ids[i]);
+            }
+            log.info("Saved {} strategies in one transaction ({} per batch)", ids.length, batchSize);
+
+        } catch (SQLException e) {
+            log.error("Error saving strategies to database", e);
+            throw new RuntimeException("Database error when saving strategies", e);
+        }
+
+        return strategyResults;
+    }
+
+    /**
+     * Ключи батча приходят в порядке добавления строк; их должно быть ровно по одному на строку
+     */
+    private static void readGeneratedIds(PreparedStatement stmt, long[] ids, int from, int to) throws SQLException {
+        int i = from;
+        try (ResultSet rs = stmt.getGeneratedKeys()) {
+            while (rs.next()) {
+                if (i == to) {
+                    throw new SQLException("More generated keys than rows in batch: " + (to - from));
+                }
+                ids[i++] = rs.getLong(1);
+            }
+        }
+        if (i != to) {
+            throw new SQLException("Expected " + (to - from) + " generated keys, got " + (i - from));
+        }
+    }
+
+    private void insertStrategy(PreparedStatement stmt, StrategyResult strategyResult) throws SQLException {
+        bindStrategy(stmt, strategyResult, LocalDateTime.now());
+        stmt.executeUpdate();
+        try (ResultSet rs = stmt.getGeneratedKeys()) {
+            if (rs.next()) {
+                strategyResult.setId(rs.getLong(1));
+            }
+        }
+    }
+
+    private static void bindStrategy(PreparedStatement stmt, StrategyResult strategyResult, LocalDateTime now)
+            throws SQLException {
+        stmt.setString(1, strategyResult.getName());
+        stmt.setString(2, strategyResult.getDescription());
+        stmt.setString(3, strategyResult.getSource());
+        stmt.setString(4, strategyResult.getCampaignId());
+        stmt.setObject(5, strategyResult.getGeneratedAt() != null ? strategyResult.getGeneratedAt() : now);
+        stmt.setString(6, strategyResult.getFormattedRecommendations());
+        stmt.setString(7, "DRAFT"); // Изначальный статус
+        stmt.setInt(8, strategyResult.getMetricsPeriod());
+    }
+
     /**
      * Получение агрегированных метрик по источникам
      * @param daysBack количество дней для анализа
      * @return Карта с агрегированными метриками по источникам
      */
+    @Override
     public Map<String, Map<String, Double>> getAggregatedMetricsBySource(int daysBack) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(daysBack);
@@ -164,13 +495,214 @@ public class DatabaseService {
         return result;
     }
 
+    private static final String WINDOW_STATE_COLUMNS = "source, campaign_id, window_start, window_end, origin_day, " +
+            "rebuilt_on, points, sum_x, sum_xx, sum_ctr, sum_x_ctr, sum_cpc, sum_x_cpc, clicks, impressions, cost";
+
+    /**
+     * Загрузка состояния окон трендов. Ключ "все источники" и "источник целиком" хранится
+     * с пустой строкой вместо null, чтобы входить в первичный ключ
+     * @return сохраненные окна
+     */
+    @Override
+    public List<TrendWindowState> loadWindowStates() {
+        List<TrendWindowState> states = new ArrayList<>();
+        String sql = "SELECT " + WINDOW_STATE_COLUMNS + " FROM strategy_window_state";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                TrendWindowState state = new TrendWindowState(emptyToNull(rs.getString(1)), emptyToNull(rs.getString(2)));
+                state.setWindowStart(rs.getObject(3, LocalDate.class));
+                state.setWindowEnd(rs.getObject(4, LocalDate.class));
+                state.setOriginDay(rs.getObject(5, LocalDate.class));
+                state.setRebuiltOn(rs.getObject(6, LocalDate.class));
+                state.setPoints(rs.getInt(7));
+                state.setSumX(rs.getLong(8));
+                state.setSumXx(rs.getLong(9));
+                state.setSumCtr(rs.getDouble(10));
+                state.setSumXCtr(rs.getDouble(11));
+                state.setSumCpc(rs.getDouble(12));
+                state.setSumXCpc(rs.getDouble(13));
+                state.setClicks(rs.getLong(14));
+                state.setImpressions(rs.getLong(15));
+                state.setCost(rs.getDouble(16));
+                states.add(state);
+            }
+
+        } catch (SQLException e) {
+            log.error("Error loading trend window state", e);
+            throw new RuntimeException("Database error when loading trend window state", e);
+        }
+
+        log.info("Loaded {} trend window states", states.size());
+        return states;
+    }
+
+    /**
+     * Замена состояния окон трендов: удаление и вставка батчами в одной транзакции
+     * @param states новое состояние всех окон
+     */
+    @Override
+    public void replaceWindowStates(List<TrendWindowState> states) {
+        String sql = "INSERT INTO strategy_window_state (" + WINDOW_STATE_COLUMNS + ", updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement delete = conn.createStatement();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                delete.executeUpdate("DELETE FROM strategy_window_state");
+
+                LocalDateTime now = LocalDateTime.now();
+                int batched = 0;
+                for (TrendWindowState state : states) {
+                    stmt.setString(1, nullToEmpty(state.getSource()));
+                    stmt.setString(2, nullToEmpty(state.getCampaignId()));
+                    stmt.setObject(3, state.getWindowStart());
+                    stmt.setObject(4, state.getWindowEnd());
+                    stmt.setObject(5, state.getOriginDay());
+                    stmt.setObject(6, state.getRebuiltOn());
+                    stmt.setInt(7, state.getPoints());
+                    stmt.setLong(8, state.getSumX());
+                    stmt.setLong(9, state.getSumXx());
+                    stmt.setDouble(10, state.getSumCtr());
+                    stmt.setDouble(11, state.getSumXCtr());
+                    stmt.setDouble(12, state.getSumCpc());
+                    stmt.setDouble(13, state.getSumXCpc());
+                    stmt.setLong(14, state.getClicks());
+                    stmt.setLong(15, state.getImpressions());
+                    stmt.setDouble(16, state.getCost());
+                    stmt.setObject(17, now);
+                    stmt.addBatch();
+                    if (++batched % config.getDbBatchSize() == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            log.info("Saved {} trend window states", states.size());
+
+        } catch (SQLException e) {
+            log.error("Error saving trend window state", e);
+            throw new RuntimeException("Database error when saving trend window state", e);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
     /**
      * Получение соединения с базой данных
      */
-    private Connection getConnection() throws SQLException {
+    protected Connection getConnection() throws SQLException {
+        if (dataSource != null) {
+            return dataSource.getConnection();
+        }
         return DriverManager.getConnection(
                 config.getDbUrl(),
                 config.getDbUsername(),
                 config.getDbPassword());
     }
-}
\ No newline at end of file
+
+    /**
+     * Курсор поверх ResultSet: значения текущей строки переписываются в поля при каждом next()
+     */
+    private static final class JdbcMetricsCursor implements MetricsCursor {
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private boolean closed;
+        private int epochDay;
+        private String source;
+        private String campaignId;
+        private int clicks;
+        private int impressions;
+        private double cost;
+
+        private JdbcMetricsCursor(Connection conn, PreparedStatement stmt, ResultSet rs) {
+            this.conn = conn;
+            this.stmt = stmt;
+            this.rs = rs;
+        }
+
+        @Override
+        public boolean next() {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                epochDay = (int) rs.getObject(1, LocalDate.class).toEpochDay();
+                clicks = rs.getInt(2);
+                impressions = rs.getInt(3);
+                cost = rs.getDouble(4);
+                source = rs.getString(5);
+                campaignId = rs.getString(6);
+                return true;
+            } catch (SQLException e) {
+                log.error("Error reading metrics cursor", e);
+                close();
+                throw new RuntimeException("Database error when loading metrics", e);
+            }
+        }
+
+        @Override
+        public int getEpochDay() {
+            return epochDay;
+        }
+
+        @Override
+        public String getSource() {
+            return source;
+        }
+
+        @Override
+        public String getCampaignId() {
+            return campaignId;
+        }
+
+        @Override
+        public int getClicks() {
+            return clicks;
+        }
+
+        @Override
+        public int getImpressions() {
+            return impressions;
+        }
+
+        @Override
+        public double getCost() {
+            return cost;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // Курсор только читает: транзакция откатывается, соединение возвращается в пул
+            try (Connection connection = conn; Statement statement = stmt; ResultSet resultSet = rs) {
+                connection.rollback();
+            } catch (SQLException e) {
+                log.warn("Error closing metrics cursor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.config.EngineConfig;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JDBC-реализация поверх H2: те же запросы, что и для Postgres, без внешней БД.
+ * При создании накатывает схему из h2/schema.sql (таблицы уже существующей БД не трогаются).
+ * Драйвер H2 - optional-зависимость модуля, его нужно добавить в classpath запуска
+ */
+@Slf4j
+public class H2DatabaseService extends DatabaseService {
+    private static final String SCHEMA_SCRIPT = "RUNSCRIPT FROM 'classpath:/h2/schema.sql'";
+    private static final String INSERT_METRIC_SQL = "INSERT INTO metrics (date, clicks, impressions, cost, source, campaign_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    /**
+     * @param config конфигурация с db.url вида jdbc:h2:...
+     */
+    public H2DatabaseService(EngineConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * @param config конфигурация с db.url вида jdbc:h2:...
+     * @param dataSource пул соединений к той же базе
+     */
+    public H2DatabaseService(EngineConfig config, DataSource dataSource) {
+        super(config, dataSource);
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(SCHEMA_SCRIPT);
+        } catch (SQLException e) {
+            log.error("Error creating H2 schema", e);
+            throw new RuntimeException("Database error when creating schema", e);
+        }
+    }
+
+    /**
+     * База H2 в памяти, живущая до завершения JVM
+     * @param databaseName имя базы; сервисы с одним именем видят одни и те же данные
+     */
+    public static H2DatabaseService inMemory(String databaseName) {
+        EngineConfig config = new EngineConfig();
+        config.setDbUrl("jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1");
+        config.setDbUsername("sa");
+        config.setDbPassword("");
+        return new H2DatabaseService(config);
+    }
+
+    /**
+     * Загрузка строк снимка в таблицу metrics пачками в одной транзакции
+     * @param snapshot метрики для загрузки
+     */
+    public void insertMetrics(MetricsSnapshot snapshot) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_METRIC_SQL)) {
+                for (int row = 0; row < snapshot.size(); row++) {
+                    stmt.setObject(1, snapshot.getDate(row));
+                    stmt.setInt(2, snapshot.getClicks(row));
+                    stmt.setInt(3, snapshot.getImpressions(row));
+                    stmt.setDouble(4, snapshot.getCost(row));
+                    stmt.setString(5, snapshot.getSource(row));
+                    stmt.setString(6, snapshot.getCampaignId(row));
+                    stmt.addBatch();
+                    if ((row + 1) % INSERT_BATCH_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            log.info("Inserted {} metrics into H2", snapshot.size());
+
+        } catch (SQLException e) {
+            log.error("Error inserting metrics into H2", e);
+            throw new RuntimeException("Database error when inserting metrics", e);
+        }
+    }
+}
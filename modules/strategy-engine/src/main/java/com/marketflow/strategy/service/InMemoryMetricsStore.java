@@ -0,0 +1,265 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.DailySeries;
+import com.marketflow.strategy.model.MetricData;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.model.StrategyResult;
+import com.marketflow.strategy.model.TrendWindowState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Источник метрик, хранилище стратегий и состояния окон трендов в памяти: для синтетических нагрузок, бенчмарков и тестов.
+ * Метрики берутся из заранее построенного снимка, агрегаты считаются так же, как запросы {@link DatabaseService}.
+ * Сохраненные стратегии получают последовательные ID и доступны через {@link #getSavedStrategies()}.
+ * Потокобезопасен: снимок неизменяем, сохранение синхронизировано
+ */
+@Slf4j
+public class InMemoryMetricsStore implements MetricsSource, StrategySink, WindowStateStore {
+    private final MetricsSnapshot metrics;
+    private final AtomicLong ids = new AtomicLong();
+    private final List<StrategyResult> savedStrategies = new ArrayList<>();
+    private volatile List<TrendWindowState> windowStates = new ArrayList<>();
+
+    /**
+     * @param metrics все метрики хранилища, период запроса выбирается из них по дате
+     */
+    public InMemoryMetricsStore(MetricsSnapshot metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<MetricData> getMetricsForPeriod(int daysBack) {
+        MetricsSnapshot snapshot = loadMetricsSnapshot(daysBack);
+        List<MetricData> result = new ArrayList<>(snapshot.size());
+        for (int row = 0; row < snapshot.size(); row++) {
+            MetricData metric = MetricData.builder()
+                    .date(snapshot.getDate(row))
+                    .clicks(snapshot.getClicks(row))
+                    .impressions(snapshot.getImpressions(row))
+                    .cost(snapshot.getCost(row))
+                    .source(snapshot.getSource(row))
+                    .campaignId(snapshot.getCampaignId(row))
+                    .build();
+            metric.setCtr(metric.calculateCtr());
+            metric.setCpc(metric.calculateCpc());
+            result.add(metric);
+        }
+        return result;
+    }
+
+    @Override
+    public MetricsSnapshot loadMetricsSnapshot(int daysBack) {
+        LocalDate endDate = LocalDate.now();
+        return metrics.forPeriod(daysBack, endDate.minusDays(daysBack), endDate);
+    }
+
+    @Override
+    public void scanMetrics(int daysBack, List<MetricRowHandler> passes) {
+        MetricsSnapshot snapshot = loadMetricsSnapshot(daysBack);
+        for (MetricRowHandler handler : passes) {
+            for (int row = 0; row < snapshot.size(); row++) {
+                handler.handle(snapshot.getEpochDay(row), snapshot.getSource(row), snapshot.getCampaignId(row),
+                        snapshot.getClicks(row), snapshot.getImpressions(row), snapshot.getCost(row));
+            }
+        }
+    }
+
+    @Override
+    public void scanMetrics(LocalDate startDate, LocalDate endDate, MetricRowHandler handler) {
+        MetricsSnapshot snapshot = metrics.forPeriod((int) (endDate.toEpochDay() - startDate.toEpochDay()),
+                startDate, endDate);
+        for (int row = 0; row < snapshot.size(); row++) {
+            handler.handle(snapshot.getEpochDay(row), snapshot.getSource(row), snapshot.getCampaignId(row),
+                    snapshot.getClicks(row), snapshot.getImpressions(row), snapshot.getCost(row));
+        }
+    }
+
+    @Override
+    public MetricsCursor openMetricsCursor(LocalDate startDate, LocalDate endDate) {
+        MetricsSnapshot snapshot = metrics.forPeriod((int) (endDate.toEpochDay() - startDate.toEpochDay()),
+                startDate, endDate);
+        return new SnapshotCursor(snapshot);
+    }
+
+    @Override
+    public DailySeries loadDailyTotals(int daysBack) {
+        return DailySeries.fromSnapshot(loadMetricsSnapshot(daysBack));
+    }
+
+    @Override
+    public Map<String, DailySeries> loadDailyTotalsBySource(int daysBack) {
+        MetricsSnapshot snapshot = loadMetricsSnapshot(daysBack);
+        int sourceCount = snapshot.getSourceCount();
+        DailySeries.Builder[] builders = new DailySeries.Builder[sourceCount];
+        int[] days = new int[sourceCount];
+        long[] clicks = new long[sourceCount];
+        long[] impressions = new long[sourceCount];
+        double[] costs = new double[sourceCount];
+
+        // Строки идут по дате: день источника закрывается, когда у него появляется строка следующего дня
+        for (int row = 0; row < snapshot.size(); row++) {
+            if (snapshot.getSource(row) == null) {
+                continue;
+            }
+            int code = snapshot.getSourceCode(row);
+            int day = snapshot.getEpochDay(row);
+            if (builders[code] == null) {
+                builders[code] = DailySeries.builder();
+                days[code] = day;
+            } else if (days[code] != day) {
+                builders[code].add(days[code], clicks[code], impressions[code], costs[code]);
+                days[code] = day;
+                clicks[code] = 0;
+                impressions[code] = 0;
+                costs[code] = 0;
+            }
+            clicks[code] += snapshot.getClicks(row);
+            impressions[code] += snapshot.getImpressions(row);
+            costs[code] += snapshot.getCost(row);
+        }
+
+        Map<String, DailySeries> sorted = new TreeMap<>();
+        for (int code = 0; code < sourceCount; code++) {
+            if (builders[code] != null) {
+                builders[code].add(days[code], clicks[code], impressions[code], costs[code]);
+                sorted.put(snapshot.getSourceByCode(code), builders[code].build());
+            }
+        }
+        return new LinkedHashMap<>(sorted);
+    }
+
+    @Override
+    public Map<String, Map<String, Double>> getAggregatedMetricsBySource(int daysBack) {
+        MetricsSnapshot snapshot = loadMetricsSnapshot(daysBack);
+        int sourceCount = snapshot.getSourceCount();
+        long[] clicks = new long[sourceCount];
+        long[] impressions = new long[sourceCount];
+        double[] costs = new double[sourceCount];
+        for (int row = 0; row < snapshot.size(); row++) {
+            int code = snapshot.getSourceCode(row);
+            clicks[code] += snapshot.getClicks(row);
+            impressions[code] += snapshot.getImpressions(row);
+            costs[code] += snapshot.getCost(row);
+        }
+
+        Map<String, Map<String, Double>> result = new HashMap<>();
+        for (int code = 0; code < sourceCount; code++) {
+            Map<String, Double> aggregated = new HashMap<>();
+            aggregated.put("clicks", (double) clicks[code]);
+            aggregated.put("impressions", (double) impressions[code]);
+            aggregated.put("cost", costs[code]);
+            // Как NULLIF в SQL: при нулевом знаменателе среднее равно 0
+            aggregated.put("ctr", impressions[code] > 0 ? clicks[code] * 100.0 / impressions[code] : 0.0);
+            aggregated.put("cpc", clicks[code] > 0 ? costs[code] / clicks[code] : 0.0);
+            result.put(snapshot.getSourceByCode(code), aggregated);
+        }
+        return result;
+    }
+
+    @Override
+    public StrategyResult saveStrategyResult(StrategyResult strategyResult) {
+        synchronized (savedStrategies) {
+            strategyResult.setId(ids.incrementAndGet());
+            savedStrategies.add(strategyResult);
+        }
+        return strategyResult;
+    }
+
+    @Override
+    public List<StrategyResult> saveStrategyResults(List<StrategyResult> strategyResults) {
+        synchronized (savedStrategies) {
+            strategyResults.forEach(this::saveStrategyResult);
+        }
+        log.debug("Saved {} strategies in memory", strategyResults.size());
+        return strategyResults;
+    }
+
+    @Override
+    public List<TrendWindowState> loadWindowStates() {
+        List<TrendWindowState> copies = new ArrayList<>();
+        windowStates.forEach(state -> copies.add(state.copy()));
+        return copies;
+    }
+
+    @Override
+    public void replaceWindowStates(List<TrendWindowState> states) {
+        List<TrendWindowState> copies = new ArrayList<>();
+        states.forEach(state -> copies.add(state.copy()));
+        windowStates = copies;
+    }
+
+    /**
+     * Все сохраненные стратегии в порядке сохранения
+     */
+    public List<StrategyResult> getSavedStrategies() {
+        synchronized (savedStrategies) {
+            return new ArrayList<>(savedStrategies);
+        }
+    }
+
+    /**
+     * Курсор по строкам снимка: текущая строка - номер строки в колонках
+     */
+    private static final class SnapshotCursor implements MetricsCursor {
+        private final MetricsSnapshot snapshot;
+        private int row = -1;
+
+        private SnapshotCursor(MetricsSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean next() {
+            if (row + 1 >= snapshot.size()) {
+                row = snapshot.size();
+                return false;
+            }
+            row++;
+            return true;
+        }
+
+        @Override
+        public int getEpochDay() {
+            return snapshot.getEpochDay(row);
+        }
+
+        @Override
+        public String getSource() {
+            return snapshot.getSource(row);
+        }
+
+        @Override
+        public String getCampaignId() {
+            return snapshot.getCampaignId(row);
+        }
+
+        @Override
+        public int getClicks() {
+            return snapshot.getClicks(row);
+        }
+
+        @Override
+        public int getImpressions() {
+            return snapshot.getImpressions(row);
+        }
+
+        @Override
+        public double getCost() {
+            return snapshot.getCost(row);
+        }
+
+        @Override
+        public void close() {
+            row = snapshot.size();
+        }
+    }
+}
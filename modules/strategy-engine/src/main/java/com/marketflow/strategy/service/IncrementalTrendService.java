@@ -0,0 +1,268 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.TrendWindowState;
+import com.marketflow.strategy.util.MetricsCalculator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Инкрементальные тренды и эффективность по скользящему окну [сегодня - windowDays, сегодня].
+ * Суммы окна хранятся между запусками ({@link WindowStateStore}) по ключам: все источники, источник, кампания.
+ * Запуск читает из metrics только вытесняемые и новые дни и обновляет суммы за O(1) на ключ и день,
+ * поэтому время не растет с длиной окна. Сохраняются только завершенные дни (до вчера включительно);
+ * данные текущего дня добавляются к копии состояния при каждом запуске.
+ * Окно пересчитывается целиком при первом запуске, смене длины окна, пропуске больше окна
+ * и раз в rebuildIntervalDays дней - это сбрасывает накопленную погрешность сумм
+ * и учитывает поздние исправления уже учтенных дней. Также окно пересчитывается, если вытеснение
+ * дало невозможные суммы: в вытесняемые дни загрузили строки после их добавления
+ */
+@Slf4j
+public class IncrementalTrendService {
+
+    private final MetricsSource metricsSource;
+    private final WindowStateStore stateStore;
+    private final int rebuildIntervalDays;
+    private final MetricsCalculator calculator;
+
+    /**
+     * @param rebuildIntervalDays через сколько дней окно пересчитывается целиком
+     */
+    public IncrementalTrendService(MetricsSource metricsSource, WindowStateStore stateStore, int rebuildIntervalDays) {
+        if (rebuildIntervalDays <= 0) {
+            throw new IllegalArgumentException("Rebuild interval must be positive: " + rebuildIntervalDays);
+        }
+        this.metricsSource = metricsSource;
+        this.stateStore = stateStore;
+        this.rebuildIntervalDays = rebuildIntervalDays;
+        this.calculator = new MetricsCalculator();
+    }
+
+    /**
+     * Сдвигает сохраненное окно к текущему дню и возвращает окна с учетом данных текущего дня
+     * @param windowDays длина окна в днях назад от сегодняшнего дня
+     * @param today текущий день
+     * @return окна по всем ключам, в которых есть данные
+     */
+    public List<TrendWindowState> update(int windowDays, LocalDate today) {
+        LocalDate windowStart = today.minusDays(windowDays);
+        LocalDate settledEnd = today.minusDays(1);
+
+        List<TrendWindowState> stored = stateStore.loadWindowStates();
+        Map<String, TrendWindowState> states = new HashMap<>();
+        LocalDate origin = null;
+        LocalDate rebuiltOn = null;
+        boolean rebuild = needsRebuild(stored, windowStart, settledEnd, today);
+
+        if (!rebuild) {
+            TrendWindowState first = stored.get(0);
+            origin = first.getOriginDay();
+            rebuiltOn = first.getRebuiltOn();
+            for (TrendWindowState state : stored) {
+                states.put(key(state.getSource(), state.getCampaignId()), state);
+            }
+
+            // Вытеснение дней, вышедших из окна, и добавление завершенных дней после прошлого запуска.
+            // Вытесняемые дни читаются заново: строка, загруженная позже добавления дня, вычлась бы
+            // без добавления, поэтому при невозможных суммах окно пересчитывается целиком
+            LocalDate evictEnd = min(windowStart.minusDays(1), first.getWindowEnd());
+            if (applyDays(states, first.getWindowStart(), evictEnd, origin, -1)) {
+                LocalDate addStart = max(first.getWindowEnd().plusDays(1), windowStart);
+                applyDays(states, addStart, settledEnd, origin, 1);
+                log.info("Advanced trend windows to {} - {}: evicted {} - {}, added {} - {}",
+                        windowStart, settledEnd, first.getWindowStart(), evictEnd, addStart, settledEnd);
+            } else {
+                log.warn("Evicted days {} - {} changed since they were added, rebuilding trend windows",
+                        first.getWindowStart(), evictEnd);
+                rebuild = true;
+            }
+        }
+
+        if (rebuild) {
+            states.clear();
+            origin = windowStart;
+            rebuiltOn = today;
+            applyDays(states, windowStart, settledEnd, origin, 1);
+            log.info("Rebuilt trend windows from {} to {}: {} keys", windowStart, settledEnd, states.size());
+        }
+
+        List<TrendWindowState> settled = new ArrayList<>();
+        for (TrendWindowState state : states.values()) {
+            if (state.getPoints() > 0) {
+                state.setWindowStart(windowStart);
+                state.setWindowEnd(settledEnd);
+                state.setOriginDay(origin);
+                state.setRebuiltOn(rebuiltOn);
+                settled.add(state);
+            }
+        }
+        stateStore.replaceWindowStates(settled);
+
+        // Текущий день может еще дополняться сборщиком, поэтому в сохраненное состояние не входит
+        Map<String, TrendWindowState> current = new LinkedHashMap<>();
+        for (TrendWindowState state : settled) {
+            current.put(key(state.getSource(), state.getCampaignId()), state.copy());
+        }
+        applyDays(current, today, today, origin, 1);
+        return new ArrayList<>(current.values());
+    }
+
+    private boolean needsRebuild(List<TrendWindowState> stored, LocalDate windowStart, LocalDate settledEnd,
+                                 LocalDate today) {
+        if (stored.isEmpty()) {
+            return true;
+        }
+        TrendWindowState first = stored.get(0);
+        for (TrendWindowState state : stored) {
+            if (!state.getWindowStart().equals(first.getWindowStart())
+                    || !state.getWindowEnd().equals(first.getWindowEnd())
+                    || !state.getOriginDay().equals(first.getOriginDay())) {
+                return true;
+            }
+        }
+        return first.getWindowStart().isAfter(windowStart) // Окно стало длиннее
+                || first.getWindowEnd().isAfter(settledEnd) // Часы ушли назад
+                || first.getWindowEnd().isBefore(windowStart.minusDays(1)) // Пропуск длиннее окна
+                || !first.getRebuiltOn().plusDays(rebuildIntervalDays).isAfter(today);
+    }
+
+    /**
+     * Добавляет (sign = 1) или вытесняет (sign = -1) дни [from, to] во всех затронутых окнах
+     * @return false, если вытеснение дало невозможные суммы хотя бы в одном окне
+     */
+    private boolean applyDays(Map<String, TrendWindowState> states, LocalDate from, LocalDate to,
+                              LocalDate origin, int sign) {
+        if (from.isAfter(to)) {
+            return true;
+        }
+        DayApplier applier = new DayApplier(states, (int) origin.toEpochDay(), sign);
+        metricsSource.scanMetrics(from, to, applier);
+        applier.flush();
+        return applier.consistent;
+    }
+
+    /**
+     * Эффективность источников по окнам, как {@link MetricsAnalysisService#analyzeSourceEfficiency(int)}
+     * @param windows окна, полученные из {@link #update}
+     * @return рейтинги эффективности по источникам
+     */
+    public Map<String, Double> sourceEfficiency(List<TrendWindowState> windows) {
+        Map<String, Double> efficiencyRatings = new HashMap<>();
+        for (TrendWindowState window : windows) {
+            if (window.getSource() != null && window.getCampaignId() == null) {
+                efficiencyRatings.put(window.getSource(), calculator.calculateEfficiencyRating(
+                        window.getCtr(), window.getCpc(), window.getClicks(), window.getCost()));
+            }
+        }
+        return efficiencyRatings;
+    }
+
+    /**
+     * Тренды CTR и CPC по всем источникам, как {@link MetricsAnalysisService#analyzeMetricTrends(int)}
+     * @param windows окна, полученные из {@link #update}
+     * @return карта трендов по метрикам
+     */
+    public Map<String, Double> metricTrends(List<TrendWindowState> windows) {
+        Map<String, Double> trends = new HashMap<>();
+        trends.put("ctr_trend", 0.0);
+        trends.put("cpc_trend", 0.0);
+        for (TrendWindowState window : windows) {
+            if (window.getSource() == null) {
+                trends.put("ctr_trend", window.getCtrTrend());
+                trends.put("cpc_trend", window.getCpcTrend());
+            }
+        }
+        return trends;
+    }
+
+    private static String key(String source, String campaignId) {
+        return (source != null ? source : "") + '\u0000' + (campaignId != null ? campaignId : "");
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Применяет строки metrics к окнам. Строки идут по дате; итоги дня по всем источникам и по источнику
+     * копятся до смены дня, строка кампании уникальна в пределах дня (естественный ключ metrics)
+     * и применяется сразу. Строки без источника входят только в окно всех источников
+     */
+    private static final class DayApplier implements MetricRowHandler {
+        private final Map<String, TrendWindowState> states;
+        private final int origin;
+        private final int sign;
+        private final Map<String, long[]> sourceCounts = new HashMap<>();
+        private final Map<String, double[]> sourceCosts = new HashMap<>();
+        private int day = Integer.MIN_VALUE;
+        private long totalClicks;
+        private long totalImpressions;
+        private double totalCost;
+        private boolean hasRows;
+        private boolean consistent = true;
+
+        DayApplier(Map<String, TrendWindowState> states, int origin, int sign) {
+            this.states = states;
+            this.origin = origin;
+            this.sign = sign;
+        }
+
+        @Override
+        public void handle(int epochDay, String source, String campaignId, int clicks, int impressions, double cost) {
+            if (hasRows && epochDay != day) {
+                flush();
+            }
+            day = epochDay;
+            hasRows = true;
+            totalClicks += clicks;
+            totalImpressions += impressions;
+            totalCost += cost;
+            if (source == null) {
+                return;
+            }
+
+            long[] counts = sourceCounts.computeIfAbsent(source, s -> new long[2]);
+            counts[0] += clicks;
+            counts[1] += impressions;
+            sourceCosts.computeIfAbsent(source, s -> new double[1])[0] += cost;
+            if (campaignId != null) {
+                apply(source, campaignId, clicks, impressions, cost);
+            }
+        }
+
+        void flush() {
+            if (!hasRows) {
+                return;
+            }
+            apply(null, null, totalClicks, totalImpressions, totalCost);
+            sourceCounts.forEach((source, counts) ->
+                    apply(source, null, counts[0], counts[1], sourceCosts.get(source)[0]));
+            sourceCounts.clear();
+            sourceCosts.clear();
+            totalClicks = 0;
+            totalImpressions = 0;
+            totalCost = 0;
+            hasRows = false;
+        }
+
+        private void apply(String source, String campaignId, long clicks, long impressions, double cost) {
+            TrendWindowState state = states.computeIfAbsent(key(source, campaignId),
+                    k -> new TrendWindowState(source, campaignId));
+            int x = day - origin;
+            if (sign > 0) {
+                state.addDay(x, clicks, impressions, cost);
+            } else if (!state.removeDay(x, clicks, impressions, cost)) {
+                consistent = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.marketflow.strategy.service;
+
+/**
+ * Обработчик строки метрик при потоковом чтении: значения передаются примитивами, без объекта на строку.
+ */
+@FunctionalInterface
+public interface MetricRowHandler {
+
+    /**
+     * @param epochDay дата строки (количество дней от 1970-01-01)
+     * @param source источник (может быть null)
+     * @param campaignId идентификатор кампании (может быть null)
+     * @param clicks количество кликов
+     * @param impressions количество показов
+     * @param cost затраты
+     */
+    void handle(int epochDay, String source, String campaignId, int clicks, int impressions, double cost);
+}
@@ -1,25 +1,44 @@
 package com.marketflow.strategy.service;
 
-import com.marketflow.strategy.model.MetricData;
+import com.marketflow.strategy.model.AnalysisContext;
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.DailySeries;
+import com.marketflow.strategy.model.MetricsSnapshot;
 import com.marketflow.strategy.util.MetricsCalculator;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.LocalDate;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Сервис для анализа маркетинговых метрик
+ * Сервис для анализа маркетинговых метрик.
+ * С пулом {@link AnalysisPool} анализ снимка и кампаний выполняется параллельно по кускам строк
+ * с тем же результатом, что и последовательный
  */
 @Slf4j
 public class MetricsAnalysisService {
 
-    private final DatabaseService databaseService;
+    private final MetricsSource metricsSource;
     private final MetricsCalculator calculator;
+    private final AnalysisPool analysisPool;
 
-    public MetricsAnalysisService(DatabaseService databaseService) {
-        this.databaseService = databaseService;
+    public MetricsAnalysisService(MetricsSource metricsSource) {
+        this(metricsSource, null);
+    }
+
+    /**
+     * @param metricsSource откуда читаются метрики
+     * @param analysisPool пул параллельного анализа снимков (null - последовательный анализ)
+     */
+    public MetricsAnalysisService(MetricsSource metricsSource, AnalysisPool analysisPool) {
+        this.metricsSource = metricsSource;
         this.calculator = new MetricsCalculator();
+        this.analysisPool = analysisPool;
     }
 
     /**
@@ -31,7 +50,7 @@ public class MetricsAnalysisService {
         log.info("Analyzing source efficiency for the last {} days", daysBack);
 
         Map<String, Map<String, Double>> aggregatedMetrics =
-                databaseService.getAggregatedMetricsBySource(daysBack);
+                metricsSource.getAggregatedMetricsBySource(daysBack);
 
         Map<String, Double> efficiencyRatings = new HashMap<>();
 
@@ -58,48 +77,187 @@ public class MetricsAnalysisService {
     }
 
     /**
-     * Анализ трендов в метриках за указанный период
-     * @param daysBack количество дней для анализа
-     * @return карта трендов по метрикам
+     * Анализ эффективности источников по снимку метрик.
+     * Суммы по источнику считаются за один проход по кодам словаря, без агрегирующего запроса к БД
+     * @param snapshot снимок метрик за период
+     * @return карта с рейтингами эффективности источников
      */
-    public Map<String, Double> analyzeMetricTrends(int daysBack) {
-        log.info("Analyzing metric trends for the last {} days", daysBack);
+    public Map<String, Double> analyzeSourceEfficiency(MetricsSnapshot snapshot) {
+        log.info("Analyzing source efficiency for the last {} days", snapshot.getPeriodDays());
+
+        int sourceCount = snapshot.getSourceCount();
+        long[] clicks = new long[sourceCount];
+        long[] impressions = new long[sourceCount];
+        double[] costs = new double[sourceCount];
+        double[] dayCosts = new double[sourceCount];
+        int row = 0;
+        while (row < snapshot.size()) {
+            int day = snapshot.getEpochDay(row);
+            for (; row < snapshot.size() && snapshot.getEpochDay(row) == day; row++) {
+                int code = snapshot.getSourceCode(row);
+                clicks[code] += snapshot.getClicks(row);
+                impressions[code] += snapshot.getImpressions(row);
+                dayCosts[code] += snapshot.getCost(row);
+            }
+            // Затраты складываются по дням, как в параллельном анализе (SnapshotPartial)
+            for (int code = 0; code < sourceCount; code++) {
+                costs[code] += dayCosts[code];
+                dayCosts[code] = 0;
+            }
+        }
+        return efficiencyRatings(snapshot, clicks, impressions, costs);
+    }
 
-        List<MetricData> metrics = databaseService.getMetricsForPeriod(daysBack);
+    private Map<String, Double> efficiencyRatings(MetricsSnapshot snapshot, long[] clicks, long[] impressions,
+                                                  double[] costs) {
+        int sourceCount = snapshot.getSourceCount();
+        Map<String, Double> efficiencyRatings = new HashMap<>();
+        for (int code = 0; code < sourceCount; code++) {
+            String source = snapshot.getSourceByCode(code);
 
-        // Группировка метрик по датам для расчета ежедневных значений
-        Map<LocalDate, List<MetricData>> metricsByDate = metrics.stream()
-                .collect(Collectors.groupingBy(MetricData::getDate));
+            // Те же формулы, что и в агрегирующем запросе: CTR в процентах, при нуле в знаменателе - 0
+            double ctr = impressions[code] > 0 ? clicks[code] * 100.0 / impressions[code] : 0.0;
+            double cpc = clicks[code] > 0 ? costs[code] / clicks[code] : 0.0;
 
-        // Сортировка дат для анализа тренда
-        List<LocalDate> sortedDates = new ArrayList<>(metricsByDate.keySet());
-        Collections.sort(sortedDates);
+            double efficiency = calculator.calculateEfficiencyRating(ctr, cpc, clicks[code], costs[code]);
 
-        // Расчет ежедневных агрегированных значений
-        List<Double> dailyCtr = new ArrayList<>();
-        List<Double> dailyCpc = new ArrayList<>();
+            efficiencyRatings.put(source, efficiency);
+            log.debug("Source {} efficiency: {}", source, efficiency);
+        }
 
-        for (LocalDate date : sortedDates) {
-            List<MetricData> dailyMetrics = metricsByDate.get(date);
+        log.info("Completed efficiency analysis for {} sources", efficiencyRatings.size());
+        return efficiencyRatings;
+    }
+
+    /**
+     * Полный анализ снимка метрик: эффективность источников, тренды и аномалии.
+     * Результат не зависит от источника, поэтому считается один раз за запуск
+     * @param snapshot снимок метрик за период
+     * @return контекст анализа для генерации стратегий
+     */
+    public AnalysisContext analyze(MetricsSnapshot snapshot) {
+        if (analysisPool != null) {
+            return analyzeInParallel(snapshot);
+        }
+        return AnalysisContext.builder()
+                .periodDays(snapshot.getPeriodDays())
+                .sourceEfficiency(Collections.unmodifiableMap(analyzeSourceEfficiency(snapshot)))
+                .trends(Collections.unmodifiableMap(analyzeMetricTrends(snapshot)))
+                .anomalies(Collections.unmodifiableList(detectAnomalies(snapshot)))
+                .build();
+    }
+
+    /**
+     * Параллельный анализ: куски снимка дают дневные суммы и строки источников,
+     * затем выбросы ищутся по источникам параллельно
+     */
+    private AnalysisContext analyzeInParallel(MetricsSnapshot snapshot) {
+        log.info("Analyzing {} rows for the last {} days in parallel", snapshot.size(), snapshot.getPeriodDays());
 
-            // Расчет дневных CTR и CPC
-            double totalClicks = dailyMetrics.stream()
-                    .mapToDouble(m -> m.getClicks() != null ? m.getClicks() : 0)
-                    .sum();
+        int[] groupOfCode = new int[snapshot.getSourceCount()];
+        Map<String, Integer> groupByName = sourceGroups(snapshot, groupOfCode);
+        SnapshotPartial partial = analysisPool.reduce(snapshot,
+                (from, to) -> SnapshotPartial.compute(snapshot, from, to, groupOfCode, groupByName.size()),
+                SnapshotPartial::merge);
 
-            double totalImpressions = dailyMetrics.stream()
-                    .mapToDouble(m -> m.getImpressions() != null ? m.getImpressions() : 0)
-                    .sum();
+        Map<String, Double> efficiency = efficiencyRatings(snapshot,
+                partial.sourceClicks(), partial.sourceImpressions(), partial.sourceCosts());
+        Map<String, Double> trends = analyzeMetricTrends(partial.dailySeries());
 
-            double totalCost = dailyMetrics.stream()
-                    .mapToDouble(m -> m.getCost() != null ? m.getCost() : 0)
-                    .sum();
+        List<Map.Entry<String, int[]>> sources =
+                new ArrayList<>(rowsBySource(groupByName, partial.rowsByGroup()).entrySet());
+        List<String> anomalies = new ArrayList<>();
+        analysisPool.map(sources.size(),
+                i -> sourceAnomalies(snapshot, sources.get(i).getKey(), sources.get(i).getValue()))
+                .forEach(anomalies::addAll);
+        log.info("Detected {} anomalies", anomalies.size());
 
-            double ctr = totalImpressions > 0 ? (totalClicks / totalImpressions) * 100 : 0;
-            double cpc = totalClicks > 0 ? (totalCost / totalClicks) : 0;
+        return AnalysisContext.builder()
+                .periodDays(snapshot.getPeriodDays())
+                .sourceEfficiency(Collections.unmodifiableMap(efficiency))
+                .trends(Collections.unmodifiableMap(trends))
+                .anomalies(Collections.unmodifiableList(anomalies))
+                .build();
+    }
 
-            dailyCtr.add(ctr);
-            dailyCpc.add(cpc);
+    /**
+     * Анализ снимка, когда эффективность и тренды уже получены из инкрементальных окон
+     * ({@link IncrementalTrendService}): по снимку ищутся только аномалии
+     * @param snapshot снимок метрик за период
+     * @param sourceEfficiency рейтинги эффективности по источникам
+     * @param trends тренды CTR и CPC
+     * @return контекст анализа для генерации стратегий
+     */
+    public AnalysisContext analyze(MetricsSnapshot snapshot, Map<String, Double> sourceEfficiency,
+                                   Map<String, Double> trends) {
+        return AnalysisContext.builder()
+                .periodDays(snapshot.getPeriodDays())
+                .sourceEfficiency(Collections.unmodifiableMap(sourceEfficiency))
+                .trends(Collections.unmodifiableMap(trends))
+                .anomalies(Collections.unmodifiableList(detectAnomalies(snapshot)))
+                .build();
+    }
+
+    /**
+     * Анализ без снимка в памяти: эффективность и дневные итоги агрегируются в БД,
+     * аномалии ищутся потоковым детектором за два прохода по курсору
+     * @param daysBack количество дней для анализа
+     * @return контекст анализа для генерации стратегий
+     */
+    public AnalysisContext analyze(int daysBack) {
+        return analyze(daysBack, analyzeSourceEfficiency(daysBack), analyzeMetricTrends(daysBack));
+    }
+
+    /**
+     * Анализ без снимка, когда эффективность и тренды уже получены из инкрементальных окон:
+     * аномалии ищутся потоковым детектором
+     * @param daysBack количество дней для анализа
+     * @param sourceEfficiency рейтинги эффективности по источникам
+     * @param trends тренды CTR и CPC
+     * @return контекст анализа для генерации стратегий
+     */
+    public AnalysisContext analyze(int daysBack, Map<String, Double> sourceEfficiency, Map<String, Double> trends) {
+        return AnalysisContext.builder()
+                .periodDays(daysBack)
+                .sourceEfficiency(Collections.unmodifiableMap(sourceEfficiency))
+                .trends(Collections.unmodifiableMap(trends))
+                .anomalies(Collections.unmodifiableList(detectAnomalies(daysBack)))
+                .build();
+    }
+
+    /**
+     * Анализ трендов в метриках за указанный период.
+     * Дневные итоги агрегируются в БД, сырые строки метрик не читаются
+     * @param daysBack количество дней для анализа
+     * @return карта трендов по метрикам
+     */
+    public Map<String, Double> analyzeMetricTrends(int daysBack) {
+        log.info("Analyzing metric trends for the last {} days", daysBack);
+        return analyzeMetricTrends(metricsSource.loadDailyTotals(daysBack));
+    }
+
+    /**
+     * Анализ трендов по снимку метрик: снимок уже в памяти, дневные итоги считаются по нему за один проход
+     * @param snapshot снимок метрик за период
+     * @return карта трендов по метрикам
+     */
+    public Map<String, Double> analyzeMetricTrends(MetricsSnapshot snapshot) {
+        log.info("Analyzing metric trends for the last {} days", snapshot.getPeriodDays());
+        return analyzeMetricTrends(DailySeries.fromSnapshot(snapshot));
+    }
+
+    /**
+     * Анализ трендов по дневным итогам
+     * @param daily дневной ряд по возрастанию даты
+     * @return карта трендов по метрикам
+     */
+    public Map<String, Double> analyzeMetricTrends(DailySeries daily) {
+        // Расчет дневных CTR и CPC
+        double[] dailyCtr = new double[daily.size()];
+        double[] dailyCpc = new double[daily.size()];
+        for (int day = 0; day < daily.size(); day++) {
+            dailyCtr[day] = daily.getCtr(day);
+            dailyCpc[day] = daily.getCpc(day);
         }
 
         // Анализ трендов
@@ -113,73 +271,325 @@ public class MetricsAnalysisService {
         return trends;
     }
 
+    /**
+     * Анализ трендов отдельно по каждому источнику на дневных итогах из БД
+     * @param daysBack количество дней для анализа
+     * @return тренды CTR и CPC по источникам
+     */
+    public Map<String, Map<String, Double>> analyzeSourceTrends(int daysBack) {
+        log.info("Analyzing per-source metric trends for the last {} days", daysBack);
+
+        Map<String, Map<String, Double>> trendsBySource = new LinkedHashMap<>();
+        metricsSource.loadDailyTotalsBySource(daysBack)
+                .forEach((source, daily) -> trendsBySource.put(source, analyzeMetricTrends(daily)));
+        return trendsBySource;
+    }
+
     /**
      * Определение аномалий в метриках
      * @param daysBack количество дней для анализа
      * @return список обнаруженных аномалий
      */
     public List<String> detectAnomalies(int daysBack) {
-        log.info("Detecting anomalies for the last {} days", daysBack);
+        log.info("Detecting anomalies for the last {} days (streaming)", daysBack);
+
+        // Два прохода по курсору: квартили P² по источникам, затем проверка строк.
+        // Квартили приближенные, зато память не зависит от количества строк
+        StreamingAnomalyDetector detector = new StreamingAnomalyDetector();
+        MetricRowHandler observePass = (day, source, campaignId, clicks, impressions, cost) ->
+                detector.observe(source, clicks, impressions, cost);
+        MetricRowHandler checkPass = (day, source, campaignId, clicks, impressions, cost) ->
+                detector.check(day, source, clicks, impressions, cost);
+        metricsSource.scanMetrics(daysBack, Arrays.asList(observePass, checkPass));
+
+        List<String> anomalies = detector.getAnomalies();
+        log.info("Detected {} anomalies", anomalies.size());
+        return anomalies;
+    }
+
+    /**
+     * Определение аномалий по снимку метрик
+     * @param snapshot снимок метрик за период
+     * @return список обнаруженных аномалий
+     */
+    public List<String> detectAnomalies(MetricsSnapshot snapshot) {
+        log.info("Detecting anomalies for the last {} days", snapshot.getPeriodDays());
 
-        List<MetricData> metrics = databaseService.getMetricsForPeriod(daysBack);
         List<String> anomalies = new ArrayList<>();
 
-        // Группировка метрик по источникам
-        Map<String, List<MetricData>> metricsBySource = metrics.stream()
-                .collect(Collectors.groupingBy(m ->
-                        m.getSource() != null ? m.getSource() : "unknown"));
+        // Группировка строк по источникам: источник без названия попадает в "unknown"
+        Map<String, int[]> rowsBySource = groupRowsBySource(snapshot);
 
         // Проверка аномалий для каждого источника
-        for (Map.Entry<String, List<MetricData>> entry : metricsBySource.entrySet()) {
-            String source = entry.getKey();
-            List<MetricData> sourceMetrics = entry.getValue();
-
-            // Анализ на выбросы в CTR
-            List<Double> ctrValues = sourceMetrics.stream()
-                    .map(MetricData::getCtr)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-
-            if (!ctrValues.isEmpty()) {
-                List<Integer> outliers = calculator.detectOutliers(ctrValues);
-                for (Integer index : outliers) {
-                    if (index < sourceMetrics.size()) {
-                        MetricData anomaly = sourceMetrics.get(index);
-                        anomalies.add(String.format(
-                                "Аномально %s CTR (%.2f%%) для источника %s на дату %s",
-                                anomaly.getCtr() > calculator.calculateMean(ctrValues) ? "высокий" : "низкий",
-                                anomaly.getCtr(),
-                                source,
-                                anomaly.getDate()
-                        ));
-                    }
-                }
+        for (Map.Entry<String, int[]> entry : rowsBySource.entrySet()) {
+            anomalies.addAll(sourceAnomalies(snapshot, entry.getKey(), entry.getValue()));
+        }
+
+        log.info("Detected {} anomalies", anomalies.size());
+        return anomalies;
+    }
+
+    /**
+     * Выбросы CTR и CPC по строкам одного источника
+     */
+    private List<String> sourceAnomalies(MetricsSnapshot snapshot, String source, int[] rows) {
+        List<String> anomalies = new ArrayList<>();
+        double[] ctrValues = new double[rows.length];
+        double[] cpcValues = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            ctrValues[i] = snapshot.getCtr(rows[i]);
+            cpcValues[i] = snapshot.getCpc(rows[i]);
+        }
+
+        // Анализ на выбросы в CTR
+        if (ctrValues.length > 0) {
+            double meanCtr = calculator.calculateMean(ctrValues);
+            for (int index : calculator.detectOutliers(ctrValues)) {
+                int row = rows[index];
+                anomalies.add(String.format(
+                        "Аномально %s CTR (%.2f%%) для источника %s на дату %s",
+                        snapshot.getCtr(row) > meanCtr ? "высокий" : "низкий",
+                        snapshot.getCtr(row),
+                        source,
+                        snapshot.getDate(row)
+                ));
             }
+        }
 
-            // Анализ на выбросы в CPC
-            List<Double> cpcValues = sourceMetrics.stream()
-                    .map(MetricData::getCpc)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-
-            if (!cpcValues.isEmpty()) {
-                List<Integer> outliers = calculator.detectOutliers(cpcValues);
-                for (Integer index : outliers) {
-                    if (index < sourceMetrics.size()) {
-                        MetricData anomaly = sourceMetrics.get(index);
-                        anomalies.add(String.format(
-                                "Аномально %s CPC (%.2f) для источника %s на дату %s",
-                                anomaly.getCpc() > calculator.calculateMean(cpcValues) ? "высокий" : "низкий",
-                                anomaly.getCpc(),
-                                source,
-                                anomaly.getDate()
-                        ));
-                    }
+        // Анализ на выбросы в CPC
+        if (cpcValues.length > 0) {
+            double meanCpc = calculator.calculateMean(cpcValues);
+            for (int index : calculator.detectOutliers(cpcValues)) {
+                int row = rows[index];
+                anomalies.add(String.format(
+                        "Аномально %s CPC (%.2f) для источника %s на дату %s",
+                        snapshot.getCpc(row) > meanCpc ? "высокий" : "низкий",
+                        snapshot.getCpc(row),
+                        source,
+                        snapshot.getDate(row)
+                ));
+            }
+        }
+        return anomalies;
+    }
+
+    /**
+     * Анализ по кампаниям: строки снимка группируются по паре (источник, кампания) за один проход,
+     * затем каждая группа анализируется только по своим строкам, поэтому время растет линейно
+     * с количеством строк, а не как кампании x строки.
+     * Строки без источника или кампании (уровень платформы) не участвуют.
+     * @param snapshot снимок метрик за период
+     * @param minDays минимальное количество дней с данными для анализа кампании
+     * @return результаты по кампаниям в порядке их первого появления в снимке
+     */
+    public List<CampaignAnalysis> analyzeCampaigns(MetricsSnapshot snapshot, int minDays) {
+        log.info("Analyzing campaigns for the last {} days", snapshot.getPeriodDays());
+        if (analysisPool != null) {
+            return analyzeCampaignsInParallel(snapshot, minDays);
+        }
+
+        // Номер группы для каждой строки: ключ - коды словарей источника и кампании
+        Map<Long, Integer> groupByKey = new HashMap<>();
+        int[] groupOfRow = new int[snapshot.size()];
+        int[] counts = new int[16];
+        for (int row = 0; row < snapshot.size(); row++) {
+            if (snapshot.getSource(row) == null || snapshot.getCampaignId(row) == null) {
+                groupOfRow[row] = -1;
+                continue;
+            }
+            long key = ((long) snapshot.getSourceCode(row) << 32) | snapshot.getCampaignCode(row);
+            Integer group = groupByKey.get(key);
+            if (group == null) {
+                group = groupByKey.size();
+                groupByKey.put(key, group);
+                if (group == counts.length) {
+                    counts = Arrays.copyOf(counts, group * 2);
                 }
             }
+            groupOfRow[row] = group;
+            counts[group]++;
         }
 
-        log.info("Detected {} anomalies", anomalies.size());
-        return anomalies;
+        // Строки групп подряд в одном массиве (CSR), внутри группы - в порядке дат
+        int groupCount = groupByKey.size();
+        int[] offsets = new int[groupCount + 1];
+        for (int group = 0; group < groupCount; group++) {
+            offsets[group + 1] = offsets[group] + counts[group];
+        }
+        int[] rows = new int[offsets[groupCount]];
+        int[] filled = Arrays.copyOf(offsets, groupCount);
+        for (int row = 0; row < snapshot.size(); row++) {
+            if (groupOfRow[row] >= 0) {
+                rows[filled[groupOfRow[row]]++] = row;
+            }
+        }
+
+        List<CampaignAnalysis> result = new ArrayList<>();
+        for (int group = 0; group < groupCount; group++) {
+            CampaignAnalysis analysis = analyzeCampaign(snapshot, rows, offsets[group], offsets[group + 1], minDays);
+            if (analysis != null) {
+                result.add(analysis);
+            }
+        }
+
+        log.info("Completed campaign analysis: {} of {} campaigns have at least {} days of data",
+                result.size(), groupCount, minDays);
+        return result;
+    }
+
+    /**
+     * Группы кампаний собираются по кускам снимка, затем кампании анализируются параллельно
+     */
+    private List<CampaignAnalysis> analyzeCampaignsInParallel(MetricsSnapshot snapshot, int minDays) {
+        CampaignPartial groups = analysisPool.reduce(snapshot,
+                (from, to) -> CampaignPartial.compute(snapshot, from, to), CampaignPartial::merge);
+
+        List<CampaignAnalysis> result = new ArrayList<>();
+        analysisPool.map(groups.groupCount(), group -> {
+            int[] rows = groups.rows(group);
+            return analyzeCampaign(snapshot, rows, 0, rows.length, minDays);
+        }).forEach(analysis -> {
+            if (analysis != null) {
+                result.add(analysis);
+            }
+        });
+
+        log.info("Completed campaign analysis: {} of {} campaigns have at least {} days of data",
+                result.size(), groups.groupCount(), minDays);
+        return result;
+    }
+
+    private CampaignAnalysis analyzeCampaign(MetricsSnapshot snapshot, int[] rows, int from, int to, int minDays) {
+        // Дневные значения кампании: строки одного дня (если их несколько) суммируются
+        int maxDays = to - from;
+        double[] dailyCtr = new double[maxDays];
+        double[] dailyCpc = new double[maxDays];
+        int[] dayRows = new int[maxDays];
+        int days = 0;
+        long totalClicks = 0;
+        long totalImpressions = 0;
+        double totalCost = 0;
+
+        int i = from;
+        while (i < to) {
+            int day = snapshot.getEpochDay(rows[i]);
+            int dayRow = rows[i];
+            long clicks = 0;
+            long impressions = 0;
+            double cost = 0;
+            for (; i < to && snapshot.getEpochDay(rows[i]) == day; i++) {
+                clicks += snapshot.getClicks(rows[i]);
+                impressions += snapshot.getImpressions(rows[i]);
+                cost += snapshot.getCost(rows[i]);
+            }
+            dailyCtr[days] = impressions > 0 ? clicks * 100.0 / impressions : 0.0;
+            dailyCpc[days] = clicks > 0 ? cost / clicks : 0.0;
+            dayRows[days] = dayRow;
+            days++;
+            totalClicks += clicks;
+            totalImpressions += impressions;
+            totalCost += cost;
+        }
+
+        if (days < minDays) {
+            return null;
+        }
+        if (days < maxDays) {
+            dailyCtr = Arrays.copyOf(dailyCtr, days);
+            dailyCpc = Arrays.copyOf(dailyCpc, days);
+        }
+
+        int firstRow = rows[from];
+        String source = snapshot.getSource(firstRow);
+        String campaignId = snapshot.getCampaignId(firstRow);
+
+        double ctr = totalImpressions > 0 ? totalClicks * 100.0 / totalImpressions : 0.0;
+        double cpc = totalClicks > 0 ? totalCost / totalClicks : 0.0;
+
+        List<String> anomalies = new ArrayList<>();
+        addCampaignAnomalies(anomalies, "CTR (%.2f%%)", dailyCtr, dayRows, snapshot, source, campaignId);
+        addCampaignAnomalies(anomalies, "CPC (%.2f)", dailyCpc, dayRows, snapshot, source, campaignId);
+
+        return CampaignAnalysis.builder()
+                .source(source)
+                .campaignId(campaignId)
+                .days(days)
+                .clicks(totalClicks)
+                .impressions(totalImpressions)
+                .cost(totalCost)
+                .efficiency(calculator.calculateEfficiencyRating(ctr, cpc, totalClicks, totalCost))
+                .ctrTrend(calculator.calculateTrend(dailyCtr))
+                .cpcTrend(calculator.calculateTrend(dailyCpc))
+                .anomalies(anomalies)
+                .build();
+    }
+
+    private void addCampaignAnomalies(List<String> anomalies, String valueFormat, double[] values,
+                                      int[] dayRows, MetricsSnapshot snapshot,
+                                      String source, String campaignId) {
+        int[] outliers = calculator.detectOutliers(values);
+        if (outliers.length == 0) {
+            return;
+        }
+        double mean = calculator.calculateMean(values);
+        for (int index : outliers) {
+            double value = values[index];
+            anomalies.add(String.format(
+                    "Аномально %s " + valueFormat + " для кампании %s источника %s на дату %s",
+                    value > mean ? "высокий" : "низкий",
+                    value,
+                    campaignId,
+                    source,
+                    snapshot.getDate(dayRows[index])
+            ));
+        }
+    }
+
+    /**
+     * Номера строк снимка по источникам с сохранением порядка строк.
+     * Коды словаря сводятся к названиям, поэтому null и "unknown" попадают в одну группу
+     */
+    private static Map<String, int[]> groupRowsBySource(MetricsSnapshot snapshot) {
+        int[] groupOfCode = new int[snapshot.getSourceCount()];
+        Map<String, Integer> groupByName = sourceGroups(snapshot, groupOfCode);
+
+        int[] counts = new int[groupByName.size()];
+        for (int row = 0; row < snapshot.size(); row++) {
+            counts[groupOfCode[snapshot.getSourceCode(row)]]++;
+        }
+
+        int[][] rows = new int[counts.length][];
+        for (int group = 0; group < counts.length; group++) {
+            rows[group] = new int[counts[group]];
+        }
+        int[] filled = new int[counts.length];
+        for (int row = 0; row < snapshot.size(); row++) {
+            int group = groupOfCode[snapshot.getSourceCode(row)];
+            rows[group][filled[group]++] = row;
+        }
+        return rowsBySource(groupByName, rows);
+    }
+
+    /**
+     * Группы источников по названию; groupOfCode заполняется группой каждого кода словаря
+     */
+    private static Map<String, Integer> sourceGroups(MetricsSnapshot snapshot, int[] groupOfCode) {
+        Map<String, Integer> groupByName = new HashMap<>();
+        for (int code = 0; code < groupOfCode.length; code++) {
+            String source = snapshot.getSourceByCode(code);
+            String name = source != null ? source : "unknown";
+            Integer group = groupByName.putIfAbsent(name, groupByName.size());
+            groupOfCode[code] = group != null ? group : groupByName.size() - 1;
+        }
+        return groupByName;
+    }
+
+    /**
+     * Строки групп по названиям источников; порядок обхода карты одинаков в обоих режимах анализа
+     */
+    private static Map<String, int[]> rowsBySource(Map<String, Integer> groupByName, int[][] rows) {
+        Map<String, int[]> result = new HashMap<>();
+        groupByName.forEach((name, group) -> result.put(name, rows[group]));
+        return result;
     }
-}
\ No newline at end of file
+}
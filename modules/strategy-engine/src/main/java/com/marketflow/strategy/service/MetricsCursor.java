@@ -0,0 +1,81 @@
+package com.marketflow.strategy.service;
+
+import java.time.LocalDate;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Курсор по строкам метрик в порядке дат (forward-only). Сам курсор - изменяемая текущая строка:
+ * после {@link #next()} геттеры возвращают значения новой строки, объект на строку не создается.
+ * Держит соединение с БД до {@link #close()}, поэтому открывается в try-with-resources.
+ */
+public interface MetricsCursor extends AutoCloseable {
+
+    /**
+     * Переход к следующей строке
+     * @return false, если строк больше нет
+     */
+    boolean next();
+
+    /**
+     * Дата строки (количество дней от 1970-01-01)
+     */
+    int getEpochDay();
+
+    default LocalDate getDate() {
+        return LocalDate.ofEpochDay(getEpochDay());
+    }
+
+    String getSource();
+
+    String getCampaignId();
+
+    int getClicks();
+
+    int getImpressions();
+
+    double getCost();
+
+    /**
+     * CTR в процентах, как {@link com.marketflow.strategy.model.MetricData#calculateCtr()}
+     */
+    default double getCtr() {
+        return getImpressions() > 0 ? (double) getClicks() / getImpressions() * 100 : 0.0;
+    }
+
+    /**
+     * CPC, как {@link com.marketflow.strategy.model.MetricData#calculateCpc()}
+     */
+    default double getCpc() {
+        return getClicks() > 0 ? getCost() / getClicks() : 0.0;
+    }
+
+    /**
+     * Освобождает результат запроса и соединение; повторный вызов ничего не делает
+     */
+    @Override
+    void close();
+
+    /**
+     * Последовательный стрим по оставшимся строкам. Элемент стрима - этот же курсор,
+     * значения действительны до следующего элемента (нужное копируется в map/collect).
+     * Закрытие стрима закрывает курсор
+     */
+    default Stream<MetricsCursor> stream() {
+        Spliterator<MetricsCursor> rows = new Spliterators.AbstractSpliterator<MetricsCursor>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super MetricsCursor> action) {
+                if (!next()) {
+                    return false;
+                }
+                action.accept(MetricsCursor.this);
+                return true;
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(this::close);
+    }
+}
@@ -0,0 +1,59 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.DailySeries;
+import com.marketflow.strategy.model.MetricData;
+import com.marketflow.strategy.model.MetricsSnapshot;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Источник метрик для анализа. Период всегда отсчитывается назад от текущей даты,
+ * границы включаются: [сегодня - daysBack, сегодня].
+ * Реализации: {@link DatabaseService} (Postgres), {@link H2DatabaseService}, {@link InMemoryMetricsStore}
+ */
+public interface MetricsSource {
+
+    /**
+     * Метрики за период в виде списка MetricData с рассчитанными CTR и CPC
+     */
+    List<MetricData> getMetricsForPeriod(int daysBack);
+
+    /**
+     * Колоночный снимок метрик за период, упорядоченный по дате
+     */
+    MetricsSnapshot loadMetricsSnapshot(int daysBack);
+
+    /**
+     * Потоковое чтение метрик за период: каждый обработчик получает все строки периода
+     * по возрастанию даты, все проходы видят одни и те же строки
+     */
+    void scanMetrics(int daysBack, List<MetricRowHandler> passes);
+
+    /**
+     * Потоковое чтение строк метрик с датой в [startDate, endDate] по возрастанию даты, одним проходом
+     */
+    void scanMetrics(LocalDate startDate, LocalDate endDate, MetricRowHandler handler);
+
+    /**
+     * Курсор по строкам метрик с датой в [startDate, endDate] по возрастанию даты.
+     * Курсор - изменяемая текущая строка; закрывается вызывающим (try-with-resources или закрытие стрима)
+     */
+    MetricsCursor openMetricsCursor(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Дневные итоги по всем источникам
+     */
+    DailySeries loadDailyTotals(int daysBack);
+
+    /**
+     * Дневные итоги по каждому источнику (строки без источника не учитываются), по алфавиту источников
+     */
+    Map<String, DailySeries> loadDailyTotalsBySource(int daysBack);
+
+    /**
+     * Суммы clicks, impressions, cost и средние ctr, cpc по источникам
+     */
+    Map<String, Map<String, Double>> getAggregatedMetricsBySource(int daysBack);
+}
@@ -0,0 +1,105 @@
+package com.marketflow.strategy.service;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики пула соединений: ожидание соединения из пула, время удержания соединения,
+ * создание физических соединений и таймауты ожидания. Заполняется HikariCP через {@link MetricsTrackerFactory}
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAccumulator maxUsageMillis = new LongAccumulator(Math::max, 0);
+    private final LongAdder created = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquired.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+                maxUsageMillis.accumulate(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    /**
+     * Сколько раз соединение выдавалось из пула
+     */
+    public long getAcquiredCount() {
+        return acquired.sum();
+    }
+
+    /**
+     * Сколько физических соединений открыто за время работы пула
+     */
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Суммарное ожидание соединения из пула, мс
+     */
+    public double getTotalWaitMillis() {
+        return acquireNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxWaitMillis() {
+        return maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Суммарное время удержания соединений, мс
+     */
+    public long getTotalUsageMillis() {
+        return usageMillis.sum();
+    }
+
+    public long getMaxUsageMillis() {
+        return maxUsageMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        PoolStats stats = poolStats;
+        return String.format("acquired=%d, created=%d, timeouts=%d, wait total=%.1f ms, wait max=%.1f ms, "
+                        + "usage total=%d ms, usage max=%d ms, active=%d, idle=%d, pending=%d",
+                getAcquiredCount(), getCreatedCount(), getTimeoutCount(), getTotalWaitMillis(), getMaxWaitMillis(),
+                getTotalUsageMillis(), getMaxUsageMillis(),
+                stats != null ? stats.getActiveConnections() : 0,
+                stats != null ? stats.getIdleConnections() : 0,
+                stats != null ? stats.getPendingThreads() : 0);
+    }
+}
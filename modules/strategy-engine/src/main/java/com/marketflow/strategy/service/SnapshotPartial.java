@@ -0,0 +1,177 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.DailySeries;
+import com.marketflow.strategy.model.MetricsSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Частичные агрегаты куска снимка из целых дней для параллельного анализа ({@link AnalysisPool}).
+ * Дневные суммы считаются внутри куска в порядке строк, объединение только склеивает дни и списки строк,
+ * а итоги по источникам складываются из дневных сумм в порядке дат - поэтому результат
+ * совпадает с последовательным анализом бит в бит при любом разбиении.
+ */
+final class SnapshotPartial {
+    private final int sourceCount;
+    private int days;
+    private int[] epochDays;
+    private long[] dayClicks;
+    private long[] dayImpressions;
+    private double[] dayCosts;
+    // Затраты источника за день: days x sourceCount
+    private double[] sourceDayCosts;
+    private final long[] sourceClicks;
+    private final long[] sourceImpressions;
+    // Строки кусков по группам источников, склеиваются один раз в rowsByGroup
+    private final List<int[][]> groupRows = new ArrayList<>();
+
+    private SnapshotPartial(int sourceCount, int capacity) {
+        this.sourceCount = sourceCount;
+        this.epochDays = new int[capacity];
+        this.dayClicks = new long[capacity];
+        this.dayImpressions = new long[capacity];
+        this.dayCosts = new double[capacity];
+        this.sourceDayCosts = new double[capacity * sourceCount];
+        this.sourceClicks = new long[sourceCount];
+        this.sourceImpressions = new long[sourceCount];
+    }
+
+    /**
+     * Агрегаты строк [from, to) снимка
+     * @param groupOfCode группа источника для каждого кода словаря
+     * @param groupCount количество групп
+     */
+    static SnapshotPartial compute(MetricsSnapshot snapshot, int from, int to, int[] groupOfCode, int groupCount) {
+        SnapshotPartial partial = new SnapshotPartial(snapshot.getSourceCount(), 16);
+        int[] counts = new int[groupCount];
+
+        int row = from;
+        while (row < to) {
+            int day = snapshot.getEpochDay(row);
+            partial.addDay(day);
+            int offset = (partial.days - 1) * partial.sourceCount;
+            long clicks = 0;
+            long impressions = 0;
+            double cost = 0;
+            for (; row < to && snapshot.getEpochDay(row) == day; row++) {
+                int code = snapshot.getSourceCode(row);
+                clicks += snapshot.getClicks(row);
+                impressions += snapshot.getImpressions(row);
+                cost += snapshot.getCost(row);
+                partial.sourceClicks[code] += snapshot.getClicks(row);
+                partial.sourceImpressions[code] += snapshot.getImpressions(row);
+                partial.sourceDayCosts[offset + code] += snapshot.getCost(row);
+                counts[groupOfCode[code]]++;
+            }
+            partial.dayClicks[partial.days - 1] = clicks;
+            partial.dayImpressions[partial.days - 1] = impressions;
+            partial.dayCosts[partial.days - 1] = cost;
+        }
+
+        int[][] rows = new int[groupCount][];
+        for (int group = 0; group < groupCount; group++) {
+            rows[group] = new int[counts[group]];
+        }
+        int[] filled = new int[groupCount];
+        for (row = from; row < to; row++) {
+            int group = groupOfCode[snapshot.getSourceCode(row)];
+            rows[group][filled[group]++] = row;
+        }
+        partial.groupRows.add(rows);
+        return partial;
+    }
+
+    /**
+     * Объединение с агрегатами следующего куска (более поздние строки)
+     */
+    static SnapshotPartial merge(SnapshotPartial left, SnapshotPartial right) {
+        SnapshotPartial merged = new SnapshotPartial(left.sourceCount, left.days + right.days);
+        merged.days = left.days + right.days;
+        concat(left.epochDays, right.epochDays, merged.epochDays, left.days, right.days);
+        concat(left.dayClicks, right.dayClicks, merged.dayClicks, left.days, right.days);
+        concat(left.dayImpressions, right.dayImpressions, merged.dayImpressions, left.days, right.days);
+        concat(left.dayCosts, right.dayCosts, merged.dayCosts, left.days, right.days);
+        concat(left.sourceDayCosts, right.sourceDayCosts, merged.sourceDayCosts,
+                left.days * left.sourceCount, right.days * right.sourceCount);
+        for (int code = 0; code < merged.sourceCount; code++) {
+            merged.sourceClicks[code] = left.sourceClicks[code] + right.sourceClicks[code];
+            merged.sourceImpressions[code] = left.sourceImpressions[code] + right.sourceImpressions[code];
+        }
+        merged.groupRows.addAll(left.groupRows);
+        merged.groupRows.addAll(right.groupRows);
+        return merged;
+    }
+
+    /**
+     * Дневные итоги - те же, что {@link DailySeries#fromSnapshot}
+     */
+    DailySeries dailySeries() {
+        DailySeries.Builder builder = DailySeries.builder();
+        for (int day = 0; day < days; day++) {
+            builder.add(epochDays[day], dayClicks[day], dayImpressions[day], dayCosts[day]);
+        }
+        return builder.build();
+    }
+
+    long[] sourceClicks() {
+        return sourceClicks;
+    }
+
+    long[] sourceImpressions() {
+        return sourceImpressions;
+    }
+
+    /**
+     * Затраты по кодам источников: дневные суммы складываются в порядке дат
+     */
+    double[] sourceCosts() {
+        double[] costs = new double[sourceCount];
+        for (int day = 0; day < days; day++) {
+            int offset = day * sourceCount;
+            for (int code = 0; code < sourceCount; code++) {
+                costs[code] += sourceDayCosts[offset + code];
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Строки снимка по группам источников в порядке строк
+     */
+    int[][] rowsByGroup() {
+        int groupCount = groupRows.isEmpty() ? 0 : groupRows.get(0).length;
+        int[][] result = new int[groupCount][];
+        for (int group = 0; group < groupCount; group++) {
+            int length = 0;
+            for (int[][] rows : groupRows) {
+                length += rows[group].length;
+            }
+            result[group] = new int[length];
+            int filled = 0;
+            for (int[][] rows : groupRows) {
+                System.arraycopy(rows[group], 0, result[group], filled, rows[group].length);
+                filled += rows[group].length;
+            }
+        }
+        return result;
+    }
+
+    private void addDay(int epochDay) {
+        if (days == epochDays.length) {
+            int capacity = days * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            dayClicks = Arrays.copyOf(dayClicks, capacity);
+            dayImpressions = Arrays.copyOf(dayImpressions, capacity);
+            dayCosts = Arrays.copyOf(dayCosts, capacity);
+            sourceDayCosts = Arrays.copyOf(sourceDayCosts, capacity * sourceCount);
+        }
+        epochDays[days++] = epochDay;
+    }
+
+    private static void concat(Object left, Object right, Object target, int leftLength, int rightLength) {
+        System.arraycopy(left, 0, target, 0, leftLength);
+        System.arraycopy(right, 0, target, leftLength, rightLength);
+    }
+}
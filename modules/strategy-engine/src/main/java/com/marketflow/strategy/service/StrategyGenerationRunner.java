@@ -0,0 +1,155 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.StrategyResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Параллельная генерация стратегий на ограниченном пуле потоков.
+ * Задачи (источники, а в дальнейшем и кампании) независимы: каждая получает свой таймаут,
+ * отсчитываемый от начала ее выполнения, ошибки и таймауты собираются по задачам и не мешают остальным.
+ */
+@Slf4j
+public class StrategyGenerationRunner implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final long taskTimeoutMs;
+
+    /**
+     * @param parallelism количество потоков генерации
+     * @param taskTimeoutMs таймаут одной задачи в миллисекундах
+     */
+    public StrategyGenerationRunner(int parallelism, long taskTimeoutMs) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (taskTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Task timeout must be positive: " + taskTimeoutMs);
+        }
+        this.taskTimeoutMs = taskTimeoutMs;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "strategy-generator-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "strategy-generator-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает генерацию для всех задач и ждет завершения каждой (успех, ошибка или таймаут)
+     * @param keys ключи задач, например источники
+     * @param generator генерация стратегии по ключу
+     * @return результаты по успешным задачам и ошибки по остальным, в порядке ключей
+     */
+    public GenerationReport run(List<String> keys, Function<String, StrategyResult> generator) {
+        Map<String, CompletableFuture<StrategyResult>> futures = new LinkedHashMap<>();
+        for (String key : keys) {
+            CompletableFuture<StrategyResult> future = new CompletableFuture<>();
+            futures.put(key, future);
+            executor.execute(() -> runTask(key, generator, future));
+        }
+
+        Map<String, StrategyResult> results = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<StrategyResult>> entry : futures.entrySet()) {
+            String key = entry.getKey();
+            try {
+                results.put(key, entry.getValue().get());
+            } catch (ExecutionException e) {
+                failures.put(key, String.valueOf(e.getCause()));
+                if (e.getCause() instanceof TimeoutException) {
+                    log.warn("Strategy generation for {} timed out", key);
+                } else {
+                    log.error("Strategy generation for {} failed", key, e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                failures.put(key, "interrupted");
+                break;
+            }
+        }
+
+        return new GenerationReport(results, failures);
+    }
+
+    private void runTask(String key, Function<String, StrategyResult> generator,
+                         CompletableFuture<StrategyResult> future) {
+        if (future.isDone()) {
+            // Запуск прерван до начала задачи
+            return;
+        }
+
+        Thread worker = Thread.currentThread();
+        Object lock = new Object();
+        boolean[] finished = {false};
+        ScheduledFuture<?> timer = watchdog.schedule(() -> {
+            synchronized (lock) {
+                if (!finished[0] && future.completeExceptionally(
+                        new TimeoutException("timeout after " + taskTimeoutMs + " ms"))) {
+                    worker.interrupt();
+                }
+            }
+        }, taskTimeoutMs, TimeUnit.MILLISECONDS);
+
+        try {
+            future.complete(generator.apply(key));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            timer.cancel(false);
+            synchronized (lock) {
+                finished[0] = true;
+            }
+            // Прерывание по таймауту не должно достаться следующей задаче этого потока
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Итог генерации: стратегии по успешным задачам и причины ошибок по остальным
+     */
+    @Getter
+    public static class GenerationReport {
+        private final Map<String, StrategyResult> results;
+        private final Map<String, String> failures;
+
+        public GenerationReport(Map<String, StrategyResult> results, Map<String, String> failures) {
+            this.results = results;
+            this.failures = failures;
+        }
+
+        /**
+         * Ни одна задача не завершилась успешно (при непустом списке задач)
+         */
+        public boolean allFailed() {
+            return results.isEmpty() && !failures.isEmpty();
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.marketflow.strategy.service;
 
+import com.marketflow.strategy.model.AnalysisContext;
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.MetricsSnapshot;
 import com.marketflow.strategy.model.StrategyResult;
 import com.marketflow.strategy.model.StrategyType;
+import com.marketflow.strategy.service.StrategyGenerationRunner.GenerationReport;
 import com.marketflow.strategy.util.RecommendationEngine;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,13 +21,33 @@ import java.util.Map;
 @Slf4j
 public class StrategyGenerationService {
 
-    private final DatabaseService databaseService;
+    private final MetricsSource metricsSource;
+    private final StrategySink strategySink;
     private final MetricsAnalysisService analysisService;
     private final RecommendationEngine recommendationEngine;
 
     public StrategyGenerationService(DatabaseService databaseService) {
-        this.databaseService = databaseService;
-        this.analysisService = new MetricsAnalysisService(databaseService);
+        this(databaseService, databaseService);
+    }
+
+    /**
+     * @param metricsSource откуда читаются метрики
+     * @param strategySink куда сохраняются стратегии
+     */
+    public StrategyGenerationService(MetricsSource metricsSource, StrategySink strategySink) {
+        this(metricsSource, strategySink, null);
+    }
+
+    /**
+     * @param metricsSource откуда читаются метрики
+     * @param strategySink куда сохраняются стратегии
+     * @param analysisPool пул параллельного анализа снимков (null - последовательный анализ)
+     */
+    public StrategyGenerationService(MetricsSource metricsSource, StrategySink strategySink,
+                                     AnalysisPool analysisPool) {
+        this.metricsSource = metricsSource;
+        this.strategySink = strategySink;
+        this.analysisService = new MetricsAnalysisService(metricsSource, analysisPool);
         this.recommendationEngine = new RecommendationEngine();
     }
 
@@ -33,12 +58,84 @@ public class StrategyGenerationService {
      * @return результат генерации стратегии
      */
     public StrategyResult generateStrategy(String source, int daysBack) {
+        return generateStrategy(source, metricsSource.loadMetricsSnapshot(daysBack));
+    }
+
+    /**
+     * Генерация стратегии по заранее загруженному снимку метрик
+     * @param source источник для генерации стратегии
+     * @param snapshot снимок метрик за период анализа
+     * @return результат генерации стратегии
+     */
+    public StrategyResult generateStrategy(String source, MetricsSnapshot snapshot) {
+        return generateStrategy(source, analyze(snapshot));
+    }
+
+    /**
+     * Анализ снимка метрик для всего запуска
+     * @param snapshot снимок метрик за период анализа
+     * @return контекст анализа, общий для всех источников
+     */
+    public AnalysisContext analyze(MetricsSnapshot snapshot) {
+        return analysisService.analyze(snapshot);
+    }
+
+    /**
+     * Анализ снимка с эффективностью и трендами из инкрементальных окон
+     * @param snapshot снимок метрик за период (для поиска аномалий)
+     * @param sourceEfficiency рейтинги эффективности по источникам
+     * @param trends тренды CTR и CPC
+     * @return контекст анализа, общий для всех источников
+     */
+    public AnalysisContext analyze(MetricsSnapshot snapshot, Map<String, Double> sourceEfficiency,
+                                   Map<String, Double> trends) {
+        return analysisService.analyze(snapshot, sourceEfficiency, trends);
+    }
+
+    /**
+     * Анализ за период без загрузки снимка: агрегаты БД и потоковый поиск аномалий
+     * @param daysBack количество дней для анализа
+     * @return контекст анализа, общий для всех источников
+     */
+    public AnalysisContext analyze(int daysBack) {
+        return analysisService.analyze(daysBack);
+    }
+
+    /**
+     * Анализ без снимка с эффективностью и трендами из инкрементальных окон
+     * @param daysBack количество дней для анализа (для поиска аномалий)
+     * @param sourceEfficiency рейтинги эффективности по источникам
+     * @param trends тренды CTR и CPC
+     * @return контекст анализа, общий для всех источников
+     */
+    public AnalysisContext analyze(int daysBack, Map<String, Double> sourceEfficiency, Map<String, Double> trends) {
+        return analysisService.analyze(daysBack, sourceEfficiency, trends);
+    }
+
+    /**
+     * Генерация стратегии по общему контексту анализа.
+     * Эффективность, тренды и аномалии не пересчитываются для каждого источника
+     * @param source источник для генерации стратегии
+     * @param context результаты анализа за запуск
+     * @return сохраненный результат генерации стратегии
+     */
+    public StrategyResult generateStrategy(String source, AnalysisContext context) {
+        return strategySink.saveStrategyResult(buildStrategy(source, context));
+    }
+
+    /**
+     * Построение стратегии по общему контексту анализа без сохранения
+     * @param source источник для генерации стратегии
+     * @param context результаты анализа за запуск
+     * @return несохраненный результат генерации стратегии
+     */
+    public StrategyResult buildStrategy(String source, AnalysisContext context) {
+        int daysBack = context.getPeriodDays();
         log.info("Generating strategy for source: {} based on {} days of data", source, daysBack);
 
-        // Анализ метрик
-        Map<String, Double> sourceEfficiency = analysisService.analyzeSourceEfficiency(daysBack);
-        Map<String, Double> trends = analysisService.analyzeMetricTrends(daysBack);
-        List<String> anomalies = analysisService.detectAnomalies(daysBack);
+        Map<String, Double> sourceEfficiency = context.getSourceEfficiency();
+        Map<String, Double> trends = context.getTrends();
+        List<String> anomalies = context.getAnomalies();
 
         // Определение типа стратегии на основе метрик
         StrategyType strategyType = determineStrategyType(source, sourceEfficiency, trends);
@@ -60,14 +157,100 @@ public class StrategyGenerationService {
                 .confidenceScore(calculateConfidenceScore(source, allMetrics, anomalies.size()))
                 .build();
 
-        // Генерация рекомендаций
-        List<String> recommendations = recommendationEngine.generateRecommendations(
-                source, strategyType, allMetrics, anomalies);
+        // Генерация рекомендаций сразу в список результата
+        recommendationEngine.addRecommendations(
+                result.getRecommendations(), source, strategyType, allMetrics, anomalies);
+        return result;
+    }
+
+    /**
+     * Генерация стратегий для нескольких источников по общему контексту анализа.
+     * Рекомендации для разных источников независимы и строятся параллельно; в задачах с таймаутом
+     * ничего не сохраняется, иначе задача, признанная просроченной, могла бы все же записать стратегию.
+     * Завершившиеся задачи сохраняются вызывающим кодом через {@link #saveStrategies(GenerationReport)}
+     * @param sources источники для генерации стратегий
+     * @param context результаты анализа за запуск
+     * @param runner пул генерации с таймаутом на задачу
+     * @return несохраненные стратегии по успешным источникам и ошибки по остальным
+     */
+    public GenerationReport generateStrategies(List<String> sources, AnalysisContext context,
+                                               StrategyGenerationRunner runner) {
+        return runner.run(sources, source -> buildStrategy(source, context));
+    }
+
+    /**
+     * Сохранение стратегий, успешно построенных в отчете, одной пачкой в одной транзакции.
+     * ID присваиваются результатам отчета
+     * @param report итог генерации
+     * @return сохраненные стратегии в порядке источников
+     */
+    public List<StrategyResult> saveStrategies(GenerationReport report) {
+        List<StrategyResult> results = new ArrayList<>(report.getResults().values());
+        if (results.isEmpty()) {
+            return results;
+        }
+        return strategySink.saveStrategyResults(results);
+    }
+
+    /**
+     * Анализ снимка метрик по кампаниям
+     * @param snapshot снимок метрик за период анализа
+     * @param minDays минимальное количество дней с данными для кампании
+     * @return результаты анализа кампаний
+     */
+    public List<CampaignAnalysis> analyzeCampaigns(MetricsSnapshot snapshot, int minDays) {
+        return analysisService.analyzeCampaigns(snapshot, minDays);
+    }
+
+    /**
+     * Генерация стратегий для кампаний. Все стратегии сохраняются одной пачкой в одной транзакции
+     * @param campaigns результаты анализа кампаний
+     * @param daysBack период анализа в днях
+     * @return сохраненные стратегии в порядке кампаний
+     */
+    public List<StrategyResult> generateCampaignStrategies(List<CampaignAnalysis> campaigns, int daysBack) {
+        log.info("Generating strategies for {} campaigns based on {} days of data", campaigns.size(), daysBack);
+
+        List<StrategyResult> results = new ArrayList<>(campaigns.size());
+        for (CampaignAnalysis campaign : campaigns) {
+            results.add(buildCampaignStrategy(campaign, daysBack));
+        }
+
+        if (results.isEmpty()) {
+            return results;
+        }
+        return strategySink.saveStrategyResults(results);
+    }
+
+    private StrategyResult buildCampaignStrategy(CampaignAnalysis campaign, int daysBack) {
+        String source = campaign.getSource();
+        StrategyType strategyType = determineStrategyType(
+                campaign.getEfficiency(), campaign.getCtrTrend(), campaign.getCpcTrend());
 
-        recommendations.forEach(result::addRecommendation);
+        Map<String, Double> metrics = new HashMap<>();
+        metrics.put("efficiency", campaign.getEfficiency());
+        metrics.put("ctr_trend", campaign.getCtrTrend());
+        metrics.put("cpc_trend", campaign.getCpcTrend());
+        metrics.put("clicks", (double) campaign.getClicks());
+        metrics.put("impressions", (double) campaign.getImpressions());
+        metrics.put("cost", campaign.getCost());
 
-        // Сохранение результата
-        return databaseService.saveStrategyResult(result);
+        StrategyResult result = StrategyResult.builder()
+                .name("Стратегия для кампании " + campaign.getCampaignId() + " (" + source
+                        + ") на основе данных за " + daysBack + " дней")
+                .description(generateDescription(source, strategyType, metrics))
+                .strategyType(strategyType)
+                .source(source)
+                .campaignId(campaign.getCampaignId())
+                .generatedAt(LocalDateTime.now())
+                .metrics(metrics)
+                .metricsPeriod(daysBack)
+                .confidenceScore(calculateConfidenceScore(source, metrics, campaign.getAnomalies().size()))
+                .build();
+
+        recommendationEngine.addRecommendations(
+                result.getRecommendations(), source, strategyType, metrics, campaign.getAnomalies());
+        return result;
     }
 
     /**
@@ -81,10 +264,14 @@ public class StrategyGenerationService {
             String source, Map<String, Double> efficiency, Map<String, Double> trends) {
 
         // Получение эффективности конкретного источника
-        Double sourceEfficiency = efficiency.getOrDefault(source, 0.0);
-        Double ctrTrend = trends.getOrDefault("ctr_trend", 0.0);
-        Double cpcTrend = trends.getOrDefault("cpc_trend", 0.0);
+        return determineStrategyType(efficiency.getOrDefault(source, 0.0),
+                trends.getOrDefault("ctr_trend", 0.0), trends.getOrDefault("cpc_trend", 0.0));
+    }
 
+    /**
+     * Определение типа стратегии по эффективности и трендам
+     */
+    private StrategyType determineStrategyType(double sourceEfficiency, double ctrTrend, double cpcTrend) {
         // Логика определения типа стратегии на основе метрик
         if (sourceEfficiency < 0.3) {
             // Низкая эффективность
@@ -0,0 +1,23 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.StrategyResult;
+
+import java.util.List;
+
+/**
+ * Хранилище сгенерированных стратегий
+ */
+public interface StrategySink {
+
+    /**
+     * Сохраняет стратегию и присваивает ей ID
+     * @return тот же результат с присвоенным ID
+     */
+    StrategyResult saveStrategyResult(StrategyResult strategyResult);
+
+    /**
+     * Сохраняет пачку стратегий целиком или не сохраняет ни одной
+     * @return те же результаты с присвоенными ID, в исходном порядке
+     */
+    List<StrategyResult> saveStrategyResults(List<StrategyResult> strategyResults);
+}
@@ -0,0 +1,132 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.util.P2QuantileEstimator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковый поиск аномалий CTR и CPC по источникам в два прохода с ограниченной памятью.
+ * Первый проход ({@link #observe}) копит по каждому источнику оценки квартилей P² и средние,
+ * второй ({@link #check}) сравнивает строки с границами IQR. Память зависит от количества
+ * источников и найденных аномалий, но не от количества строк.
+ * Правило то же, что в {@link com.marketflow.strategy.util.MetricsCalculator#detectOutliers}:
+ * выброс вне [Q1 - 1.5 IQR, Q3 + 1.5 IQR], источник с менее чем четырьмя строками не проверяется.
+ */
+public class StreamingAnomalyDetector {
+    private static final int MIN_VALUES = 4;
+
+    private final Map<String, SourceStats> statsBySource = new HashMap<>();
+    private boolean observing = true;
+
+    /**
+     * Первый проход: учет строки в статистике источника
+     */
+    public void observe(String source, int clicks, int impressions, double cost) {
+        if (!observing) {
+            throw new IllegalStateException("Observation pass is already finished");
+        }
+        statsBySource.computeIfAbsent(key(source), k -> new SourceStats())
+                .observe(ctr(clicks, impressions), cpc(clicks, cost));
+    }
+
+    /**
+     * Завершение первого прохода: фиксирует границы выбросов по источникам
+     */
+    public void finishObservation() {
+        statsBySource.values().forEach(SourceStats::freeze);
+        observing = false;
+    }
+
+    /**
+     * Второй проход: проверка строки на выброс. Первая проверка завершает первый проход, если он еще не завершен
+     */
+    public void check(int epochDay, String source, int clicks, int impressions, double cost) {
+        if (observing) {
+            finishObservation();
+        }
+        String key = key(source);
+        SourceStats stats = statsBySource.get(key);
+        if (stats == null || stats.count < MIN_VALUES) {
+            return;
+        }
+
+        double ctr = ctr(clicks, impressions);
+        if (ctr < stats.ctrLower || ctr > stats.ctrUpper) {
+            stats.ctrAnomalies.add(String.format(
+                    "Аномально %s CTR (%.2f%%) для источника %s на дату %s",
+                    ctr > stats.ctrSum / stats.count ? "высокий" : "низкий",
+                    ctr, key, LocalDate.ofEpochDay(epochDay)));
+        }
+
+        double cpc = cpc(clicks, cost);
+        if (cpc < stats.cpcLower || cpc > stats.cpcUpper) {
+            stats.cpcAnomalies.add(String.format(
+                    "Аномально %s CPC (%.2f) для источника %s на дату %s",
+                    cpc > stats.cpcSum / stats.count ? "высокий" : "низкий",
+                    cpc, key, LocalDate.ofEpochDay(epochDay)));
+        }
+    }
+
+    /**
+     * Найденные аномалии: по каждому источнику сначала CTR, затем CPC, в порядке строк
+     */
+    public List<String> getAnomalies() {
+        List<String> anomalies = new ArrayList<>();
+        for (SourceStats stats : statsBySource.values()) {
+            anomalies.addAll(stats.ctrAnomalies);
+            anomalies.addAll(stats.cpcAnomalies);
+        }
+        return anomalies;
+    }
+
+    private static String key(String source) {
+        return source != null ? source : "unknown";
+    }
+
+    private static double ctr(int clicks, int impressions) {
+        return impressions > 0 ? (double) clicks / impressions * 100 : 0.0;
+    }
+
+    private static double cpc(int clicks, double cost) {
+        return clicks > 0 ? cost / clicks : 0.0;
+    }
+
+    private static final class SourceStats {
+        private final P2QuantileEstimator ctrQ1 = new P2QuantileEstimator(0.25);
+        private final P2QuantileEstimator ctrQ3 = new P2QuantileEstimator(0.75);
+        private final P2QuantileEstimator cpcQ1 = new P2QuantileEstimator(0.25);
+        private final P2QuantileEstimator cpcQ3 = new P2QuantileEstimator(0.75);
+        private final List<String> ctrAnomalies = new ArrayList<>();
+        private final List<String> cpcAnomalies = new ArrayList<>();
+        private long count;
+        private double ctrSum;
+        private double cpcSum;
+        private double ctrLower;
+        private double ctrUpper;
+        private double cpcLower;
+        private double cpcUpper;
+
+        void observe(double ctr, double cpc) {
+            ctrQ1.add(ctr);
+            ctrQ3.add(ctr);
+            cpcQ1.add(cpc);
+            cpcQ3.add(cpc);
+            ctrSum += ctr;
+            cpcSum += cpc;
+            count++;
+        }
+
+        void freeze() {
+            double ctrIqr = ctrQ3.getQuantile() - ctrQ1.getQuantile();
+            ctrLower = ctrQ1.getQuantile() - 1.5 * ctrIqr;
+            ctrUpper = ctrQ3.getQuantile() + 1.5 * ctrIqr;
+            double cpcIqr = cpcQ3.getQuantile() - cpcQ1.getQuantile();
+            cpcLower = cpcQ1.getQuantile() - 1.5 * cpcIqr;
+            cpcUpper = cpcQ3.getQuantile() + 1.5 * cpcIqr;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.TrendWindowState;
+
+import java.util.List;
+
+/**
+ * Хранилище состояния скользящих окон трендов между запусками движка
+ */
+public interface WindowStateStore {
+
+    /**
+     * Все сохраненные окна (пустой список, если движок еще не запускался)
+     */
+    List<TrendWindowState> loadWindowStates();
+
+    /**
+     * Заменяет сохраненные окна новым набором целиком, в одной транзакции
+     */
+    void replaceWindowStates(List<TrendWindowState> states);
+}
@@ -0,0 +1,52 @@
+package com.marketflow.strategy.util;
+
+import lombok.Value;
+
+/**
+ * Описательная статистика ряда значений, результат {@link MetricsCalculator#describe(double[])}.
+ */
+@Value
+public class MetricStatistics {
+    int count;
+    double mean;
+    double variance;               // Дисперсия генеральной совокупности (деление на n)
+    double min;
+    double max;
+    double q1;                     // Первый квартиль: sorted[n / 4]
+    double q3;                     // Третий квартиль: sorted[3n / 4]
+
+    /**
+     * Пустая статистика (нет значений)
+     */
+    public static final MetricStatistics EMPTY = new MetricStatistics(0, 0.0, 0.0, Double.NaN, Double.NaN,
+            Double.NaN, Double.NaN);
+
+    public double getStdDev() {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * Коэффициент вариации в процентах (0 при нулевом среднем)
+     */
+    public double getCoefficientOfVariation() {
+        return mean == 0 ? 0.0 : getStdDev() / mean * 100.0;
+    }
+
+    public double getIqr() {
+        return q3 - q1;
+    }
+
+    /**
+     * Нижняя граница выбросов: Q1 - 1.5 IQR
+     */
+    public double getLowerFence() {
+        return q1 - 1.5 * getIqr();
+    }
+
+    /**
+     * Верхняя граница выбросов: Q3 + 1.5 IQR
+     */
+    public double getUpperFence() {
+        return q3 + 1.5 * getIqr();
+    }
+}
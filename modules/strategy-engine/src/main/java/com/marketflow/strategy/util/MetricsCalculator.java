@@ -2,15 +2,37 @@ package com.marketflow.strategy.util;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Утилитарный класс для выполнения различных расчетов над маркетинговыми метриками.
+ * Основные реализации работают с примитивными массивами ({@code double[]} и {@link DoubleBuffer});
+ * методы с {@code List<Double>} распаковывают список один раз и делегируют им.
+ * Проходы по массиву выполняет {@link StatisticsKernel} (скалярный или векторный), квантили - всегда скалярно.
  */
 @Slf4j
 public class MetricsCalculator {
+    // null - ядро по умолчанию из StatisticsKernels на момент вызова
+    private final StatisticsKernel kernel;
+
+    public MetricsCalculator() {
+        this(null);
+    }
+
+    /**
+     * @param kernel вычислительное ядро (null - текущее ядро по умолчанию)
+     */
+    public MetricsCalculator(StatisticsKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    private StatisticsKernel kernel() {
+        return kernel != null ? kernel : StatisticsKernels.current();
+    }
 
     /**
      * Расчет эффективности рекламного источника
@@ -42,36 +64,57 @@ public class MetricsCalculator {
      * @return коэффициент тренда (положительный - рост, отрицательный - падение)
      */
     public double calculateTrend(List<Double> values) {
-        if (values == null || values.size() < 2) {
+        if (values == null) {
             return 0.0;
         }
+        return calculateTrend(toArray(values));
+    }
 
-        int n = values.size();
-
-        // Расчет методом наименьших квадратов
-        double sumX = 0.0;
-        double sumY = 0.0;
-        double sumXY = 0.0;
-        double sumXX = 0.0;
+    /**
+     * Расчет тренда по временному ряду данных
+     * @param values значения метрики за последовательные периоды
+     * @return коэффициент тренда (положительный - рост, отрицательный - падение)
+     */
+    public double calculateTrend(double[] values) {
+        if (values == null) {
+            return 0.0;
+        }
+        return trend(values, 0, values.length);
+    }
 
-        for (int i = 0; i < n; i++) {
-            double x = i + 1; // Номер периода
-            double y = values.get(i);
+    /**
+     * Расчет тренда по значениям буфера от position до limit
+     */
+    public double calculateTrend(DoubleBuffer values) {
+        if (values == null) {
+            return 0.0;
+        }
+        if (values.hasArray()) {
+            int from = values.arrayOffset() + values.position();
+            return trend(values.array(), from, from + values.remaining());
+        }
+        return calculateTrend(toArray(values));
+    }
 
-            sumX += x;
-            sumY += y;
-            sumXY += x * y;
-            sumXX += x * x;
+    private double trend(double[] values, int from, int to) {
+        int n = to - from;
+        if (n < 2) {
+            return 0.0;
         }
 
+        // Расчет методом наименьших квадратов
+        double[] sums = kernel().regressionSums(values, from, to);
+        double sumX = sums[0];
+        double sumY = sums[1];
+        double sumXY = sums[2];
+        double sumXX = sums[3];
+
         // Коэффициент наклона линии тренда
         double slope = (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
 
         // Нормализация для получения значимого коэффициента
         double avgY = sumY / n;
-        double normalizedSlope = avgY != 0 ? slope / avgY : slope;
-
-        return normalizedSlope;
+        return avgY != 0 ? slope / avgY : slope;
     }
 
     /**
@@ -84,31 +127,51 @@ public class MetricsCalculator {
             return Collections.emptyList();
         }
 
-        List<Integer> outlierIndices = new ArrayList<>();
-        List<Double> sortedValues = new ArrayList<>(values);
-        Collections.sort(sortedValues);
+        int[] indices = detectOutliers(toArray(values));
+        List<Integer> outlierIndices = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            outlierIndices.add(index);
+        }
+        return outlierIndices;
+    }
 
-        // Расчет квартилей
-        int n = sortedValues.size();
-        double q1 = sortedValues.get(n / 4);
-        double q3 = sortedValues.get((3 * n) / 4);
+    /**
+     * Определение выбросов методом IQR. Квартили находятся выбором k-й порядковой статистики
+     * за линейное время, без полной сортировки
+     * @param values значения для анализа
+     * @return индексы значений, определенных как выбросы, по возрастанию
+     */
+    public int[] detectOutliers(double[] values) {
+        if (values == null || values.length < 4) {
+            return new int[0];
+        }
+        return outliers(values, 0, values.length);
+    }
 
-        // Межквартильный размах
-        double iqr = q3 - q1;
+    /**
+     * Определение выбросов по значениям буфера от position до limit
+     * @return индексы выбросов относительно position
+     */
+    public int[] detectOutliers(DoubleBuffer values) {
+        if (values == null || values.remaining() < 4) {
+            return new int[0];
+        }
+        if (values.hasArray()) {
+            int from = values.arrayOffset() + values.position();
+            return outliers(values.array(), from, from + values.remaining());
+        }
+        return detectOutliers(toArray(values));
+    }
+
+    private int[] outliers(double[] values, int from, int to) {
+        double[] quartiles = quartiles(values, from, to);
+        double iqr = quartiles[1] - quartiles[0];
 
         // Границы для определения выбросов
-        double lowerBound = q1 - 1.5 * iqr;
-        double upperBound = q3 + 1.5 * iqr;
-
-        // Поиск выбросов
-        for (int i = 0; i < values.size(); i++) {
-            double value = values.get(i);
-            if (value < lowerBound || value > upperBound) {
-                outlierIndices.add(i);
-            }
-        }
+        double lowerBound = quartiles[0] - 1.5 * iqr;
+        double upperBound = quartiles[1] + 1.5 * iqr;
 
-        return outlierIndices;
+        return kernel().outside(values, from, to, lowerBound, upperBound);
     }
 
     /**
@@ -120,13 +183,29 @@ public class MetricsCalculator {
         if (values == null || values.isEmpty()) {
             return 0.0;
         }
+        return calculateMean(toArray(values));
+    }
 
-        double sum = 0.0;
-        for (Double value : values) {
-            sum += value;
+    /**
+     * Расчет среднего значения
+     * @param values значения
+     * @return среднее арифметическое
+     */
+    public double calculateMean(double[] values) {
+        if (values == null || values.length == 0) {
+            return 0.0;
         }
+        return kernel().moments(values, 0, values.length)[0];
+    }
 
-        return sum / values.size();
+    /**
+     * Расчет среднего значения буфера от position до limit
+     */
+    public double calculateMean(DoubleBuffer values) {
+        if (values == null || !values.hasRemaining()) {
+            return 0.0;
+        }
+        return moments(values)[0];
     }
 
     /**
@@ -138,15 +217,29 @@ public class MetricsCalculator {
         if (values == null || values.isEmpty()) {
             return 0.0;
         }
+        return calculateStdDev(toArray(values));
+    }
 
-        double mean = calculateMean(values);
-        double variance = 0.0;
-
-        for (Double value : values) {
-            variance += Math.pow(value - mean, 2);
+    /**
+     * Расчет стандартного отклонения (генеральной совокупности) за один проход
+     * @param values значения
+     * @return стандартное отклонение
+     */
+    public double calculateStdDev(double[] values) {
+        if (values == null || values.length == 0) {
+            return 0.0;
         }
+        return Math.sqrt(kernel().moments(values, 0, values.length)[1]);
+    }
 
-        return Math.sqrt(variance / values.size());
+    /**
+     * Расчет стандартного отклонения значений буфера от position до limit
+     */
+    public double calculateStdDev(DoubleBuffer values) {
+        if (values == null || !values.hasRemaining()) {
+            return 0.0;
+        }
+        return Math.sqrt(moments(values)[1]);
     }
 
     /**
@@ -158,14 +251,158 @@ public class MetricsCalculator {
         if (values == null || values.isEmpty()) {
             return 0.0;
         }
+        return calculateCoefficientOfVariation(toArray(values));
+    }
 
-        double mean = calculateMean(values);
-        if (mean == 0) {
+    /**
+     * Расчет коэффициента вариации за один проход
+     * @param values значения
+     * @return коэффициент вариации в процентах
+     */
+    public double calculateCoefficientOfVariation(double[] values) {
+        if (values == null || values.length == 0) {
             return 0.0;
         }
+        return coefficientOfVariation(kernel().moments(values, 0, values.length));
+    }
+
+    /**
+     * Расчет коэффициента вариации значений буфера от position до limit
+     * @return коэффициент вариации в процентах
+     */
+    public double calculateCoefficientOfVariation(DoubleBuffer values) {
+        if (values == null || !values.hasRemaining()) {
+            return 0.0;
+        }
+        return coefficientOfVariation(moments(values));
+    }
+
+    private static double coefficientOfVariation(double[] moments) {
+        return moments[0] == 0 ? 0.0 : Math.sqrt(moments[1]) / moments[0] * 100.0;
+    }
+
+    /**
+     * Среднее и дисперсия значений буфера; буфер в куче читается без копирования
+     */
+    private double[] moments(DoubleBuffer values) {
+        if (values.hasArray()) {
+            int from = values.arrayOffset() + values.position();
+            return kernel().moments(values.array(), from, from + values.remaining());
+        }
+        double[] copy = toArray(values);
+        return kernel().moments(copy, 0, copy.length);
+    }
+
+    /**
+     * Описательная статистика ряда: среднее, дисперсия, минимум и максимум (в скалярном ядре за один проход, Welford),
+     * квартили - выбором порядковых статистик за линейное время
+     * @param values значения
+     * @return статистика ряда ({@link MetricStatistics#EMPTY} для пустого ряда)
+     */
+    public MetricStatistics describe(double[] values) {
+        if (values == null || values.length == 0) {
+            return MetricStatistics.EMPTY;
+        }
+        return describe(values, 0, values.length);
+    }
+
+    /**
+     * Описательная статистика значений буфера от position до limit
+     */
+    public MetricStatistics describe(DoubleBuffer values) {
+        if (values == null || !values.hasRemaining()) {
+            return MetricStatistics.EMPTY;
+        }
+        if (values.hasArray()) {
+            int from = values.arrayOffset() + values.position();
+            return describe(values.array(), from, from + values.remaining());
+        }
+        return describe(toArray(values));
+    }
 
-        double stdDev = calculateStdDev(values);
+    private MetricStatistics describe(double[] values, int from, int to) {
+        double[] moments = kernel().describe(values, from, to);
+        double[] quartiles = quartiles(values, from, to);
+        return new MetricStatistics(to - from, moments[0], moments[1], moments[2], moments[3],
+                quartiles[0], quartiles[1]);
+    }
+
+    /**
+     * Квартили sorted[n / 4] и sorted[3n / 4] (те же индексы, что при полной сортировке)
+     * выбором порядковых статистик на копии значений
+     */
+    private static double[] quartiles(double[] values, int from, int to) {
+        int n = to - from;
+        double[] work = Arrays.copyOfRange(values, from, to);
+        int k3 = (3 * n) / 4;
+        double q3 = select(work, 0, n - 1, k3);
+        // После выбора k3 слева от него только значения не больше q3
+        double q1 = select(work, 0, k3, n / 4);
+        return new double[]{q1, q3};
+    }
+
+    /**
+     * k-я порядковая статистика в диапазоне [left, right] (quickselect, медиана трех как опорный элемент).
+     * Частично переупорядочивает массив
+     */
+    private static double select(double[] a, int left, int right, int k) {
+        while (right > left) {
+            int mid = (left + right) >>> 1;
+            // Медиана трех на позиции mid
+            if (Double.compare(a[mid], a[left]) < 0) {
+                swap(a, mid, left);
+            }
+            if (Double.compare(a[right], a[left]) < 0) {
+                swap(a, right, left);
+            }
+            if (Double.compare(a[right], a[mid]) < 0) {
+                swap(a, right, mid);
+            }
+            double pivot = a[mid];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (Double.compare(a[i], pivot) < 0) {
+                    i++;
+                }
+                while (Double.compare(a[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(a, i++, j--);
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return a[k];
+            }
+        }
+        return a[k];
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    private static double[] toArray(List<Double> values) {
+        double[] result = new double[values.size()];
+        int i = 0;
+        for (Double value : values) {
+            result[i++] = value;
+        }
+        return result;
+    }
 
-        return (stdDev / mean) * 100.0;
+    private static double[] toArray(DoubleBuffer values) {
+        double[] result = new double[values.remaining()];
+        values.duplicate().get(result);
+        return result;
     }
-}
\ No newline at end of file
+}
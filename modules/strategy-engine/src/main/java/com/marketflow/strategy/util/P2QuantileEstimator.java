@@ -0,0 +1,114 @@
+package com.marketflow.strategy.util;
+
+import java.util.Arrays;
+
+/**
+ * Потоковая оценка квантиля алгоритмом P² (Jain, Chlamtac): пять маркеров, O(1) памяти и времени на значение.
+ * Пока значений не больше пяти, квантиль берется точно - тем же индексом отсортированного ряда,
+ * что и в {@link MetricsCalculator#detectOutliers}.
+ */
+public class P2QuantileEstimator {
+    private static final int MARKERS = 5;
+
+    private final double p;
+    private final double[] heights = new double[MARKERS];
+    private final double[] positions = new double[MARKERS];
+    private final double[] desired = new double[MARKERS];
+    private final double[] increments;
+    private long count;
+
+    /**
+     * @param p оцениваемый квантиль, от 0 до 1
+     */
+    public P2QuantileEstimator(double p) {
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("Quantile must be in (0, 1): " + p);
+        }
+        this.p = p;
+        this.increments = new double[]{0, p / 2, p, (1 + p) / 2, 1};
+    }
+
+    public void add(double value) {
+        if (count < MARKERS) {
+            heights[(int) count++] = value;
+            if (count == MARKERS) {
+                Arrays.sort(heights);
+                for (int i = 0; i < MARKERS; i++) {
+                    positions[i] = i + 1;
+                    desired[i] = 1 + 4 * increments[i];
+                }
+            }
+            return;
+        }
+        count++;
+
+        // Ячейка, в которую попало значение; крайние маркеры сдвигаются к новым минимуму и максимуму
+        int cell;
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[MARKERS - 1]) {
+            heights[MARKERS - 1] = value;
+            cell = MARKERS - 2;
+        } else {
+            cell = 0;
+            while (value >= heights[cell + 1]) {
+                cell++;
+            }
+        }
+
+        for (int i = cell + 1; i < MARKERS; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < MARKERS; i++) {
+            desired[i] += increments[i];
+        }
+
+        // Корректировка средних маркеров параболической (или линейной) интерполяцией
+        for (int i = 1; i < MARKERS - 1; i++) {
+            double delta = desired[i] - positions[i];
+            if ((delta >= 1 && positions[i + 1] - positions[i] > 1)
+                    || (delta <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int step = delta >= 0 ? 1 : -1;
+                double candidate = parabolic(i, step);
+                if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+                    heights[i] = candidate;
+                } else {
+                    heights[i] = linear(i, step);
+                }
+                positions[i] += step;
+            }
+        }
+    }
+
+    private double parabolic(int i, int step) {
+        double left = positions[i] - positions[i - 1];
+        double right = positions[i + 1] - positions[i];
+        return heights[i] + step / (positions[i + 1] - positions[i - 1])
+                * ((left + step) * (heights[i + 1] - heights[i]) / right
+                + (right - step) * (heights[i] - heights[i - 1]) / left);
+    }
+
+    private double linear(int i, int step) {
+        return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+    }
+
+    /**
+     * Текущая оценка квантиля (NaN, если значений не было)
+     */
+    public double getQuantile() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count <= MARKERS) {
+            double[] sorted = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, (long) (p * count))];
+        }
+        return heights[2];
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
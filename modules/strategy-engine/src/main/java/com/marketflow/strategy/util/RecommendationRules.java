@@ -0,0 +1,348 @@
+package com.marketflow.strategy.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketflow.strategy.model.StrategyType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Таблица правил {@link RecommendationEngine}, скомпилированная из ресурса recommendations.json.
+ * Шаблоны разбираются один раз в неизменяемые части, условия трендов - в предикаты, которые проверяются
+ * по правилам в порядке таблицы, так что генерация рекомендаций не разбирает строк и почти не выделяет памяти
+ */
+public final class RecommendationRules {
+    public static final String DEFAULT_RESOURCE = "recommendations.json";
+
+    private final Map<StrategyType, Template[]> strategies;
+    private final Template[] fallback;
+    // Метрики условий трендов в порядке появления; термы правил ссылаются на них по индексу
+    private final String[] trendMetrics;
+    private final Rule[][] trendGroups;
+    private final String anomalyHeader;
+    private final int anomalyLimit;
+    private final Template anomalyItem;
+    private final Template anomalyMore;
+
+    private RecommendationRules(JsonNode root) {
+        strategies = new EnumMap<>(StrategyType.class);
+        JsonNode strategyNodes = required(root, "strategies");
+        strategyNodes.fieldNames().forEachRemaining(name ->
+                strategies.put(StrategyType.valueOf(name), templates(strategyNodes.get(name))));
+        fallback = templates(required(root, "default"));
+
+        JsonNode groups = required(root, "trends");
+        List<String> metricNames = new ArrayList<>();
+        trendGroups = new Rule[groups.size()][];
+        for (int g = 0; g < groups.size(); g++) {
+            JsonNode group = groups.get(g);
+            trendGroups[g] = new Rule[group.size()];
+            for (int r = 0; r < group.size(); r++) {
+                JsonNode rule = group.get(r);
+                String[] expressions = required(rule, "when").asText().split("&&");
+                Term[] terms = new Term[expressions.length];
+                int[] metrics = new int[expressions.length];
+                for (int t = 0; t < expressions.length; t++) {
+                    terms[t] = Term.parse(expressions[t].trim());
+                    metrics[t] = metricNames.indexOf(terms[t].metric);
+                    if (metrics[t] < 0) {
+                        metrics[t] = metricNames.size();
+                        metricNames.add(terms[t].metric);
+                    }
+                }
+                trendGroups[g][r] = new Rule(terms, metrics, Template.compile(required(rule, "text").asText()));
+            }
+        }
+        trendMetrics = metricNames.toArray(new String[0]);
+
+        JsonNode anomalies = required(root, "anomalies");
+        anomalyHeader = required(anomalies, "header").asText();
+        anomalyLimit = required(anomalies, "limit").asInt();
+        anomalyItem = Template.compile(required(anomalies, "item").asText());
+        anomalyMore = Template.compile(required(anomalies, "more").asText());
+    }
+
+    /**
+     * Правила из ресурса по умолчанию, загружаются один раз при первом обращении
+     */
+    public static RecommendationRules defaults() {
+        return DefaultHolder.RULES;
+    }
+
+    /**
+     * Загрузка правил из ресурса classpath
+     * @param resource путь к ресурсу
+     * @throws IllegalArgumentException если ресурс не найден или правило некорректно
+     */
+    public static RecommendationRules load(String resource) {
+        try (InputStream in = RecommendationRules.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Recommendation rules not found: " + resource);
+            }
+            return new RecommendationRules(new ObjectMapper().readTree(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read recommendation rules: " + resource, e);
+        }
+    }
+
+    /**
+     * Верхняя оценка числа рекомендаций, чтобы список создавался сразу нужного размера
+     */
+    int capacity(StrategyType strategyType, int anomalyCount) {
+        int capacity = strategyTemplates(strategyType).length + trendGroups.length;
+        if (anomalyCount > 0) {
+            capacity += 2 + Math.min(anomalyLimit, anomalyCount);
+        }
+        return capacity;
+    }
+
+    void addStrategyRecommendations(List<String> recommendations, StrategyType strategyType, String source) {
+        for (Template template : strategyTemplates(strategyType)) {
+            recommendations.add(template.render(source, null, 0));
+        }
+    }
+
+    /**
+     * В каждой группе срабатывает первое правило с выполненным условием
+     */
+    void addTrendRecommendations(List<String> recommendations, String source, Map<String, Double> metrics) {
+        double[] values = trendValues(metrics);
+        for (Rule[] group : trendGroups) {
+            for (Rule rule : group) {
+                if (rule.matches(values)) {
+                    recommendations.add(rule.text.render(source, null, 0));
+                    break;
+                }
+            }
+        }
+    }
+
+    void addAnomalyRecommendations(List<String> recommendations, String source, List<String> anomalies) {
+        if (anomalies.isEmpty()) {
+            return;
+        }
+        recommendations.add(anomalyHeader);
+        int shown = Math.min(anomalyLimit, anomalies.size());
+        for (int i = 0; i < shown; i++) {
+            recommendations.add(anomalyItem.render(source, anomalies.get(i), 0));
+        }
+        if (anomalies.size() > anomalyLimit) {
+            recommendations.add(anomalyMore.render(source, null, anomalies.size() - anomalyLimit));
+        }
+    }
+
+    /**
+     * Каждая метрика читается из карты один раз; отсутствующая метрика считается равной 0
+     * @return значения метрик по индексам trendMetrics
+     */
+    private double[] trendValues(Map<String, Double> metrics) {
+        double[] values = new double[trendMetrics.length];
+        for (int m = 0; m < trendMetrics.length; m++) {
+            Double value = metrics.get(trendMetrics[m]);
+            values[m] = value != null ? value : 0.0;
+        }
+        return values;
+    }
+
+    private Template[] strategyTemplates(StrategyType strategyType) {
+        return strategies.getOrDefault(strategyType, fallback);
+    }
+
+    private static Template[] templates(JsonNode node) {
+        Template[] templates = new Template[node.size()];
+        for (int i = 0; i < templates.length; i++) {
+            templates[i] = Template.compile(node.get(i).asText());
+        }
+        return templates;
+    }
+
+    private static JsonNode required(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            throw new IllegalArgumentException("Recommendation rules: missing field '" + field + "'");
+        }
+        return value;
+    }
+
+    private static final class DefaultHolder {
+        static final RecommendationRules RULES = load(DEFAULT_RESOURCE);
+    }
+
+    private static final class Rule {
+        // Правило срабатывает, когда выполнены все термы; metrics[i] - индекс метрики терма i
+        final Term[] terms;
+        final int[] metrics;
+        final Template text;
+
+        Rule(Term[] terms, int[] metrics, Template text) {
+            this.terms = terms;
+            this.metrics = metrics;
+            this.text = text;
+        }
+
+        boolean matches(double[] values) {
+            for (int i = 0; i < terms.length; i++) {
+                if (!terms[i].test(values[metrics[i]])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Терм условия вида "ctr_trend < -0.05"; условие правила - термы, соединенные через &&
+     */
+    static final class Term {
+        private static final int LT = 0;
+        private static final int GT = 1;
+        private static final int LE = 2;
+        private static final int GE = 3;
+        private static final String[] OPERATORS = {"<", ">", "<=", ">="};
+
+        final String metric;
+        final int op;
+        final double threshold;
+
+        private Term(String metric, int op, double threshold) {
+            this.metric = metric;
+            this.op = op;
+            this.threshold = threshold;
+        }
+
+        static Term parse(String expression) {
+            String[] parts = expression.split("\\s+");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid condition: " + expression);
+            }
+            int op = Arrays.asList(OPERATORS).indexOf(parts[1]);
+            if (op < 0) {
+                throw new IllegalArgumentException("Invalid operator '" + parts[1] + "' in condition: " + expression);
+            }
+            try {
+                return new Term(parts[0], op, Double.parseDouble(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid condition: " + expression, e);
+            }
+        }
+
+        boolean test(double value) {
+            switch (op) {
+                case LT:
+                    return value < threshold;
+                case GT:
+                    return value > threshold;
+                case LE:
+                    return value <= threshold;
+                default:
+                    return value >= threshold;
+            }
+        }
+    }
+
+    /**
+     * Шаблон с подстановками {source}, {anomaly} и {count}. Шаблон без подстановок отдает одну и ту же строку,
+     * остальные склеиваются из готовых частей
+     */
+    static final class Template {
+        private static final int SOURCE = 0;
+        private static final int ANOMALY = 1;
+        private static final int COUNT = 2;
+
+        private final String constant;
+        // parts[i] - текст перед подстановкой slots[i], последний элемент parts - хвост шаблона
+        private final String[] parts;
+        private final int[] slots;
+        private final int length;
+
+        private Template(String constant, String[] parts, int[] slots) {
+            this.constant = constant;
+            this.parts = parts;
+            this.slots = slots;
+            int length = 0;
+            for (String part : parts) {
+                length += part.length();
+            }
+            this.length = length;
+        }
+
+        static Template compile(String text) {
+            List<String> parts = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = text.indexOf('{', start)) >= 0) {
+                int close = text.indexOf('}', open);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed placeholder in template: " + text);
+                }
+                parts.add(text.substring(start, open));
+                slots.add(slot(text.substring(open + 1, close), text));
+                start = close + 1;
+            }
+            if (slots.isEmpty()) {
+                return new Template(text, new String[]{text}, new int[0]);
+            }
+            parts.add(text.substring(start));
+            return new Template(null, parts.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        String render(String source, String anomaly, int count) {
+            return constant != null ? constant : build(source, anomaly, count);
+        }
+
+        private String build(String source, String anomaly, int count) {
+            if (slots.length == 1) {
+                // Одна подстановка: склейка сразу в итоговую строку, без промежуточного буфера
+                switch (slots[0]) {
+                    case SOURCE:
+                        return parts[0] + source + parts[1];
+                    case ANOMALY:
+                        return parts[0] + anomaly + parts[1];
+                    default:
+                        return parts[0] + count + parts[1];
+                }
+            }
+            int capacity = length;
+            for (int slot : slots) {
+                capacity += slot == SOURCE ? String.valueOf(source).length()
+                        : slot == ANOMALY ? String.valueOf(anomaly).length() : 11;
+            }
+            StringBuilder sb = new StringBuilder(capacity);
+            for (int i = 0; i < slots.length; i++) {
+                sb.append(parts[i]);
+                switch (slots[i]) {
+                    case SOURCE:
+                        sb.append(source);
+                        break;
+                    case ANOMALY:
+                        sb.append(anomaly);
+                        break;
+                    default:
+                        sb.append(count);
+                }
+            }
+            return sb.append(parts[slots.length]).toString();
+        }
+
+        private static int slot(String name, String text) {
+            switch (name) {
+                case "source":
+                    return SOURCE;
+                case "anomaly":
+                    return ANOMALY;
+                case "count":
+                    return COUNT;
+                default:
+                    throw new IllegalArgumentException("Unknown placeholder {" + name + "} in template: " + text);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.marketflow.strategy.util;
+
+import java.util.Arrays;
+
+/**
+ * Скалярные ядра: последовательные циклы, среднее и дисперсия за один проход (Welford)
+ */
+final class ScalarStatisticsKernel implements StatisticsKernel {
+
+    @Override
+    public double[] regressionSums(double[] values, int from, int to) {
+        double sumX = 0.0;
+        double sumY = 0.0;
+        double sumXY = 0.0;
+        double sumXX = 0.0;
+
+        for (int i = 0; i < to - from; i++) {
+            double x = i + 1; // Номер периода
+            double y = values[from + i];
+
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+        }
+        return new double[]{sumX, sumY, sumXY, sumXX};
+    }
+
+    @Override
+    public double[] moments(double[] values, int from, int to) {
+        double mean = 0.0;
+        double m2 = 0.0;
+        for (int i = from; i < to; i++) {
+            double delta = values[i] - mean;
+            mean += delta / (i - from + 1);
+            m2 += delta * (values[i] - mean);
+        }
+        return new double[]{mean, m2 / (to - from)};
+    }
+
+    @Override
+    public double[] describe(double[] values, int from, int to) {
+        // Welford: среднее и сумма квадратов отклонений без второго прохода
+        double mean = 0.0;
+        double m2 = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+            double delta = value - mean;
+            mean += delta / (i - from + 1);
+            m2 += delta * (value - mean);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return new double[]{mean, m2 / (to - from), min, max};
+    }
+
+    @Override
+    public int[] outside(double[] values, int from, int to, double lower, double upper) {
+        int[] indices = new int[8];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+            if (value < lower || value > upper) {
+                if (count == indices.length) {
+                    indices = Arrays.copyOf(indices, count * 2);
+                }
+                indices[count++] = i - from;
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
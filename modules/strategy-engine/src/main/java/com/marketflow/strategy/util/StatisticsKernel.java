@@ -0,0 +1,37 @@
+package com.marketflow.strategy.util;
+
+/**
+ * Вычислительные ядра {@link MetricsCalculator}: проходы по диапазону [from, to) примитивного массива.
+ * Скалярная и векторная реализации дают одинаковые индексы выбросов, а суммы и моменты
+ * совпадают в пределах погрешности округления (порядок сложения разный)
+ */
+public interface StatisticsKernel {
+
+    /**
+     * Суммы для регрессии по номерам периодов x = 1..n
+     * @return {Σx, Σy, Σxy, Σx²}
+     */
+    double[] regressionSums(double[] values, int from, int to);
+
+    /**
+     * Среднее и дисперсия генеральной совокупности
+     * @return {mean, variance}
+     */
+    double[] moments(double[] values, int from, int to);
+
+    /**
+     * Среднее, дисперсия, минимум и максимум
+     * @return {mean, variance, min, max}
+     */
+    double[] describe(double[] values, int from, int to);
+
+    /**
+     * Индексы значений вне [lower, upper] относительно from, по возрастанию
+     */
+    int[] outside(double[] values, int from, int to, double lower, double upper);
+
+    /**
+     * Название ядра для логов и бенчмарков
+     */
+    String name();
+}
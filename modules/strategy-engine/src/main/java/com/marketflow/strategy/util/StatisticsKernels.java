@@ -0,0 +1,75 @@
+package com.marketflow.strategy.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Выбор ядер {@link MetricsCalculator}. По умолчанию скалярные; векторные включаются флагом
+ * stats.vector.enabled (или системным свойством marketflow.stats.vector=true) и требуют запуска JVM
+ * с --add-modules jdk.incubator.vector. Без модуля остается скалярное ядро
+ */
+@Slf4j
+public final class StatisticsKernels {
+    public static final String VECTOR_PROPERTY = "marketflow.stats.vector";
+
+    private static final String VECTOR_KERNEL_CLASS = "com.marketflow.strategy.util.VectorStatisticsKernel";
+    private static final StatisticsKernel SCALAR = new ScalarStatisticsKernel();
+    private static volatile StatisticsKernel current = SCALAR;
+
+    static {
+        if (Boolean.getBoolean(VECTOR_PROPERTY)) {
+            setVectorEnabled(true);
+        }
+    }
+
+    private StatisticsKernels() {
+    }
+
+    /**
+     * Ядро, которое используют калькуляторы без явно заданного ядра
+     */
+    public static StatisticsKernel current() {
+        return current;
+    }
+
+    public static StatisticsKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Векторное ядро
+     * @throws IllegalStateException если модуль jdk.incubator.vector недоступен
+     */
+    public static StatisticsKernel vector() {
+        try {
+            // Класс грузится по имени: без модуля ошибка линковки возникает здесь, а не при загрузке калькулятора
+            StatisticsKernel kernel = (StatisticsKernel) Class.forName(VECTOR_KERNEL_CLASS)
+                    .getDeclaredConstructor().newInstance();
+            kernel.moments(new double[]{1, 2, 3}, 0, 3);
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException(
+                    "Vector API is not available, run the JVM with --add-modules jdk.incubator.vector", e);
+        }
+    }
+
+    /**
+     * Переключает ядро по умолчанию
+     * @param enabled включить векторное ядро
+     * @return true, если векторное ядро включено
+     */
+    public static synchronized boolean setVectorEnabled(boolean enabled) {
+        if (!enabled) {
+            current = SCALAR;
+            return false;
+        }
+        try {
+            current = vector();
+            log.info("Using {} statistics kernel", current.name());
+            return true;
+        } catch (IllegalStateException e) {
+            log.warn("{}; falling back to scalar statistics kernel", e.getMessage());
+            current = SCALAR;
+            return false;
+        }
+    }
+}
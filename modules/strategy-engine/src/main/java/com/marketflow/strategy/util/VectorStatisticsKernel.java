@@ -0,0 +1,162 @@
+package com.marketflow.strategy.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * SIMD-ядра на jdk.incubator.vector (JVM запускается с --add-modules jdk.incubator.vector).
+ * Суммы копятся по линиям вектора и сворачиваются в конце, поэтому отличаются от скалярных
+ * только порядком сложения. Среднее и дисперсия считаются двумя проходами вместо Welford.
+ * Загружается только через {@link StatisticsKernels}, чтобы без модуля работало скалярное ядро
+ */
+final class VectorStatisticsKernel implements StatisticsKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    // Номера периодов первых линий: 1, 2, ..., LANES
+    private static final double[] IOTA = new double[LANES];
+
+    static {
+        for (int lane = 0; lane < LANES; lane++) {
+            IOTA[lane] = lane + 1;
+        }
+    }
+
+    @Override
+    public double[] regressionSums(double[] values, int from, int to) {
+        int n = to - from;
+        int bound = from + SPECIES.loopBound(n);
+        DoubleVector x = DoubleVector.fromArray(SPECIES, IOTA, 0);
+        DoubleVector step = DoubleVector.broadcast(SPECIES, LANES);
+        DoubleVector sumY = DoubleVector.zero(SPECIES);
+        DoubleVector sumXY = DoubleVector.zero(SPECIES);
+
+        int i = from;
+        for (; i < bound; i += LANES) {
+            DoubleVector y = DoubleVector.fromArray(SPECIES, values, i);
+            sumY = sumY.add(y);
+            sumXY = y.fma(x, sumXY);
+            x = x.add(step);
+        }
+        double sy = sumY.reduceLanes(VectorOperators.ADD);
+        double sxy = sumXY.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            double y = values[i];
+            sy += y;
+            sxy += (i - from + 1) * y;
+        }
+
+        // Суммы номеров периодов - по формулам, без прохода
+        double sumX = n * (n + 1.0) / 2.0;
+        double sumXX = n * (n + 1.0) * (2.0 * n + 1.0) / 6.0;
+        return new double[]{sumX, sy, sxy, sumXX};
+    }
+
+    @Override
+    public double[] moments(double[] values, int from, int to) {
+        double mean = sum(values, from, to) / (to - from);
+        return new double[]{mean, squaredDeviations(values, from, to, mean) / (to - from)};
+    }
+
+    @Override
+    public double[] describe(double[] values, int from, int to) {
+        int bound = from + SPECIES.loopBound(to - from);
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        DoubleVector min = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        DoubleVector max = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+
+        int i = from;
+        for (; i < bound; i += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+            sum = sum.add(v);
+            min = min.min(v);
+            max = max.max(v);
+        }
+        double s = sum.reduceLanes(VectorOperators.ADD);
+        double mn = min.reduceLanes(VectorOperators.MIN);
+        double mx = max.reduceLanes(VectorOperators.MAX);
+        for (; i < to; i++) {
+            s += values[i];
+            mn = Math.min(mn, values[i]);
+            mx = Math.max(mx, values[i]);
+        }
+
+        double mean = s / (to - from);
+        return new double[]{mean, squaredDeviations(values, from, to, mean) / (to - from), mn, mx};
+    }
+
+    @Override
+    public int[] outside(double[] values, int from, int to, double lower, double upper) {
+        int bound = from + SPECIES.loopBound(to - from);
+        DoubleVector lowerBound = DoubleVector.broadcast(SPECIES, lower);
+        DoubleVector upperBound = DoubleVector.broadcast(SPECIES, upper);
+        int[] indices = new int[8];
+        int count = 0;
+
+        int i = from;
+        for (; i < bound; i += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+            // Выбросы редки: вектор проверяется сравнениями с anyTrue (интринсики JDK 17),
+            // и только в векторах с выбросами линии перебираются скалярно
+            if (v.lt(lowerBound).anyTrue() || upperBound.lt(v).anyTrue()) {
+                for (int lane = 0; lane < LANES; lane++) {
+                    double value = values[i + lane];
+                    if (value < lower || value > upper) {
+                        if (count == indices.length) {
+                            indices = Arrays.copyOf(indices, count * 2);
+                        }
+                        indices[count++] = i + lane - from;
+                    }
+                }
+            }
+        }
+        for (; i < to; i++) {
+            double value = values[i];
+            if (value < lower || value > upper) {
+                if (count == indices.length) {
+                    indices = Arrays.copyOf(indices, count * 2);
+                }
+                indices[count++] = i - from;
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    @Override
+    public String name() {
+        return "vector(" + LANES + "x" + Double.SIZE + ")";
+    }
+
+    private static double sum(double[] values, int from, int to) {
+        int bound = from + SPECIES.loopBound(to - from);
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (; i < bound; i += LANES) {
+            sum = sum.add(DoubleVector.fromArray(SPECIES, values, i));
+        }
+        double s = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            s += values[i];
+        }
+        return s;
+    }
+
+    private static double squaredDeviations(double[] values, int from, int to, double mean) {
+        int bound = from + SPECIES.loopBound(to - from);
+        DoubleVector center = DoubleVector.broadcast(SPECIES, mean);
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (; i < bound; i += LANES) {
+            DoubleVector delta = DoubleVector.fromArray(SPECIES, values, i).sub(center);
+            sum = delta.fma(delta, sum);
+        }
+        double s = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            double delta = values[i] - mean;
+            s += delta * delta;
+        }
+        return s;
+    }
+}
@@ -0,0 +1,56 @@
+-- Схема strategy-engine для H2: таблицы metrics, strategies, strategy_window_state и представление metrics_daily_summary
+-- в том виде, в котором их создают changelog'и collect-metrics и backend (Postgres).
+-- cost хранится как DOUBLE PRECISION, чтобы суммы совпадали с расчетом в памяти
+CREATE TABLE IF NOT EXISTS metrics (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    date DATE NOT NULL,
+    clicks INTEGER,
+    impressions INTEGER,
+    cost DOUBLE PRECISION,
+    source VARCHAR(50),
+    campaign_id VARCHAR(100)
+);
+
+CREATE INDEX IF NOT EXISTS idx_metrics_date ON metrics(date);
+
+CREATE OR REPLACE VIEW metrics_daily_summary AS
+SELECT
+    date,
+    SUM(clicks) AS total_clicks,
+    SUM(impressions) AS total_impressions,
+    SUM(cost) AS total_cost
+FROM metrics
+GROUP BY date;
+
+CREATE TABLE IF NOT EXISTS strategies (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name TEXT,
+    description TEXT,
+    source VARCHAR(50),
+    campaign_id VARCHAR(100),
+    generated_at TIMESTAMP,
+    recommendations TEXT,
+    status VARCHAR(20),
+    metrics_period INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS strategy_window_state (
+    source VARCHAR(50) NOT NULL,
+    campaign_id VARCHAR(100) NOT NULL,
+    window_start DATE NOT NULL,
+    window_end DATE NOT NULL,
+    origin_day DATE NOT NULL,
+    rebuilt_on DATE NOT NULL,
+    points INTEGER NOT NULL,
+    sum_x BIGINT NOT NULL,
+    sum_xx BIGINT NOT NULL,
+    sum_ctr DOUBLE PRECISION NOT NULL,
+    sum_x_ctr DOUBLE PRECISION NOT NULL,
+    sum_cpc DOUBLE PRECISION NOT NULL,
+    sum_x_cpc DOUBLE PRECISION NOT NULL,
+    clicks BIGINT NOT NULL,
+    impressions BIGINT NOT NULL,
+    cost DOUBLE PRECISION NOT NULL,
+    updated_at TIMESTAMP,
+    PRIMARY KEY (source, campaign_id)
+);
@@ -0,0 +1,57 @@
+package com.marketflow.strategy.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MetricsSnapshotTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @Test
+    public void testDictionaryEncodesRepeatedValuesOnce() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(30, DAY.minusDays(30), DAY);
+        for (int i = 0; i < 3000; i++) {
+            builder.add(DAY.plusDays(i / 1000), i % 2 == 0 ? "yandex" : "google", "c" + (i % 3), 1, 10, 0.5);
+        }
+        builder.add(DAY.plusDays(3), null, null, 0, 0, 0.0);
+
+        MetricsSnapshot snapshot = builder.build();
+
+        assertEquals(3001, snapshot.size());
+        assertEquals(3, snapshot.getSourceCount());
+        assertEquals(4, snapshot.getCampaignCount());
+        assertEquals("google", snapshot.getSource(2999));
+        assertEquals("c2", snapshot.getCampaignId(2999));
+        assertEquals(DAY.plusDays(2), snapshot.getDate(2999));
+        assertNull(snapshot.getSource(3000));
+        assertNull(snapshot.getCampaignId(3000));
+        assertEquals(30, snapshot.getPeriodDays());
+    }
+
+    @Test
+    public void testCtrAndCpcMatchMetricData() {
+        MetricsSnapshot snapshot = MetricsSnapshot.builder(1, DAY, DAY)
+                .add(DAY, "vk", "1", 25, 1000, 50.0)
+                .add(DAY, "vk", "2", 0, 0, 10.0)
+                .build();
+
+        MetricData metric = MetricData.builder().clicks(25).impressions(1000).cost(50.0).build();
+        assertEquals(metric.calculateCtr(), snapshot.getCtr(0), 1e-12);
+        assertEquals(metric.calculateCpc(), snapshot.getCpc(0), 1e-12);
+        assertEquals(0.0, snapshot.getCtr(1));
+        assertEquals(0.0, snapshot.getCpc(1));
+    }
+
+    @Test
+    public void testRejectsRowsOutOfDateOrder() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(1, DAY, DAY.plusDays(1))
+                .add(DAY.plusDays(1), "vk", "1", 1, 1, 1.0);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(DAY, "vk", "1", 1, 1, 1.0));
+    }
+}
@@ -0,0 +1,46 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.config.EngineConfig;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.model.StrategyResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConnectionPoolTest {
+
+    @Test
+    public void testServicesSharePooledConnections() {
+        EngineConfig config = new EngineConfig();
+        config.setDbUrl("jdbc:h2:mem:connection-pool-test;DB_CLOSE_DELAY=-1");
+        config.setDbUsername("sa");
+        config.setDbPassword("");
+        config.setDbPoolSize(2);
+
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            H2DatabaseService databaseService = new H2DatabaseService(config, pool.getDataSource());
+            LocalDate today = LocalDate.now();
+            MetricsSnapshot.Builder builder = MetricsSnapshot.builder(5, today.minusDays(4), today);
+            for (int day = 4; day >= 0; day--) {
+                builder.add(today.minusDays(day), "yandex", "1", 100, 2000, 300.0);
+            }
+            databaseService.insertMetrics(builder.build());
+
+            StrategyGenerationService strategyService = new StrategyGenerationService(databaseService);
+            StrategyResult saved = null;
+            for (int run = 0; run < 5; run++) {
+                saved = strategyService.generateStrategy("yandex", 5);
+            }
+
+            PoolMetrics metrics = pool.getMetrics();
+            // Схема, загрузка и 5 x (снимок + сохранение) - каждое обращение берет соединение из пула
+            assertEquals(12, metrics.getAcquiredCount());
+            assertTrue(metrics.getCreatedCount() <= 2, "physical connections: " + metrics.getCreatedCount());
+            assertEquals(0, metrics.getTimeoutCount());
+            assertEquals(5L, saved.getId());
+        }
+    }
+}
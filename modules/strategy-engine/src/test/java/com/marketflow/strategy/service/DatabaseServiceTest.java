@@ -0,0 +1,162 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.config.EngineConfig;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.model.StrategyResult;
+import com.marketflow.strategy.model.TrendWindowState;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatabaseServiceTest {
+
+    private static EngineConfig h2Config(String databaseName) {
+        EngineConfig config = new EngineConfig();
+        config.setDbUrl("jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1");
+        config.setDbUsername("sa");
+        config.setDbPassword("");
+        config.setDbBatchSize(500);
+        return config;
+    }
+
+    private static List<StrategyResult> strategies(int count) {
+        List<StrategyResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StrategyResult result = new StrategyResult();
+            result.setName("Strategy " + i);
+            result.setSource("yandex");
+            result.setCampaignId(String.valueOf(i));
+            result.setMetricsPeriod(30);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static Connection connect(EngineConfig config) throws SQLException {
+        return DriverManager.getConnection(config.getDbUrl(), config.getDbUsername(), config.getDbPassword());
+    }
+
+    private static long countStrategies(EngineConfig config) throws SQLException {
+        try (Connection conn = connect(config);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM strategies")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    public void testBatchAssignsIdsInOrder() throws SQLException {
+        EngineConfig config = h2Config("batch-ids-test");
+        DatabaseService databaseService = new H2DatabaseService(config);
+
+        // Три батча: 500 + 500 + 200
+        List<StrategyResult> saved = databaseService.saveStrategyResults(strategies(1200));
+
+        assertEquals(1200, countStrategies(config));
+        for (int i = 1; i < saved.size(); i++) {
+            assertEquals(saved.get(i - 1).getId() + 1, saved.get(i).getId());
+        }
+        try (Connection conn = connect(config);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT campaign_id FROM strategies WHERE id = " + saved.get(700).getId())) {
+            rs.next();
+            assertEquals("700", rs.getString(1));
+        }
+    }
+
+    @Test
+    public void testFailedBatchRollsBackEverything() throws SQLException {
+        EngineConfig config = h2Config("batch-rollback-test");
+        DatabaseService databaseService = new H2DatabaseService(config);
+
+        List<StrategyResult> results = strategies(800);
+        // Ошибка во втором батче: campaign_id длиннее VARCHAR(100)
+        results.get(650).setCampaignId("x".repeat(200));
+
+        assertThrows(RuntimeException.class, () -> databaseService.saveStrategyResults(results));
+        assertEquals(0, countStrategies(config));
+        assertNull(results.get(0).getId());
+    }
+
+    @Test
+    public void testWindowStateRoundTrip() {
+        DatabaseService databaseService = new H2DatabaseService(h2Config("window-state-test"));
+        TrendWindowState overall = new TrendWindowState(null, null);
+        TrendWindowState campaign = new TrendWindowState("yandex", "1");
+        for (TrendWindowState state : Arrays.asList(overall, campaign)) {
+            state.setWindowStart(LocalDate.of(2025, 3, 1));
+            state.setWindowEnd(LocalDate.of(2025, 3, 30));
+            state.setOriginDay(LocalDate.of(2025, 3, 1));
+            state.setRebuiltOn(LocalDate.of(2025, 3, 31));
+            state.addDay(0, 100, 2000, 300.5);
+            state.addDay(1, 120, 2100, 310.25);
+        }
+
+        databaseService.replaceWindowStates(Arrays.asList(overall, campaign));
+        databaseService.replaceWindowStates(Arrays.asList(overall, campaign));
+        List<TrendWindowState> loaded = databaseService.loadWindowStates();
+
+        // Повторная замена не дублирует строки, пустые ключи возвращаются как null
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.contains(overall));
+        assertTrue(loaded.contains(campaign));
+    }
+
+    @Test
+    public void testCursorReusesRowAndReleasesConnection() {
+        EngineConfig config = h2Config("metrics-cursor-test");
+        config.setDbPoolSize(1);
+        config.setDbPoolConnectionTimeoutMs(1000);
+        config.setDbFetchSize(3);
+        LocalDate today = LocalDate.now();
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(9, today.minusDays(9), today);
+        for (int day = 9; day >= 0; day--) {
+            builder.add(today.minusDays(day), "yandex", "1", 10 + day, 1000, 5.0 * day);
+            builder.add(today.minusDays(day), day == 3 ? null : "vk", null, 20, 500, 7.5);
+        }
+
+        // Пул на одно соединение: незакрытый курсор оставил бы следующие запросы без соединения
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            H2DatabaseService databaseService = new H2DatabaseService(config, pool.getDataSource());
+            databaseService.insertMetrics(builder.build());
+
+            Set<MetricsCursor> rows = Collections.newSetFromMap(new IdentityHashMap<>());
+            long clicks;
+            try (Stream<MetricsCursor> stream =
+                         databaseService.openMetricsCursor(today.minusDays(4), today).stream()) {
+                clicks = stream.peek(rows::add).mapToLong(MetricsCursor::getClicks).sum();
+            }
+            assertEquals(1, rows.size());
+            assertEquals(10 + 11 + 12 + 13 + 14 + 5 * 20, clicks);
+
+            // Закрытие до конца результата тоже возвращает соединение
+            try (MetricsCursor cursor = databaseService.openMetricsCursor(today.minusDays(9), today)) {
+                assertTrue(cursor.next());
+                assertEquals(today.minusDays(9), cursor.getDate());
+                assertEquals(cursor.getClicks() * 100.0 / cursor.getImpressions(), cursor.getCtr(), 1e-12);
+            }
+
+            assertEquals(20, databaseService.loadMetricsSnapshot(9).size());
+            assertEquals(18, databaseService.getMetricsForPeriod(8).size());
+            assertEquals(0, pool.getMetrics().getTimeoutCount());
+        }
+    }
+}
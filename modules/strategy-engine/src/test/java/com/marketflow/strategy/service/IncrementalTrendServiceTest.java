@@ -0,0 +1,140 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.model.TrendWindowState;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class IncrementalTrendServiceTest {
+
+    private static final LocalDate END = LocalDate.of(2025, 3, 31);
+    private static final int WINDOW = 30;
+
+    /**
+     * 60 дней метрик: два источника по две кампании и строка уровня платформы без кампании
+     */
+    private static MetricsSnapshot metrics() {
+        return metrics(null);
+    }
+
+    /**
+     * @param lateDay день, в который задним числом загружена строка новой кампании vk, или null
+     */
+    private static MetricsSnapshot metrics(LocalDate lateDay) {
+        LocalDate start = END.minusDays(59);
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(59, start, END);
+        for (int day = 0; day < 60; day++) {
+            LocalDate date = start.plusDays(day);
+            builder.add(date, "yandex", "1", 100 + day * 3, 2000 + (day % 7) * 50, 300.0 + day);
+            builder.add(date, "yandex", "2", 40 + day % 5, 1000, 120.5 + (day % 3) * 10);
+            builder.add(date, "yandex", null, 10, 500, 30.0);
+            builder.add(date, "google", "3", 20 + day % 11, 1500 - day * 5, 410.75 - day);
+            builder.add(date, "google", "4", 60, 3000 + day * 20, 900.0);
+            if (date.equals(lateDay)) {
+                builder.add(date, "vk", "5", 70, 4000, 650.0);
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testDailyRunsMatchFullRecompute() {
+        MetricsSnapshot metrics = metrics();
+        InMemoryMetricsStore store = new InMemoryMetricsStore(metrics);
+        IncrementalTrendService trendService = new IncrementalTrendService(store, store, 100);
+        MetricsAnalysisService analysisService = new MetricsAnalysisService(store);
+
+        for (LocalDate today = END.minusDays(10); !today.isAfter(END); today = today.plusDays(1)) {
+            List<TrendWindowState> windows = trendService.update(WINDOW, today);
+            MetricsSnapshot window = metrics.forPeriod(WINDOW, today.minusDays(WINDOW), today);
+
+            Map<String, Double> efficiency = trendService.sourceEfficiency(windows);
+            Map<String, Double> expectedEfficiency = analysisService.analyzeSourceEfficiency(window);
+            assertEquals(expectedEfficiency.keySet(), efficiency.keySet());
+            expectedEfficiency.forEach((source, value) -> assertEquals(value, efficiency.get(source), 1e-9));
+
+            Map<String, Double> trends = trendService.metricTrends(windows);
+            Map<String, Double> expectedTrends = analysisService.analyzeMetricTrends(window);
+            assertEquals(expectedTrends.get("ctr_trend"), trends.get("ctr_trend"), 1e-9);
+            assertEquals(expectedTrends.get("cpc_trend"), trends.get("cpc_trend"), 1e-9);
+
+            for (CampaignAnalysis campaign : analysisService.analyzeCampaigns(window, 1)) {
+                TrendWindowState state = windows.stream()
+                        .filter(w -> campaign.getSource().equals(w.getSource())
+                                && campaign.getCampaignId().equals(w.getCampaignId()))
+                        .findFirst().orElseThrow();
+                assertEquals(campaign.getDays(), state.getPoints());
+                assertEquals(campaign.getClicks(), state.getClicks());
+                assertEquals(campaign.getCtrTrend(), state.getCtrTrend(), 1e-9);
+                assertEquals(campaign.getCpcTrend(), state.getCpcTrend(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testLateRowInEvictedDayForcesRebuild() {
+        LocalDate today = END.minusDays(5);
+        InMemoryMetricsStore before = new InMemoryMetricsStore(metrics());
+        new IncrementalTrendService(before, before, 100).update(WINDOW, today);
+
+        // Строка первого дня окна загружена после его добавления и вытесняется следующим запуском
+        MetricsSnapshot metrics = metrics(today.minusDays(WINDOW));
+        InMemoryMetricsStore store = spy(new InMemoryMetricsStore(metrics));
+        store.replaceWindowStates(before.loadWindowStates());
+        clearInvocations(store);
+
+        IncrementalTrendService trendService = new IncrementalTrendService(store, store, 100);
+        LocalDate next = today.plusDays(1);
+        List<TrendWindowState> windows = trendService.update(WINDOW, next);
+
+        // Вычитание недобавленной строки дало бы окну vk -1 день: вместо этого окно пересчитано
+        verify(store).scanMetrics(eq(next.minusDays(WINDOW)), eq(today), any());
+        assertEquals(next, store.loadWindowStates().get(0).getRebuiltOn());
+        assertTrue(windows.stream().allMatch(w -> w.getPoints() > 0 && !"vk".equals(w.getSource())));
+
+        MetricsSnapshot window = metrics.forPeriod(WINDOW, next.minusDays(WINDOW), next);
+        Map<String, Double> trends = trendService.metricTrends(windows);
+        Map<String, Double> expectedTrends = new MetricsAnalysisService(store).analyzeMetricTrends(window);
+        assertEquals(expectedTrends.get("ctr_trend"), trends.get("ctr_trend"), 1e-9);
+        assertEquals(expectedTrends.get("cpc_trend"), trends.get("cpc_trend"), 1e-9);
+    }
+
+    @Test
+    public void testRunReadsOnlyEvictedAndNewDays() {
+        InMemoryMetricsStore store = spy(new InMemoryMetricsStore(metrics()));
+        IncrementalTrendService trendService = new IncrementalTrendService(store, store, 3);
+        LocalDate today = END.minusDays(5);
+
+        // Первый запуск: окно строится целиком
+        trendService.update(WINDOW, today);
+        verify(store).scanMetrics(eq(today.minusDays(WINDOW)), eq(today.minusDays(1)), any());
+        clearInvocations(store);
+
+        // Следующий день: вытесняется самый старый день, добавляются вчерашний и текущий
+        LocalDate next = today.plusDays(1);
+        trendService.update(WINDOW, next);
+        verify(store).scanMetrics(eq(today.minusDays(WINDOW)), eq(today.minusDays(WINDOW)), any());
+        verify(store).scanMetrics(eq(today), eq(today), any());
+        verify(store).scanMetrics(eq(next), eq(next), any());
+        verify(store, times(3)).scanMetrics(any(LocalDate.class), any(LocalDate.class), any());
+        clearInvocations(store);
+
+        // Через rebuildIntervalDays дней после построения окно пересчитывается целиком
+        LocalDate rebuild = today.plusDays(3);
+        trendService.update(WINDOW, rebuild);
+        verify(store).scanMetrics(eq(rebuild.minusDays(WINDOW)), eq(rebuild.minusDays(1)), any());
+    }
+}
@@ -0,0 +1,208 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.AnalysisContext;
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.DailySeries;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.util.MetricsCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class MetricsAnalysisServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+    @Test
+    public void testTrendsAggregateRowsPerDay() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(5, START, START.plusDays(4));
+        for (int day = 0; day < 5; day++) {
+            // Две строки на день: дневной CTR растет, CPC постоянный
+            builder.add(START.plusDays(day), "yandex", "1", 10 + day, 1000, 10.0 + day);
+            builder.add(START.plusDays(day), "google", "2", 10 + day, 1000, 10.0 + day);
+        }
+        DatabaseService databaseService = mock(DatabaseService.class);
+
+        Map<String, Double> trends = new MetricsAnalysisService(databaseService).analyzeMetricTrends(builder.build());
+
+        assertTrue(trends.get("ctr_trend") > 0);
+        assertEquals(0.0, trends.get("cpc_trend"), 1e-12);
+        verifyNoInteractions(databaseService);
+    }
+
+    @Test
+    public void testAnomaliesReportedPerSource() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(10, START, START.plusDays(9));
+        for (int day = 0; day < 10; day++) {
+            int clicks = day == 7 ? 200 : 20;
+            builder.add(START.plusDays(day), "vk", "1", clicks, 1000, clicks * 5.0);
+            builder.add(START.plusDays(day), null, "2", 20, 1000, 100.0);
+        }
+
+        List<String> anomalies = new MetricsAnalysisService(mock(DatabaseService.class))
+                .detectAnomalies(builder.build());
+
+        assertEquals(1, anomalies.size());
+        assertEquals(String.format("Аномально высокий CTR (%.2f%%) для источника vk на дату 2025-03-08", 20.0),
+                anomalies.get(0));
+    }
+
+    @Test
+    public void testEfficiencyMatchesAggregatedFormula() {
+        MetricsSnapshot snapshot = MetricsSnapshot.builder(2, START, START.plusDays(1))
+                .add(START, "yandex", "1", 300, 10000, 1500.0)
+                .add(START.plusDays(1), "yandex", "2", 200, 5000, 500.0)
+                .add(START.plusDays(1), "vk", "3", 0, 100, 0.0)
+                .build();
+        MetricsCalculator calculator = new MetricsCalculator();
+
+        AnalysisContext context = new MetricsAnalysisService(mock(DatabaseService.class)).analyze(snapshot);
+
+        // yandex: 500 кликов, 15000 показов, затраты 2000
+        double expected = calculator.calculateEfficiencyRating(500 * 100.0 / 15000, 2000.0 / 500, 500, 2000.0);
+        assertEquals(expected, context.getSourceEfficiency().get("yandex"), 1e-12);
+        assertEquals(0.0, context.getSourceEfficiency().get("vk"));
+        assertEquals(2, context.getPeriodDays());
+        assertEquals(2, context.getTrends().size());
+    }
+
+    @Test
+    public void testCampaignsGroupedInSinglePass() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(10, START, START.plusDays(9));
+        for (int day = 0; day < 10; day++) {
+            LocalDate date = START.plusDays(day);
+            builder.add(date, "yandex", "a", 10 + day, 1000, 20.0);
+            builder.add(date, "google", "a", day == 4 ? 200 : 20, 1000, 40.0);
+            builder.add(date, "google", null, 50, 1000, 10.0);
+            if (day < 3) {
+                builder.add(date, "vk", "short", 5, 100, 1.0);
+            }
+        }
+
+        List<CampaignAnalysis> campaigns = new MetricsAnalysisService(mock(DatabaseService.class))
+                .analyzeCampaigns(builder.build(), 7);
+
+        // Одинаковый campaign_id у разных источников - разные кампании; короткая и платформенная пропущены
+        assertEquals(2, campaigns.size());
+        CampaignAnalysis yandex = campaigns.get(0);
+        assertEquals("yandex", yandex.getSource());
+        assertEquals("a", yandex.getCampaignId());
+        assertEquals(10, yandex.getDays());
+        assertEquals(145, yandex.getClicks());
+        assertEquals(200.0, yandex.getCost(), 1e-9);
+        assertTrue(yandex.getCtrTrend() > 0);
+        assertTrue(yandex.getAnomalies().isEmpty());
+
+        CampaignAnalysis google = campaigns.get(1);
+        assertEquals("google", google.getSource());
+        assertTrue(google.getAnomalies().get(0).contains("для кампании a источника google на дату 2025-03-05"));
+    }
+
+    @Test
+    public void testTrendsFromDatabaseAggregatesMatchSnapshot() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(6, START, START.plusDays(5));
+        DailySeries.Builder daily = DailySeries.builder();
+        for (int day = 0; day < 6; day++) {
+            LocalDate date = START.plusDays(day);
+            builder.add(date, "yandex", "1", 30 + day, 1000, 60.0 + day);
+            builder.add(date, "vk", "2", 10, 500 + day * 50, 25.5);
+            daily.add((int) date.toEpochDay(), 40 + day, 1500 + day * 50, 85.5 + day);
+        }
+        DatabaseService databaseService = mock(DatabaseService.class);
+        when(databaseService.loadDailyTotals(6)).thenReturn(daily.build());
+        MetricsAnalysisService service = new MetricsAnalysisService(databaseService);
+
+        Map<String, Double> fromDatabase = service.analyzeMetricTrends(6);
+        Map<String, Double> fromSnapshot = service.analyzeMetricTrends(builder.build());
+
+        assertEquals(fromSnapshot, fromDatabase);
+        verify(databaseService, never()).loadMetricsSnapshot(anyInt());
+    }
+
+    @Test
+    public void testStreamingAnalysisMatchesSnapshot() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(20, START, START.plusDays(19));
+        for (int day = 0; day < 20; day++) {
+            int clicks = day == 9 ? 250 : 20 + day % 4;
+            builder.add(START.plusDays(day), "google", "1", clicks, 1000 + day * 10, clicks * 3.0);
+        }
+        MetricsSnapshot snapshot = builder.build();
+
+        DatabaseService databaseService = mock(DatabaseService.class);
+        when(databaseService.loadDailyTotals(20)).thenReturn(DailySeries.fromSnapshot(snapshot));
+        when(databaseService.getAggregatedMetricsBySource(20)).thenReturn(Map.of("google", Map.of(
+                "ctr", 1.0, "cpc", 3.0, "clicks", 450.0, "cost", 1350.0)));
+        doAnswer(invocation -> {
+            List<MetricRowHandler> passes = invocation.getArgument(1);
+            for (MetricRowHandler pass : passes) {
+                for (int row = 0; row < snapshot.size(); row++) {
+                    pass.handle(snapshot.getEpochDay(row), snapshot.getSource(row), snapshot.getCampaignId(row),
+                            snapshot.getClicks(row), snapshot.getImpressions(row), snapshot.getCost(row));
+                }
+            }
+            return null;
+        }).when(databaseService).scanMetrics(anyInt(), anyList());
+        MetricsAnalysisService service = new MetricsAnalysisService(databaseService);
+
+        AnalysisContext streamed = service.analyze(20);
+        AnalysisContext expected = service.analyze(snapshot);
+
+        // Снимок не загружается: тренды из дневных итогов БД, аномалии потоковым детектором
+        assertEquals(expected.getTrends(), streamed.getTrends());
+        assertEquals(expected.getAnomalies(), streamed.getAnomalies());
+        assertEquals(1, streamed.getAnomalies().size());
+        assertEquals(20, streamed.getPeriodDays());
+        assertTrue(streamed.getSourceEfficiency().containsKey("google"));
+        verify(databaseService, never()).loadMetricsSnapshot(anyInt());
+    }
+
+    @Test
+    public void testParallelAnalysisMatchesSequential() {
+        Random random = new Random(17);
+        String[] sources = {"yandex", "google", "vk", null, "unknown"};
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(400, START, START.plusDays(399));
+        for (int day = 0; day < 400; day++) {
+            // Разное количество строк в день, дробные затраты и редкие всплески
+            for (int i = random.nextInt(12); i >= 0; i--) {
+                int clicks = random.nextInt(50) + (random.nextInt(40) == 0 ? 400 : 0);
+                builder.add(START.plusDays(day), sources[random.nextInt(sources.length)],
+                        random.nextInt(6) == 0 ? null : String.valueOf(random.nextInt(30)),
+                        clicks, 1000 + random.nextInt(5000), clicks * (0.5 + random.nextDouble() * 3));
+            }
+        }
+        MetricsSnapshot snapshot = builder.build();
+        MetricsAnalysisService sequential = new MetricsAnalysisService(mock(DatabaseService.class));
+        AnalysisContext expected = sequential.analyze(snapshot);
+        List<CampaignAnalysis> expectedCampaigns = sequential.analyzeCampaigns(snapshot, 5);
+        assertFalse(expected.getAnomalies().isEmpty());
+
+        for (int chunkRows : new int[]{1, 37, 500, 100_000}) {
+            try (AnalysisPool pool = new AnalysisPool(4, chunkRows)) {
+                int[] bounds = pool.chunkBounds(snapshot);
+                for (int i = 1; i < bounds.length - 1; i++) {
+                    assertTrue(snapshot.getEpochDay(bounds[i]) != snapshot.getEpochDay(bounds[i] - 1));
+                }
+
+                MetricsAnalysisService parallel = new MetricsAnalysisService(mock(DatabaseService.class), pool);
+                // Сравнение без допусков: суммы и порядок аномалий совпадают бит в бит
+                assertEquals(expected, parallel.analyze(snapshot), "chunkRows=" + chunkRows);
+                assertEquals(expectedCampaigns, parallel.analyzeCampaigns(snapshot, 5), "chunkRows=" + chunkRows);
+            }
+        }
+    }
+}
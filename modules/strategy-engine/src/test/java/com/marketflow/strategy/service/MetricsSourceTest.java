@@ -0,0 +1,108 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.DailySeries;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.model.StrategyResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class MetricsSourceTest {
+
+    private static final int DAYS_BACK = 10;
+
+    /**
+     * 15 дней метрик до сегодняшнего дня: первые дни выходят за период запроса, одна строка без источника
+     */
+    private static MetricsSnapshot metrics() {
+        LocalDate today = LocalDate.now();
+        LocalDate start = today.minusDays(14);
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(14, start, today);
+        for (int day = 0; day < 15; day++) {
+            LocalDate date = start.plusDays(day);
+            builder.add(date, "yandex", "1", 100 + day, 2000, 300.25 + day);
+            builder.add(date, "yandex", "2", 40, 1000 + day * 10, 120.5);
+            builder.add(date, "google", "3", 20 + day % 3, 1500, 410.75);
+            if (day == 12) {
+                builder.add(date, null, null, 5, 100, 10.0);
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testH2AndInMemorySourcesAgree() {
+        MetricsSnapshot metrics = metrics();
+        InMemoryMetricsStore memory = new InMemoryMetricsStore(metrics);
+        H2DatabaseService h2 = H2DatabaseService.inMemory("metrics-source-test");
+        h2.insertMetrics(metrics);
+
+        MetricsSnapshot fromMemory = memory.loadMetricsSnapshot(DAYS_BACK);
+        MetricsSnapshot fromH2 = h2.loadMetricsSnapshot(DAYS_BACK);
+        assertEquals(34, fromMemory.size());
+        assertEquals(fromH2.size(), fromMemory.size());
+        assertEquals(fromH2.getSourceCount(), fromMemory.getSourceCount());
+        assertEquals(fromH2.getStartDate(), fromMemory.getStartDate());
+
+        assertSeriesEquals(h2.loadDailyTotals(DAYS_BACK), memory.loadDailyTotals(DAYS_BACK));
+
+        Map<String, DailySeries> bySourceH2 = h2.loadDailyTotalsBySource(DAYS_BACK);
+        Map<String, DailySeries> bySourceMemory = memory.loadDailyTotalsBySource(DAYS_BACK);
+        assertEquals(new ArrayList<>(bySourceH2.keySet()), new ArrayList<>(bySourceMemory.keySet()));
+        bySourceH2.forEach((source, series) -> assertSeriesEquals(series, bySourceMemory.get(source)));
+
+        Map<String, Map<String, Double>> aggregatedH2 = h2.getAggregatedMetricsBySource(DAYS_BACK);
+        Map<String, Map<String, Double>> aggregatedMemory = memory.getAggregatedMetricsBySource(DAYS_BACK);
+        assertEquals(aggregatedH2.keySet(), aggregatedMemory.keySet());
+        aggregatedH2.forEach((source, values) -> values.forEach((metric, value) ->
+                assertEquals(value, aggregatedMemory.get(source).get(metric), 1e-9, source + " " + metric)));
+
+        // Потоковый анализ видит одни и те же строки в обоих источниках
+        assertEquals(new MetricsAnalysisService(h2).detectAnomalies(DAYS_BACK),
+                new MetricsAnalysisService(memory).detectAnomalies(DAYS_BACK));
+        assertEquals(h2.getMetricsForPeriod(DAYS_BACK).size(), memory.getMetricsForPeriod(DAYS_BACK).size());
+    }
+
+    @Test
+    public void testStrategySinksAssignIds() {
+        InMemoryMetricsStore memory = new InMemoryMetricsStore(metrics());
+        H2DatabaseService h2 = H2DatabaseService.inMemory("strategy-sink-test");
+
+        for (StrategySink sink : Arrays.<StrategySink>asList(memory, h2)) {
+            StrategyResult single = sink.saveStrategyResult(strategy("yandex", null));
+            List<StrategyResult> batch = sink.saveStrategyResults(
+                    Arrays.asList(strategy("yandex", "1"), strategy("google", "3")));
+
+            assertNotNull(single.getId());
+            assertEquals(single.getId() + 1, batch.get(0).getId());
+            assertEquals(single.getId() + 2, batch.get(1).getId());
+        }
+        assertEquals(3, memory.getSavedStrategies().size());
+    }
+
+    private static StrategyResult strategy(String source, String campaignId) {
+        StrategyResult result = new StrategyResult();
+        result.setName("Strategy " + source);
+        result.setSource(source);
+        result.setCampaignId(campaignId);
+        result.setMetricsPeriod(DAYS_BACK);
+        return result;
+    }
+
+    private static void assertSeriesEquals(DailySeries expected, DailySeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int day = 0; day < expected.size(); day++) {
+            assertEquals(expected.getEpochDay(day), actual.getEpochDay(day));
+            assertEquals(expected.getClicks(day), actual.getClicks(day));
+            assertEquals(expected.getImpressions(day), actual.getImpressions(day));
+            assertEquals(expected.getCost(day), actual.getCost(day), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.StrategyResult;
+import com.marketflow.strategy.service.StrategyGenerationRunner.GenerationReport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StrategyGenerationRunnerTest {
+
+    @Test
+    public void testRunsTasksInParallelAndKeepsOrder() {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        try (StrategyGenerationRunner runner = new StrategyGenerationRunner(3, 5000)) {
+            GenerationReport report = runner.run(Arrays.asList("yandex", "google", "vk"), source -> {
+                allStarted.countDown();
+                try {
+                    // Задачи завершаются только если все три выполняются одновременно
+                    assertTrue(allStarted.await(2, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return StrategyResult.builder().source(source).build();
+            });
+
+            assertEquals(Arrays.asList("yandex", "google", "vk"), new ArrayList<>(report.getResults().keySet()));
+            assertTrue(report.getFailures().isEmpty());
+        }
+    }
+
+    @Test
+    public void testCollectsFailuresAndTimeouts() {
+        try (StrategyGenerationRunner runner = new StrategyGenerationRunner(2, 200)) {
+            long start = System.nanoTime();
+            GenerationReport report = runner.run(Arrays.asList("ok", "broken", "slow", "after"), source -> {
+                if (source.equals("broken")) {
+                    throw new IllegalStateException("no data");
+                }
+                if (source.equals("slow")) {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException("interrupted");
+                    }
+                }
+                return StrategyResult.builder().source(source).build();
+            });
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(2, report.getResults().size());
+            assertTrue(report.getResults().containsKey("ok"));
+            assertTrue(report.getResults().containsKey("after"));
+            assertTrue(report.getFailures().get("broken").contains("no data"));
+            assertTrue(report.getFailures().get("slow").contains("timeout"));
+            assertFalse(report.allFailed());
+            assertTrue(elapsedMs < 5000, "slow task must not hold the run: " + elapsedMs + " ms");
+        }
+    }
+
+    @Test
+    public void testEmptyRunIsNotFailure() {
+        try (StrategyGenerationRunner runner = new StrategyGenerationRunner(1, 1000)) {
+            assertFalse(runner.run(Collections.emptyList(), source -> null).allFailed());
+        }
+    }
+
+    @Test
+    public void testRejectsNonPositiveParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new StrategyGenerationRunner(0, 1000));
+    }
+}
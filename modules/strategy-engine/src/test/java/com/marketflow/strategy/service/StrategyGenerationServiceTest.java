@@ -0,0 +1,155 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.AnalysisContext;
+import com.marketflow.strategy.model.CampaignAnalysis;
+import com.marketflow.strategy.model.MetricsSnapshot;
+import com.marketflow.strategy.model.StrategyResult;
+import com.marketflow.strategy.model.StrategyType;
+import com.marketflow.strategy.service.StrategyGenerationRunner.GenerationReport;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StrategyGenerationServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+    @Test
+    public void testSharedContextServesAllSources() {
+        DatabaseService databaseService = mock(DatabaseService.class);
+        when(databaseService.saveStrategyResult(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        StrategyGenerationService service = new StrategyGenerationService(databaseService);
+
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(5, START, START.plusDays(4));
+        for (int day = 0; day < 5; day++) {
+            builder.add(START.plusDays(day), "yandex", "1", 100 + day * 10, 2000, 300.0);
+            builder.add(START.plusDays(day), "google", "2", 20, 2000, 900.0);
+        }
+        AnalysisContext context = service.analyze(builder.build());
+
+        StrategyResult yandex = service.generateStrategy("yandex", context);
+        StrategyResult google = service.generateStrategy("google", context);
+
+        // Результат по источнику совпадает с генерацией по снимку без общего контекста
+        StrategyResult single = service.generateStrategy("yandex", builder.build());
+        assertEquals(single.getStrategyType(), yandex.getStrategyType());
+        assertEquals(single.getConfidenceScore(), yandex.getConfidenceScore());
+        assertEquals(single.getRecommendations(), yandex.getRecommendations());
+        assertEquals(single.getMetrics(), yandex.getMetrics());
+        assertEquals(5, google.getMetricsPeriod());
+        assertFalse(google.getRecommendations().isEmpty());
+
+        verify(databaseService, never()).loadMetricsSnapshot(anyInt());
+        verify(databaseService, never()).getAggregatedMetricsBySource(anyInt());
+        verify(databaseService, times(3)).saveStrategyResult(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCampaignStrategiesSavedInOneBatch() {
+        DatabaseService databaseService = mock(DatabaseService.class);
+        when(databaseService.saveStrategyResults(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        StrategyGenerationService service = new StrategyGenerationService(databaseService);
+
+        List<CampaignAnalysis> campaigns = Arrays.asList(
+                campaign("yandex", "1", 0.8, 0.2),
+                campaign("vk", "2", 0.1, 0.0));
+
+        List<StrategyResult> results = service.generateCampaignStrategies(campaigns, 30);
+
+        assertEquals(2, results.size());
+        assertEquals("1", results.get(0).getCampaignId());
+        assertEquals(StrategyType.REACH_EXPANSION, results.get(0).getStrategyType());
+        assertEquals(StrategyType.CONVERSION_OPTIMIZATION, results.get(1).getStrategyType());
+        assertEquals(30, results.get(1).getMetricsPeriod());
+
+        ArgumentCaptor<List<StrategyResult>> saved = ArgumentCaptor.forClass(List.class);
+        verify(databaseService, times(1)).saveStrategyResults(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        verify(databaseService, never()).saveStrategyResult(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTimedOutSourceIsNotSaved() {
+        StrategySink sink = mock(StrategySink.class);
+        when(sink.saveStrategyResults(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        StrategyGenerationService service = new StrategyGenerationService(mock(MetricsSource.class), sink);
+
+        // Эффективность "slow" читается дольше таймаута задачи; прерывание генерация не замечает
+        Map<String, Double> efficiency = new HashMap<String, Double>() {
+            @Override
+            public Double getOrDefault(Object key, Double defaultValue) {
+                if ("slow".equals(key)) {
+                    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(600);
+                    while (System.nanoTime() < until) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return super.getOrDefault(key, defaultValue);
+            }
+        };
+        efficiency.put("yandex", 0.5);
+        efficiency.put("slow", 0.5);
+        AnalysisContext context = AnalysisContext.builder()
+                .periodDays(7)
+                .sourceEfficiency(efficiency)
+                .trends(new HashMap<>())
+                .anomalies(Collections.emptyList())
+                .build();
+
+        try (StrategyGenerationRunner runner = new StrategyGenerationRunner(2, 200)) {
+            GenerationReport report = service.generateStrategies(Arrays.asList("yandex", "slow"), context, runner);
+            // Генерация задач ничего не сохраняет, даже после истечения таймаута
+            verify(sink, never()).saveStrategyResult(any());
+            verify(sink, never()).saveStrategyResults(any());
+            assertTrue(report.getFailures().get("slow").contains("timeout"));
+
+            service.saveStrategies(report);
+
+            // Дожидаемся завершения просроченной задачи: она не должна дописать свою стратегию
+            Thread.sleep(800);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ArgumentCaptor<List<StrategyResult>> saved = ArgumentCaptor.forClass(List.class);
+        verify(sink, times(1)).saveStrategyResults(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        assertEquals("yandex", saved.getValue().get(0).getSource());
+        verify(sink, never()).saveStrategyResult(any());
+    }
+
+    private static CampaignAnalysis campaign(String source, String campaignId, double efficiency, double ctrTrend) {
+        return CampaignAnalysis.builder()
+                .source(source)
+                .campaignId(campaignId)
+                .days(30)
+                .clicks(1000)
+                .impressions(50000)
+                .cost(5000.0)
+                .efficiency(efficiency)
+                .ctrTrend(ctrTrend)
+                .cpcTrend(0.0)
+                .anomalies(Collections.emptyList())
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.marketflow.strategy.service;
+
+import com.marketflow.strategy.model.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class StreamingAnomalyDetectorTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+    @Test
+    public void testStreamingMatchesInMemoryDetection() {
+        MetricsSnapshot.Builder builder = MetricsSnapshot.builder(40, START, START.plusDays(39));
+        for (int day = 0; day < 40; day++) {
+            LocalDate date = START.plusDays(day);
+            int clicks = day == 12 ? 300 : 20 + day % 5;
+            builder.add(date, "yandex", "1", clicks, 1000, day == 30 ? 900.0 : clicks * 4.0);
+            builder.add(date, null, "2", 10 + day % 3, 800, 30.0);
+        }
+        MetricsSnapshot snapshot = builder.build();
+
+        DatabaseService databaseService = mock(DatabaseService.class);
+        doAnswer(invocation -> {
+            List<MetricRowHandler> passes = invocation.getArgument(1);
+            for (MetricRowHandler pass : passes) {
+                for (int row = 0; row < snapshot.size(); row++) {
+                    pass.handle(snapshot.getEpochDay(row), snapshot.getSource(row), snapshot.getCampaignId(row),
+                            snapshot.getClicks(row), snapshot.getImpressions(row), snapshot.getCost(row));
+                }
+            }
+            return null;
+        }).when(databaseService).scanMetrics(anyInt(), anyList());
+        MetricsAnalysisService service = new MetricsAnalysisService(databaseService);
+
+        List<String> streamed = service.detectAnomalies(40);
+
+        assertEquals(service.detectAnomalies(snapshot), streamed);
+        assertEquals(2, streamed.size());
+    }
+
+    @Test
+    public void testSourcesWithFewRowsAreNotChecked() {
+        StreamingAnomalyDetector detector = new StreamingAnomalyDetector();
+        int[] clicks = {10, 10, 500};
+        for (int c : clicks) {
+            detector.observe("vk", c, 1000, 50.0);
+        }
+        for (int i = 0; i < clicks.length; i++) {
+            detector.check(i, "vk", clicks[i], 1000, 50.0);
+        }
+
+        assertEquals(0, detector.getAnomalies().size());
+    }
+}
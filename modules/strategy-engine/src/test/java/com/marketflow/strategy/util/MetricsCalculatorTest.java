@@ -0,0 +1,129 @@
+package com.marketflow.strategy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsCalculatorTest {
+
+    private final MetricsCalculator calculator = new MetricsCalculator();
+
+    @Test
+    public void testOutliersMatchSortBasedQuartiles() {
+        Random random = new Random(7);
+        for (int n = 4; n < 300; n += 7) {
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                // Повторы значений и редкие выбросы
+                values[i] = random.nextInt(20) + (random.nextInt(25) == 0 ? 100 : 0);
+            }
+            assertArrayEquals(sortBasedOutliers(values), calculator.detectOutliers(values), "n=" + n);
+        }
+    }
+
+    @Test
+    public void testDescribeInOnePass() {
+        double[] values = {2, 4, 4, 4, 5, 5, 7, 9};
+
+        MetricStatistics stats = calculator.describe(values);
+
+        assertEquals(8, stats.getCount());
+        assertEquals(5.0, stats.getMean(), 1e-12);
+        assertEquals(2.0, stats.getStdDev(), 1e-12);
+        assertEquals(2.0, stats.getMin());
+        assertEquals(9.0, stats.getMax());
+        assertEquals(4.0, stats.getQ1());
+        assertEquals(7.0, stats.getQ3());
+        assertEquals(40.0, stats.getCoefficientOfVariation(), 1e-9);
+        // Исходный массив не переупорядочен
+        assertArrayEquals(new double[]{2, 4, 4, 4, 5, 5, 7, 9}, values);
+    }
+
+    @Test
+    public void testListMethodsDelegateToArrays() {
+        List<Double> list = Arrays.asList(3.0, 1.0, 4.0, 1.0, 5.0, 9.0, 2.0, 6.0, 50.0);
+        double[] array = list.stream().mapToDouble(Double::doubleValue).toArray();
+
+        assertEquals(calculator.calculateTrend(array), calculator.calculateTrend(list));
+        assertEquals(calculator.calculateMean(array), calculator.calculateMean(list));
+        assertEquals(calculator.calculateStdDev(array), calculator.calculateStdDev(list));
+        assertEquals(calculator.calculateCoefficientOfVariation(array),
+                calculator.calculateCoefficientOfVariation(list));
+        assertEquals(Collections.singletonList(8), calculator.detectOutliers(list));
+        assertEquals(0.0, calculator.calculateMean(Collections.emptyList()));
+    }
+
+    @Test
+    public void testDoubleBufferUsesPositionAndLimit() {
+        double[] values = {100, 1, 2, 3, 4, 5, 6, 100, -100};
+        DoubleBuffer heap = DoubleBuffer.wrap(values, 1, 7);
+        DoubleBuffer direct = ByteBuffer.allocateDirect(values.length * Double.BYTES).asDoubleBuffer().put(values);
+        direct.position(1).limit(8);
+
+        double[] window = Arrays.copyOfRange(values, 1, 8);
+        assertArrayEquals(calculator.detectOutliers(window), calculator.detectOutliers(heap));
+        assertArrayEquals(calculator.detectOutliers(window), calculator.detectOutliers(direct));
+        assertEquals(calculator.calculateTrend(window), calculator.calculateTrend(heap));
+        assertEquals(calculator.describe(window), calculator.describe(direct));
+        assertEquals(1, heap.position());
+    }
+
+    @Test
+    public void testDoubleBufferMomentsMatchArrays() {
+        double[] values = {100, 2, 4, 4, 4, 5, 5, 7, 9, -100};
+        double[] window = Arrays.copyOfRange(values, 1, 9);
+        DoubleBuffer heap = DoubleBuffer.wrap(values, 1, 8);
+        // Срез с ненулевым arrayOffset
+        DoubleBuffer slice = DoubleBuffer.wrap(values, 1, 9).slice();
+        slice.limit(8);
+        DoubleBuffer direct = ByteBuffer.allocateDirect(values.length * Double.BYTES).asDoubleBuffer().put(values);
+        direct.position(1).limit(9);
+
+        for (DoubleBuffer buffer : Arrays.asList(heap, slice, direct)) {
+            assertEquals(5.0, calculator.calculateMean(buffer), 1e-12);
+            assertEquals(calculator.calculateMean(window), calculator.calculateMean(buffer));
+            assertEquals(calculator.calculateStdDev(window), calculator.calculateStdDev(buffer));
+            assertEquals(40.0, calculator.calculateCoefficientOfVariation(buffer), 1e-9);
+        }
+        assertEquals(1, heap.position());
+        assertEquals(1, direct.position());
+
+        DoubleBuffer empty = DoubleBuffer.wrap(values, 3, 0);
+        assertEquals(0.0, calculator.calculateMean(empty));
+        assertEquals(0.0, calculator.calculateStdDev(empty));
+        assertEquals(0.0, calculator.calculateCoefficientOfVariation((DoubleBuffer) null));
+    }
+
+    @Test
+    public void testTrendSign() {
+        assertTrue(calculator.calculateTrend(new double[]{1, 2, 3, 4}) > 0);
+        assertTrue(calculator.calculateTrend(new double[]{4, 3, 2, 1}) < 0);
+        assertEquals(0.0, calculator.calculateTrend(new double[]{1}));
+    }
+
+    private static int[] sortBasedOutliers(double[] values) {
+        List<Double> sorted = new ArrayList<>();
+        for (double value : values) {
+            sorted.add(value);
+        }
+        Collections.sort(sorted);
+        int n = sorted.size();
+        double q1 = sorted.get(n / 4);
+        double q3 = sorted.get((3 * n) / 4);
+        double iqr = q3 - q1;
+        return IntStream.range(0, n)
+                .filter(i -> values[i] < q1 - 1.5 * iqr || values[i] > q3 + 1.5 * iqr)
+                .toArray();
+    }
+}
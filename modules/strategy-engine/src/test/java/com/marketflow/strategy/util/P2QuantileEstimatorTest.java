@@ -0,0 +1,51 @@
+package com.marketflow.strategy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class P2QuantileEstimatorTest {
+
+    @Test
+    public void testSmallSamplesAreExact() {
+        P2QuantileEstimator q1 = new P2QuantileEstimator(0.25);
+        P2QuantileEstimator q3 = new P2QuantileEstimator(0.75);
+        for (double value : new double[]{4.0, 1.0, 3.0, 2.0}) {
+            q1.add(value);
+            q3.add(value);
+        }
+
+        // Как в detectOutliers: sorted[n / 4] и sorted[3n / 4]
+        assertEquals(2.0, q1.getQuantile());
+        assertEquals(4.0, q3.getQuantile());
+    }
+
+    @Test
+    public void testLargeSampleCloseToExactQuantile() {
+        Random random = new Random(42);
+        double[] values = new double[100_000];
+        P2QuantileEstimator q1 = new P2QuantileEstimator(0.25);
+        P2QuantileEstimator q3 = new P2QuantileEstimator(0.75);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 5 + random.nextGaussian();
+            q1.add(values[i]);
+            q3.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values[values.length / 4], q1.getQuantile(), 0.02);
+        assertEquals(values[3 * values.length / 4], q3.getQuantile(), 0.02);
+        assertEquals(100_000, q1.getCount());
+    }
+
+    @Test
+    public void testEmptyEstimator() {
+        assertTrue(Double.isNaN(new P2QuantileEstimator(0.5).getQuantile()));
+        assertThrows(IllegalArgumentException.class, () -> new P2QuantileEstimator(1.0));
+    }
+}
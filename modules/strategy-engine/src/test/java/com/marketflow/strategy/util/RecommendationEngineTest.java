@@ -0,0 +1,105 @@
+package com.marketflow.strategy.util;
+
+import com.marketflow.strategy.model.StrategyType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RecommendationEngineTest {
+
+    private final RecommendationEngine engine = new RecommendationEngine();
+
+    @Test
+    public void testStrategyTrendAndAnomalyRecommendations() {
+        Map<String, Double> metrics = new HashMap<>();
+        metrics.put("ctr_trend", -0.2);
+        metrics.put("cpc_trend", 0.07);
+        List<String> anomalies = Arrays.asList("a1", "a2", "a3", "a4", "a5");
+
+        List<String> recommendations = engine.generateRecommendations(
+                "yandex", StrategyType.COST_REDUCTION, metrics, anomalies);
+
+        assertEquals(5 + 2 + 5, recommendations.size());
+        assertEquals("Оптимизируйте ставки для снижения средней стоимости клика в yandex", recommendations.get(0));
+        assertEquals("Наблюдается негативный тренд CTR. Рекомендуется обновить креативы и пересмотреть таргетинг аудитории.",
+                recommendations.get(5));
+        // CPC 0.07 - ниже порога 0.1, но вместе с падением CTR дает комбинированную рекомендацию
+        assertEquals("Критическая ситуация: снижение CTR при росте CPC. Необходим срочный пересмотр стратегии рекламной кампании.",
+                recommendations.get(6));
+        assertEquals("Обратите внимание на обнаруженные аномалии в метриках:", recommendations.get(7));
+        assertEquals("- a3", recommendations.get(10));
+        assertEquals("- И еще 2 аномалий. Проведите детальный анализ.", recommendations.get(11));
+    }
+
+    @Test
+    public void testThresholdsAreStrict() {
+        Map<String, Double> metrics = new HashMap<>();
+        metrics.put("ctr_trend", 0.1);
+        metrics.put("cpc_trend", -0.05);
+
+        // Ровно на порогах правила не срабатывают, отсутствующие метрики считаются нулевыми
+        assertEquals(5, engine.generateRecommendations(
+                "vk", StrategyType.RETARGETING, metrics, Collections.emptyList()).size());
+        assertEquals(5, engine.generateRecommendations(
+                "vk", StrategyType.RETARGETING, Collections.emptyMap(), Collections.emptyList()).size());
+
+        metrics.put("cpc_trend", -0.051);
+        List<String> recommendations = engine.generateRecommendations(
+                "vk", StrategyType.RETARGETING, metrics, Collections.emptyList());
+        assertEquals(6, recommendations.size());
+        assertEquals("Идеальная ситуация: рост CTR при снижении CPC. Рекомендуется максимально использовать этот период для масштабирования.",
+                recommendations.get(5));
+    }
+
+    @Test
+    public void testNanTrendMatchesNoRuleAndListIsAppended() {
+        Map<String, Double> metrics = new HashMap<>();
+        metrics.put("ctr_trend", Double.NaN);
+        metrics.put("cpc_trend", 0.2);
+        List<String> recommendations = new ArrayList<>(Collections.singletonList("Первая"));
+
+        engine.addRecommendations(recommendations, "vk", StrategyType.SEASONAL, metrics, Collections.emptyList());
+
+        // С NaN не выполняется ни одно сравнение, в том числе в комбинированных правилах
+        assertEquals(1 + 5 + 1, recommendations.size());
+        assertEquals("Первая", recommendations.get(0));
+        assertEquals("Наблюдается рост стоимости клика. Рекомендуется оптимизировать ставки и улучшить показатель качества объявлений.",
+                recommendations.get(6));
+    }
+
+    @Test
+    public void testEachCallReturnsOwnList() {
+        Map<String, Double> metrics = Collections.singletonMap("ctr_trend", 0.2);
+
+        List<String> first = engine.generateRecommendations("vk", StrategyType.RETARGETING, metrics, Collections.emptyList());
+        first.clear();
+        List<String> second = engine.generateRecommendations("vk", StrategyType.RETARGETING, metrics, Collections.emptyList());
+
+        // Изменение одного результата не влияет на следующие
+        assertEquals(6, second.size());
+    }
+
+    @Test
+    public void testTemplatesAreCompiledOnce() {
+        RecommendationRules.Template constant = RecommendationRules.Template.compile("Текст без подстановок");
+        assertSame(constant.render("yandex", null, 0), constant.render("google", null, 0));
+
+        RecommendationRules.Template bySource = RecommendationRules.Template.compile("Аудит {source}");
+        assertEquals("Аудит google", bySource.render("google", null, 0));
+
+        RecommendationRules.Template many = RecommendationRules.Template.compile("{source}: еще {count} - {anomaly}");
+        assertEquals("vk: еще 2 - a1", many.render("vk", "a1", 2));
+
+        assertThrows(IllegalArgumentException.class, () -> RecommendationRules.Template.compile("{unknown}"));
+        assertThrows(IllegalArgumentException.class, () -> RecommendationRules.Term.parse("ctr_trend == 0"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.marketflow.strategy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatisticsKernelsTest {
+
+    private final StatisticsKernel scalar = StatisticsKernels.scalar();
+    private final StatisticsKernel vector = StatisticsKernels.vector();
+
+    @Test
+    public void testVectorKernelMatchesScalar() {
+        Random random = new Random(11);
+        // Длины с хвостами любой длины относительно ширины вектора, смещение from тоже произвольное
+        for (int n = 1; n < 200; n += 3) {
+            double[] values = new double[n + 5];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextDouble() * 1000 + (random.nextInt(30) == 0 ? 50_000 : 0);
+            }
+            int from = n % 5;
+            int to = from + n;
+
+            assertClose(scalar.regressionSums(values, from, to), vector.regressionSums(values, from, to), "n=" + n);
+            assertClose(scalar.moments(values, from, to), vector.moments(values, from, to), "n=" + n);
+            assertClose(scalar.describe(values, from, to), vector.describe(values, from, to), "n=" + n);
+            assertArrayEquals(scalar.outside(values, from, to, 100, 900),
+                    vector.outside(values, from, to, 100, 900), "n=" + n);
+        }
+    }
+
+    @Test
+    public void testCalculatorResultsDoNotDependOnKernel() {
+        Random random = new Random(3);
+        double[] values = new double[1_000_003];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 50 + i * 0.0001 + random.nextGaussian() * 5;
+        }
+        MetricsCalculator scalarCalculator = new MetricsCalculator(scalar);
+        MetricsCalculator vectorCalculator = new MetricsCalculator(vector);
+
+        assertEquals(scalarCalculator.calculateTrend(values), vectorCalculator.calculateTrend(values), 1e-9);
+        assertEquals(scalarCalculator.calculateStdDev(values), vectorCalculator.calculateStdDev(values), 1e-9);
+        assertArrayEquals(scalarCalculator.detectOutliers(values), vectorCalculator.detectOutliers(values));
+        MetricStatistics expected = scalarCalculator.describe(values);
+        MetricStatistics actual = vectorCalculator.describe(values);
+        assertEquals(expected.getMean(), actual.getMean(), 1e-9);
+        assertEquals(expected.getMin(), actual.getMin(), 0.0);
+        assertEquals(expected.getMax(), actual.getMax(), 0.0);
+    }
+
+    @Test
+    public void testSwitchDefaultKernel() {
+        try {
+            assertTrue(StatisticsKernels.setVectorEnabled(true));
+            assertTrue(StatisticsKernels.current().name().startsWith("vector"));
+            assertFalse(StatisticsKernels.setVectorEnabled(false));
+            assertSame(scalar, StatisticsKernels.current());
+        } finally {
+            StatisticsKernels.setVectorEnabled(false);
+        }
+    }
+
+    private static void assertClose(double[] expected, double[] actual, String message) {
+        assertEquals(expected.length, actual.length, message);
+        for (int i = 0; i < expected.length; i++) {
+            // Порядок сложения разный: сравнение с относительной погрешностью
+            double tolerance = Math.max(1e-9, Math.abs(expected[i]) * 1e-12);
+            assertEquals(expected[i], actual[i], tolerance, message + ", index=" + i);
+        }
+    }
+}